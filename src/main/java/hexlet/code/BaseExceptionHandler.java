@@ -1,7 +1,11 @@
 package hexlet.code;
 
 
+import hexlet.code.exception.BadRequestException;
+import hexlet.code.exception.NotFoundException;
+import hexlet.code.exception.PreconditionFailedException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -15,8 +19,11 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import java.util.List;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
 import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 import static org.springframework.http.HttpStatus.FORBIDDEN;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.PRECONDITION_FAILED;
 import static org.springframework.http.HttpStatus.UNAUTHORIZED;
 
 
@@ -31,6 +38,18 @@ public class BaseExceptionHandler {
         return exception.getMessage();
     }
 
+    @ResponseStatus(BAD_REQUEST)
+    @ExceptionHandler(BadRequestException.class)
+    public String badRequestExceptionHandler(BadRequestException exception) {
+        return exception.getMessage();
+    }
+
+    @ResponseStatus(NOT_FOUND)
+    @ExceptionHandler(NotFoundException.class)
+    public String notFoundExceptionHandler(NotFoundException exception) {
+        return exception.getMessage();
+    }
+
     @ResponseStatus(UNPROCESSABLE_ENTITY)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public List<ObjectError> validationExceptionsHandler(MethodArgumentNotValidException exception) {
@@ -43,6 +62,20 @@ public class BaseExceptionHandler {
         return exception.getCause().getCause().getMessage();
     }
 
+    // Устаревший If-Match
+    @ResponseStatus(PRECONDITION_FAILED)
+    @ExceptionHandler(PreconditionFailedException.class)
+    public String preconditionFailedHandler(PreconditionFailedException exception) {
+        return exception.getMessage();
+    }
+
+    // Изменение, закоммиченное другим запросом между чтением и записью, когда повторы закончились или не разрешены
+    @ResponseStatus(CONFLICT)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public String optimisticLockingFailureHandler(OptimisticLockingFailureException exception) {
+        return exception.getMessage();
+    }
+
     @ResponseStatus(FORBIDDEN)
     @ExceptionHandler(AccessDeniedException.class)
     public String accessDeniedException(AccessDeniedException exception) {
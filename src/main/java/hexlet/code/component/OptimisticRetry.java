@@ -0,0 +1,45 @@
+package hexlet.code.component;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.function.Supplier;
+
+// Runs a service call again when its transaction lost an optimistic lock to a concurrent one.
+// Only calls without an expected version are retried: they re-read the row and apply the same change to it,
+// while a client that sent If-Match has to see the conflict. A conflict left after the last attempt answers 409
+@Component
+public class OptimisticRetry {
+
+    private final EntityManager entityManager;
+    private final int attempts;
+
+    public OptimisticRetry(final EntityManager entityManager,
+                           @Value("${optimistic-retry.attempts:3}") final int attempts) {
+        this.entityManager = entityManager;
+        this.attempts = attempts;
+    }
+
+    public <T> T call(final Long expectedVersion, final Supplier<T> call) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return call.get();
+            } catch (ObjectOptimisticLockingFailureException e) {
+                if (expectedVersion != null || attempt >= attempts) {
+                    throw e;
+                }
+                // The request-scoped persistence context still holds the rows read by the failed attempt
+                entityManager.clear();
+            }
+        }
+    }
+
+    public void run(final Long expectedVersion, final Runnable call) {
+        call(expectedVersion, () -> {
+            call.run();
+            return null;
+        });
+    }
+}
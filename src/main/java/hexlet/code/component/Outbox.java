@@ -0,0 +1,129 @@
+package hexlet.code.component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hexlet.code.event.TaskChangedEvent;
+import hexlet.code.model.Label;
+import hexlet.code.model.OutboxEvent;
+import hexlet.code.model.Status;
+import hexlet.code.model.TaskView;
+import hexlet.code.model.User;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Writes change events to the outbox_events table in the transaction that makes the change,
+// so an event exists if and only if its change is committed.
+// Ids come from sequence blocks of every instance and do not follow the commit order, so the relay gives
+// committed events their delivery order itself, see OutboxRelay
+@Component
+public class Outbox {
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public Outbox(final EntityManager entityManager, final ObjectMapper objectMapper) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    // Task changes are published by the task service inside its transaction, so they are recorded from the event
+    @EventListener
+    public void onTaskChanged(final TaskChangedEvent event) {
+        final OutboxEvent recorded;
+        if (event.isCreated()) {
+            recorded = created(OutboxEvent.TASK, event.getTaskId(), fieldsOf(event.getAfter()));
+        } else if (event.isDeleted()) {
+            recorded = deleted(OutboxEvent.TASK, event.getTaskId());
+        } else {
+            recorded = updated(OutboxEvent.TASK, event.getTaskId(), fieldsOf(event.getBefore()),
+                    fieldsOf(event.getAfter()));
+        }
+        if (recorded != null) {
+            event.setEventId(recorded.getId());
+        }
+    }
+
+    public OutboxEvent created(final String aggregateType, final long aggregateId,
+                               final Map<String, Object> fields) {
+        return record(aggregateType, aggregateId, OutboxEvent.Type.CREATED, fields);
+    }
+
+    // Only the fields whose values differ are recorded, and nothing is recorded if none do
+    public OutboxEvent updated(final String aggregateType, final long aggregateId,
+                               final Map<String, Object> before, final Map<String, Object> after) {
+        final Map<String, Object> changes = new LinkedHashMap<>();
+        after.forEach((field, value) -> {
+            if (!Objects.equals(before.get(field), value)) {
+                changes.put(field, value);
+            }
+        });
+        return changes.isEmpty() ? null : record(aggregateType, aggregateId, OutboxEvent.Type.UPDATED, changes);
+    }
+
+    public OutboxEvent deleted(final String aggregateType, final long aggregateId) {
+        return record(aggregateType, aggregateId, OutboxEvent.Type.DELETED, null);
+    }
+
+    public static Map<String, Object> fieldsOf(final TaskView task) {
+        final Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("name", task.getName());
+        fields.put("description", task.getDescription());
+        fields.put("taskStatusId", task.getTaskStatusId());
+        fields.put("authorId", task.getAuthorId());
+        fields.put("executorId", task.getExecutorId());
+        fields.put("labelIds", task.getLabels() == null
+                ? List.of()
+                : task.getLabels().stream().map(Label::getId).sorted().toList());
+        return fields;
+    }
+
+    public static Map<String, Object> fieldsOf(final Label label) {
+        final Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("name", label.getName());
+        return fields;
+    }
+
+    public static Map<String, Object> fieldsOf(final Status status) {
+        final Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("name", status.getName());
+        return fields;
+    }
+
+    // The password hash is not part of the event
+    public static Map<String, Object> fieldsOf(final User user) {
+        final Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("email", user.getEmail());
+        fields.put("firstName", user.getFirstName());
+        fields.put("lastName", user.getLastName());
+        return fields;
+    }
+
+    private OutboxEvent record(final String aggregateType, final long aggregateId, final OutboxEvent.Type type,
+                               final Map<String, Object> changes) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Outbox events must be written in the transaction of the change");
+        }
+        final OutboxEvent event = new OutboxEvent(null, aggregateType, aggregateId, type, toJson(changes), null,
+                null);
+        entityManager.persist(event);
+        return event;
+    }
+
+    private String toJson(final Map<String, Object> changes) {
+        if (changes == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(changes);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize outbox changes", e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package hexlet.code.component;
+
+import hexlet.code.event.OutboxBatchEvent;
+import hexlet.code.model.OutboxEvent;
+import hexlet.code.model.OutboxSequencer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+// Background delivery of committed outbox events to in-process subscribers of OutboxBatchEvent.
+// Event ids do not follow the commit order, so committed events are first numbered in id order while the
+// outbox_sequencer row is locked: one instance numbers at a time, and a number is only visible once every smaller
+// one is. Every instance then delivers the numbered events to its own subscribers in number order, from the
+// number it started at, and a batch whose subscriber fails is delivered again. The last delivered number is kept
+// in the outbox_relay_offsets row of the instance, written in the transaction of the delivery.
+// The relay uses plain JDBC, so its statements stay out of the Hibernate statistics of concurrent requests
+@Component
+public class OutboxRelay {
+
+    private static final RowMapper<OutboxEvent> EVENT = (resultSet, row) -> new OutboxEvent(
+            resultSet.getLong("id"),
+            resultSet.getString("aggregate_type"),
+            resultSet.getLong("aggregate_id"),
+            OutboxEvent.Type.valueOf(resultSet.getString("event_type")),
+            resultSet.getString("changes"),
+            resultSet.getTimestamp("created_at"),
+            resultSet.getLong("sequence_number"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final Duration retention;
+    private final String instance = UUID.randomUUID().toString();
+
+    public OutboxRelay(final JdbcTemplate jdbcTemplate,
+                       final PlatformTransactionManager transactionManager,
+                       final ApplicationEventPublisher eventPublisher,
+                       @Value("${outbox.batch-size:500}") final int batchSize,
+                       @Value("${outbox.retention:P1D}") final Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.retention = retention;
+    }
+
+    // Full batches mean more events are waiting, so they are relayed without waiting for the next run
+    @Scheduled(fixedDelayString = "${outbox.relay-interval:PT1S}")
+    public void relay() {
+        // The offset row is created before the first numbering, so the events it numbers are delivered here
+        getLastSequenceNumber();
+        Integer numbered;
+        do {
+            numbered = transactionTemplate.execute(status -> numberBatch());
+        } while (numbered != null && numbered == batchSize);
+        Integer delivered;
+        do {
+            delivered = transactionTemplate.execute(status -> deliverBatch());
+        } while (delivered != null && delivered == batchSize);
+    }
+
+    // Only events every instance has delivered are deleted. Rows of instances that have not relayed
+    // for the retention period belong to stopped instances and no longer hold events back
+    @Scheduled(fixedDelayString = "${outbox.purge-interval:PT1H}",
+            initialDelayString = "${outbox.purge-interval:PT1H}")
+    public void purge() {
+        getLastSequenceNumber();
+        final Date before = new Date(System.currentTimeMillis() - retention.toMillis());
+        jdbcTemplate.update("delete from outbox_relay_offsets where updated_at < ? and instance <> ?",
+                before, instance);
+        jdbcTemplate.update("""
+                    delete from outbox_events
+                    where sequence_number <= (select min(last_sequence_number) from outbox_relay_offsets)
+                    and created_at < ?
+                """, before);
+    }
+
+    // The stored number of this instance. Its row starts at the sequencer on first use: events numbered before
+    // this instance started have no subscribers here, they are only replayed from the table
+    public synchronized long getLastSequenceNumber() {
+        final List<Long> stored = jdbcTemplate.queryForList(
+                "select last_sequence_number from outbox_relay_offsets where instance = ?", Long.class, instance);
+        if (!stored.isEmpty()) {
+            return stored.get(0);
+        }
+        final long last = jdbcTemplate.queryForList(
+                        "select last_sequence_number from outbox_sequencer where id = ?",
+                        Long.class, OutboxSequencer.ID)
+                .stream()
+                .findFirst()
+                .orElse(0L);
+        jdbcTemplate.update(
+                "insert into outbox_relay_offsets (instance, last_sequence_number, updated_at) values (?, ?, ?)",
+                instance, last, new Date());
+        return last;
+    }
+
+    // Events of one aggregate type numbered after `after` up to `to`, in number order
+    public List<OutboxEvent> read(final String aggregateType, final long after, final long to, final int limit) {
+        return jdbcTemplate.query("""
+                    select id, aggregate_type, aggregate_id, event_type, changes, created_at, sequence_number
+                    from outbox_events where aggregate_type = ? and sequence_number > ? and sequence_number <= ?
+                    order by sequence_number limit ?
+                """, EVENT, aggregateType, after, to, limit);
+    }
+
+    // The oldest stored number, null if there is none. Older events may have been purged
+    public Long getFirstSequenceNumber() {
+        return jdbcTemplate.queryForObject("select min(sequence_number) from outbox_events", Long.class);
+    }
+
+    // The sequencer row is locked until the numbers are committed, so a relay of another instance waits here
+    // and then continues after them. The row is created by the first relay, a concurrent first insert fails
+    // on the primary key and is retried on the next run
+    private int numberBatch() {
+        final List<Long> locked = jdbcTemplate.queryForList(
+                "select last_sequence_number from outbox_sequencer where id = ? for update",
+                Long.class, OutboxSequencer.ID);
+        final long last;
+        if (locked.isEmpty()) {
+            jdbcTemplate.update("insert into outbox_sequencer (id, last_sequence_number) values (?, 0)",
+                    OutboxSequencer.ID);
+            last = 0;
+        } else {
+            last = locked.get(0);
+        }
+        final List<Long> ids = jdbcTemplate.queryForList(
+                "select id from outbox_events where sequence_number is null order by id limit ?",
+                Long.class, batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        final List<Object[]> numbers = new ArrayList<>();
+        for (int index = 0; index < ids.size(); index++) {
+            numbers.add(new Object[] {last + index + 1, ids.get(index)});
+        }
+        jdbcTemplate.batchUpdate("update outbox_events set sequence_number = ? where id = ?", numbers);
+        jdbcTemplate.update("update outbox_sequencer set last_sequence_number = ? where id = ?",
+                last + ids.size(), OutboxSequencer.ID);
+        return ids.size();
+    }
+
+    // Subscribers run in this transaction, and the stored number is written by it as well: it only moves on
+    // once they have all succeeded, and a rolled back delivery leaves it where it was.
+    // An empty run still writes the time, so the row is not taken for the one of a stopped instance
+    private int deliverBatch() {
+        final long last = getLastSequenceNumber();
+        final List<OutboxEvent> events = jdbcTemplate.query("""
+                    select id, aggregate_type, aggregate_id, event_type, changes, created_at, sequence_number
+                    from outbox_events where sequence_number > ? order by sequence_number limit ?
+                """, EVENT, last, batchSize);
+        long delivered = last;
+        if (!events.isEmpty()) {
+            final OutboxBatchEvent batch = new OutboxBatchEvent(events);
+            eventPublisher.publishEvent(batch);
+            delivered = batch.getLastSequenceNumber();
+        }
+        jdbcTemplate.update(
+                "update outbox_relay_offsets set last_sequence_number = ?, updated_at = ? where instance = ?",
+                delivered, new Date(), instance);
+        return events.size();
+    }
+}
@@ -0,0 +1,92 @@
+package hexlet.code.component;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+// Statements, fetched rows, loaded entities and JDBC time of the request handled by the current thread.
+// JDBC calls are counted by the metered data source and entities by a Hibernate post-load listener;
+// work done outside a started request is not counted
+@Component
+public class PersistenceMetrics implements PostLoadEventListener {
+
+    private static final ThreadLocal<Usage> CURRENT = new ThreadLocal<>();
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public PersistenceMetrics(final EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    public void register() {
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_LOAD, this);
+    }
+
+    public static Usage start() {
+        final Usage usage = new Usage();
+        CURRENT.set(usage);
+        return usage;
+    }
+
+    public static Usage current() {
+        return CURRENT.get();
+    }
+
+    public static Usage stop() {
+        final Usage usage = CURRENT.get();
+        CURRENT.remove();
+        return usage;
+    }
+
+    @Override
+    public void onPostLoad(final PostLoadEvent event) {
+        final Usage usage = CURRENT.get();
+        if (usage != null) {
+            usage.entities++;
+        }
+    }
+
+    // Only touched by the thread handling the request
+    public static final class Usage {
+
+        private long statements;
+        private long rows;
+        private long entities;
+        private long jdbcNanos;
+
+        public void statement(final long nanos) {
+            statements++;
+            jdbcNanos += nanos;
+        }
+
+        public void row() {
+            rows++;
+        }
+
+        public long getStatements() {
+            return statements;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getEntities() {
+            return entities;
+        }
+
+        public long getJdbcNanos() {
+            return jdbcNanos;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package hexlet.code.component;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+// Version counter per table, kept in the table_versions rows, so every instance tags its responses alike.
+// Inserts, updates and deletes made through Hibernate mark their table, and the rows of the marked tables
+// are bumped after the last flush of the transaction, just before it commits. A version is read before
+// the data it tags, so it can be older than that data but never newer
+@Component
+public class TableVersions implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+    public static final String TASKS = "tasks";
+    public static final String USERS = "users";
+    public static final String LABELS = "labels";
+    public static final String STATUSES = "statuses";
+
+    // Only the tables responses are tagged by have a row
+    private static final List<String> TABLES = List.of(TASKS, USERS, LABELS, STATUSES);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadLocal<PendingTables> pendingTables = new ThreadLocal<>();
+
+    public TableVersions(final EntityManagerFactory entityManagerFactory, final JdbcTemplate jdbcTemplate) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void register() {
+        final EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+        TABLES.forEach(this::createRow);
+    }
+
+    public long get(final String table) {
+        return get(List.of(table)).getOrDefault(table, 0L);
+    }
+
+    // Versions of the given tables, read with one statement
+    public Map<String, Long> get(final List<String> tables) {
+        final Map<String, Long> versions = new HashMap<>();
+        jdbcTemplate.query("select table_name, version from table_versions where table_name in ("
+                        + String.join(", ", Collections.nCopies(tables.size(), "?")) + ")",
+                row -> {
+                    versions.put(row.getString("table_name"), row.getLong("version"));
+                }, tables.toArray());
+        return versions;
+    }
+
+    // The version the last transaction committed on this thread gave the table, or null if it left the table
+    // as it was. Listeners that run after commit learn from it that no other change came in between
+    public Long committed(final String table) {
+        final PendingTables last = pendingTables.get();
+        return last == null || !last.committed ? null : last.versions.get(table);
+    }
+
+    // Strong entity tag for the given representation of data read from the given tables
+    public String etag(final List<String> tables, final String representation) {
+        return "\"" + version(tables) + "-" + representation + "\"";
+    }
+
+    // Combined version of the given tables
+    public String version(final List<String> tables) {
+        final Map<String, Long> versions = get(tables);
+        return tables.stream()
+                .map(table -> Long.toString(versions.getOrDefault(table, 0L), Character.MAX_RADIX))
+                .collect(Collectors.joining("."));
+    }
+
+    // Writes that bypass Hibernate events, such as bulk JPQL statements, report their tables here
+    public void changed(final String table) {
+        final EntityManager entityManager =
+                EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        changed(entityManager == null ? null : entityManager.unwrap(SessionImplementor.class), table);
+    }
+
+    @Override
+    public void onPostInsert(final PostInsertEvent event) {
+        changed(event.getSession(), tableOf(event.getPersister()));
+    }
+
+    @Override
+    public void onPostUpdate(final PostUpdateEvent event) {
+        changed(event.getSession(), tableOf(event.getPersister()));
+    }
+
+    @Override
+    public void onPostDelete(final PostDeleteEvent event) {
+        changed(event.getSession(), tableOf(event.getPersister()));
+    }
+
+    @Override
+    public void onPostRecreateCollection(final PostCollectionRecreateEvent event) {
+        changedOwner(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(final PostCollectionUpdateEvent event) {
+        changedOwner(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(final PostCollectionRemoveEvent event) {
+        changedOwner(event);
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(final EntityPersister persister) {
+        return false;
+    }
+
+    private void changedOwner(final AbstractCollectionEvent event) {
+        changed(event.getSession(), tableOf(event.getSession()
+                .getFactory()
+                .getMetamodel()
+                .entityPersister(event.getAffectedOwnerEntityName())));
+    }
+
+    // The rows are bumped by Hibernate before completion, after the flush on commit: a Spring synchronization
+    // would run before that flush and miss the changes it writes
+    private void changed(final SessionImplementor session, final String table) {
+        if (!TABLES.contains(table)) {
+            return;
+        }
+        if (session == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump(Set.of(table));
+            return;
+        }
+        PendingTables pending = pendingTables.get();
+        if (pending == null || pending.completed || pending.session != session) {
+            pending = new PendingTables(session);
+            pendingTables.set(pending);
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) pending);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) pending);
+        }
+        pending.tables.add(table);
+    }
+
+    // The rows stay locked until commit, and are always locked in the same order, so writers do not deadlock
+    private void bump(final Set<String> tables) {
+        new TreeSet<>(tables).forEach(table ->
+                jdbcTemplate.update("update table_versions set version = version + 1 where table_name = ?", table));
+    }
+
+    // A schema created by Hibernate starts without rows. Versions then start from the clock,
+    // so tags handed out before the schema was recreated do not match
+    private void createRow(final String table) {
+        try {
+            jdbcTemplate.update("insert into table_versions (table_name, version) select ?, ?"
+                            + " where not exists (select 1 from table_versions where table_name = ?)",
+                    table, System.currentTimeMillis(), table);
+        } catch (DuplicateKeyException e) {
+            // Another instance has just created it
+        }
+    }
+
+    private static String tableOf(final EntityPersister persister) {
+        return persister instanceof AbstractEntityPersister entityPersister
+                ? entityPersister.getTableName()
+                : persister.getEntityName();
+    }
+
+    // Tables changed by the current transaction of the thread. Once it completes, the versions it committed
+    // are kept until the next transaction on the thread changes a table
+    private final class PendingTables implements BeforeTransactionCompletionProcess,
+            AfterTransactionCompletionProcess {
+
+        private final SessionImplementor session;
+        private final Set<String> tables = new TreeSet<>();
+        private Map<String, Long> versions = Map.of();
+        private boolean completed;
+        private boolean committed;
+
+        PendingTables(final SessionImplementor session) {
+            this.session = session;
+        }
+
+        // The rows are locked by this transaction, so the versions read back are the ones it commits
+        @Override
+        public void doBeforeTransactionCompletion(final SessionImplementor session) {
+            bump(tables);
+            versions = get(List.copyOf(tables));
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(final boolean success,
+                                                 final SharedSessionContractImplementor session) {
+            completed = true;
+            committed = success;
+        }
+    }
+}
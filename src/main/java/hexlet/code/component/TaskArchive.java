@@ -0,0 +1,311 @@
+package hexlet.code.component;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import hexlet.code.dto.TaskRow;
+import hexlet.code.exception.BadRequestException;
+import hexlet.code.model.TaskArchiveSegment;
+import hexlet.code.repository.TaskArchiveSegmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+// Archived tasks in immutable segment files, one per archival chunk: a fixed header followed by the rows
+// as deflated NDJSON. A file is memory-mapped once, when its chunk commits or when its segment row is first seen,
+// so reads inflate straight from the page cache and the heap only holds the rows of the segments being read.
+// Each segment covers an id range, and a read only inflates the segments that can hold the ids asked for.
+// The segment rows are read again every refresh-interval, so instances sharing the directory see the segments
+// written by the others. A segment whose file is missing or unreadable is left out with an error in the log
+// and tried again on the next refresh
+@Slf4j
+@Component
+public class TaskArchive {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    // "TSEG"
+    private static final int MAGIC = 0x54534547;
+    // Magic, row count, inflated length, min id, max id
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 8;
+    private static final int INFLATED_LENGTH_OFFSET = 8;
+    private static final String EXTENSION = ".tsg";
+    private static final String TEMP_EXTENSION = EXTENSION + ".tmp";
+    // A file without a segment row may belong to a chunk that another instance is still writing
+    private static final Duration ORPHAN_AGE = Duration.ofHours(1);
+
+    private final TaskArchiveSegmentRepository taskArchiveSegmentRepository;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    // Segments already reported as unreadable, so a refresh does not repeat the error
+    private final Set<Long> unreadable = new HashSet<>();
+    // Committed segments by min id, replaced as a whole when a segment is added
+    private volatile List<Segment> segments = List.of();
+
+    public TaskArchive(final TaskArchiveSegmentRepository taskArchiveSegmentRepository,
+                       final ObjectMapper objectMapper,
+                       @Value("${task-archive.directory:task-archive}") final String directory) {
+        this.taskArchiveSegmentRepository = taskArchiveSegmentRepository;
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory);
+    }
+
+    // Old files without a committed segment row belong to chunks that were rolled back or interrupted
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        refresh();
+        final Set<Path> committed = taskArchiveSegmentRepository.findAll()
+                .stream()
+                .map(segment -> file(segment.getId()))
+                .collect(Collectors.toSet());
+        final FileTime before = FileTime.fromMillis(System.currentTimeMillis() - ORPHAN_AGE.toMillis());
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(file -> isSegmentFile(file) && !committed.contains(file) && isOlder(file, before))
+                        .forEach(TaskArchive::delete);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Maps the segments committed since the last refresh, including by other instances, and drops deleted ones
+    @Scheduled(fixedDelayString = "${task-archive.refresh-interval:PT1M}",
+            initialDelayString = "${task-archive.refresh-interval:PT1M}")
+    public synchronized void refresh() {
+        final Map<Long, Segment> mapped = segments.stream()
+                .collect(Collectors.toMap(Segment::id, Function.identity()));
+        final List<Segment> loaded = new ArrayList<>();
+        for (TaskArchiveSegment segment : taskArchiveSegmentRepository.findAll()) {
+            final Segment existing = mapped.get(segment.getId());
+            if (existing != null) {
+                loaded.add(existing);
+            } else {
+                map(segment).ifPresent(loaded::add);
+            }
+        }
+        loaded.sort(Comparator.comparingLong(Segment::minId));
+        segments = List.copyOf(loaded);
+    }
+
+    // Runs in the transaction that deletes the rows from the hot tables. The file is complete and synced
+    // before the segment row is committed, and it is deleted again if the transaction rolls back
+    public void write(final List<TaskRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        final TaskArchiveSegment segment = taskArchiveSegmentRepository.save(new TaskArchiveSegment(null,
+                rows.stream().mapToLong(TaskRow::getId).min().orElseThrow(),
+                rows.stream().mapToLong(TaskRow::getId).max().orElseThrow(),
+                rows.size(),
+                null));
+        final Path file = file(segment.getId());
+        try {
+            writeFile(file, segment, rows);
+        } catch (IOException e) {
+            delete(file);
+            throw new UncheckedIOException(e);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(final int status) {
+                if (status == STATUS_COMMITTED) {
+                    map(segment).ifPresent(TaskArchive.this::add);
+                } else {
+                    delete(file);
+                }
+            }
+        });
+    }
+
+    // Archived tasks with ids after `after`, in id order
+    public List<TaskRow> read(final long after, final int size) {
+        if (size < 1) {
+            throw new BadRequestException("Page size must be positive: " + size);
+        }
+        final int limit = Math.min(size, MAX_PAGE_SIZE);
+        final List<TaskRow> result = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.maxId() <= after) {
+                continue;
+            }
+            // Segments are ordered by min id, so the rest cannot hold smaller ids than a full page
+            if (result.size() == limit && segment.minId() > result.get(limit - 1).getId()) {
+                break;
+            }
+            rows(segment).stream()
+                    .filter(row -> row.getId() > after)
+                    .forEach(result::add);
+            result.sort(Comparator.comparingLong(TaskRow::getId));
+            if (result.size() > limit) {
+                result.subList(limit, result.size()).clear();
+            }
+        }
+        return result;
+    }
+
+    public Optional<TaskRow> find(final long id) {
+        return segments.stream()
+                .filter(segment -> segment.minId() <= id && id <= segment.maxId())
+                .flatMap(segment -> rows(segment).stream())
+                .filter(row -> row.getId() == id)
+                .findFirst();
+    }
+
+    // A refresh may have mapped the segment since its row was committed
+    private synchronized void add(final Segment segment) {
+        if (segments.stream().anyMatch(each -> each.id() == segment.id())) {
+            return;
+        }
+        final List<Segment> updated = new ArrayList<>(segments);
+        updated.add(segment);
+        updated.sort(Comparator.comparingLong(Segment::minId));
+        segments = List.copyOf(updated);
+    }
+
+    private void writeFile(final Path file, final TaskArchiveSegment segment, final List<TaskRow> rows)
+            throws IOException {
+        final ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(json)) {
+            writer.writeAll(rows);
+        }
+        final ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(deflated, deflater)) {
+            json.writeTo(out);
+        } finally {
+            deflater.end();
+        }
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(segment.getRowCount())
+                .putInt(json.size())
+                .putLong(segment.getMinId())
+                .putLong(segment.getMaxId())
+                .flip();
+        final ByteBuffer body = ByteBuffer.wrap(deflated.toByteArray());
+
+        Files.createDirectories(directory);
+        final Path temp = directory.resolve(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[] {header, body});
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, ATOMIC_MOVE);
+    }
+
+    // The mapping stays valid after the channel is closed. The tasks of an unreadable segment are missing from
+    // the archive until its file is restored
+    private Optional<Segment> map(final TaskArchiveSegment segment) {
+        final Path file = file(segment.getId());
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            final ByteBuffer buffer = channel.map(READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a task archive segment: " + file);
+            }
+            synchronized (unreadable) {
+                unreadable.remove(segment.getId());
+            }
+            return Optional.of(new Segment(segment.getId(), file, segment.getMinId(), segment.getMaxId(), buffer));
+        } catch (IOException e) {
+            synchronized (unreadable) {
+                if (unreadable.add(segment.getId())) {
+                    log.error("Task archive segment {} with tasks {} to {} is unreadable, its tasks are unavailable",
+                            segment.getId(), segment.getMinId(), segment.getMaxId(), e);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    private List<TaskRow> rows(final Segment segment) {
+        final ByteBuffer buffer = segment.buffer().duplicate();
+        final byte[] json = new byte[buffer.getInt(INFLATED_LENGTH_OFFSET)];
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.position(HEADER_SIZE).slice());
+            int length = 0;
+            while (length < json.length) {
+                final int inflated = inflater.inflate(json, length, json.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.finished())) {
+                    throw new DataFormatException("Segment ends after " + length + " bytes");
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted task archive segment " + segment.file(), e);
+        } finally {
+            inflater.end();
+        }
+        try (MappingIterator<TaskRow> rows = objectMapper.readerFor(TaskRow.class).readValues(json)) {
+            return rows.readAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path file(final long segmentId) {
+        return directory.resolve(String.format("tasks-%019d%s", segmentId, EXTENSION));
+    }
+
+    private static boolean isOlder(final Path file, final FileTime time) {
+        try {
+            return Files.getLastModifiedTime(file).compareTo(time) < 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isSegmentFile(final Path file) {
+        final String name = file.getFileName().toString();
+        return name.endsWith(EXTENSION) || name.endsWith(TEMP_EXTENSION);
+    }
+
+    private static void delete(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Segment(long id, Path file, long minId, long maxId, ByteBuffer buffer) { }
+}
@@ -0,0 +1,74 @@
+package hexlet.code.component;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import hexlet.code.model.QTask;
+import hexlet.code.model.Status;
+import hexlet.code.repository.StatusRepository;
+import hexlet.code.service.TaskService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+// Moves old tasks from the hot tables to the archive: tasks created more than `age` ago, and tasks in one of
+// the terminal statuses created more than `terminal-age` ago. Each chunk is locked, written to a segment and
+// deleted in its own short transaction, so the tables stay available and a failed run leaves no partial chunk
+@Component
+@ConditionalOnProperty(name = "task-archive.enabled")
+public class TaskArchiver {
+
+    private final TaskArchive taskArchive;
+    private final TaskService taskService;
+    private final StatusRepository statusRepository;
+    private final Duration age;
+    private final List<String> terminalStatuses;
+    private final Duration terminalAge;
+    private final int chunkSize;
+
+    public TaskArchiver(final TaskArchive taskArchive,
+                        final TaskService taskService,
+                        final StatusRepository statusRepository,
+                        @Value("${task-archive.age:P365D}") final Duration age,
+                        @Value("${task-archive.terminal-statuses:}") final List<String> terminalStatuses,
+                        @Value("${task-archive.terminal-age:P30D}") final Duration terminalAge,
+                        @Value("${task-archive.chunk-size:500}") final int chunkSize) {
+        this.taskArchive = taskArchive;
+        this.taskService = taskService;
+        this.statusRepository = statusRepository;
+        this.age = age;
+        this.terminalStatuses = terminalStatuses;
+        this.terminalAge = terminalAge;
+        this.chunkSize = chunkSize;
+    }
+
+    // Full chunks mean more tasks are waiting, so they are archived without waiting for the next run
+    @Scheduled(fixedDelayString = "${task-archive.interval:PT1H}", initialDelayString = "${task-archive.interval:PT1H}")
+    public void archive() {
+        final BooleanExpression eligible = eligible(System.currentTimeMillis());
+        int archived;
+        do {
+            archived = taskService.archiveTasks(eligible, chunkSize, taskArchive::write);
+        } while (archived == chunkSize);
+    }
+
+    // Statuses are matched by id, so the locking select does not join the statuses table
+    private BooleanExpression eligible(final long now) {
+        final QTask task = QTask.task;
+        final BooleanExpression old = task.createdAt.lt(new Date(now - age.toMillis()));
+        final List<Long> terminal = terminalStatuses.stream()
+                .map(statusRepository::findByName)
+                .flatMap(Optional::stream)
+                .map(Status::getId)
+                .toList();
+        if (terminal.isEmpty()) {
+            return old;
+        }
+        return old.or(task.taskStatus.id.in(terminal)
+                .and(task.createdAt.lt(new Date(now - terminalAge.toMillis()))));
+    }
+}
@@ -0,0 +1,400 @@
+package hexlet.code.component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import hexlet.code.event.OutboxBatchEvent;
+import hexlet.code.event.TaskChangedEvent;
+import hexlet.code.model.OutboxEvent;
+import hexlet.code.model.TaskView;
+import hexlet.code.service.TaskViewService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static hexlet.code.service.TaskViewService.MAX_ID_LIST_SIZE;
+
+// Server-Sent Events of task changes, filtered per subscriber with the task list filter.
+// Changes arrive from the outbox relay in event number order and are matched against every filter in memory,
+// using the task_view rows the task service captured at commit. Every connection has its own bounded queue,
+// drained by a pooled thread only while it has events, so an idle connection holds no thread and a slow client
+// only blocks its own sender. A connection whose queue overflows, whose write is stuck longer than send-timeout
+// or that finds the sender pool full is dropped: the client reconnects with Last-Event-ID and the missed changes
+// are replayed from the outbox
+@Component
+public class TaskChangeStream {
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    // The task still exists but no longer matches the filter
+    public static final String REMOVED = "removed";
+    public static final String DELETED = "deleted";
+    // The missed changes are no longer stored or are too many to replay, the client has to read the list again
+    public static final String RESET = "reset";
+
+    // Rows captured at commit wait here for the relay to deliver their event
+    private static final int MAX_SNAPSHOTS = 100_000;
+    private static final Duration SNAPSHOT_TTL = Duration.ofMinutes(5);
+    // A connection has at most one drain waiting, so the queue bounds the connections waiting for a thread
+    private static final int SENDER_THREADS = 32;
+    private static final int MAX_WAITING_SENDERS = 10_000;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Cache<Long, TaskChangedEvent> snapshots = Caffeine.newBuilder()
+            .maximumSize(MAX_SNAPSHOTS)
+            .expireAfterWrite(SNAPSHOT_TTL)
+            .build();
+    // Guards lastDispatched and the subscriber set against a subscription made during a dispatch
+    private final Object dispatchLock = new Object();
+    private long lastDispatched;
+
+    private final TaskViewService taskViewService;
+    private final OutboxRelay outboxRelay;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService senders;
+    private final int bufferSize;
+    private final long timeout;
+    private final long sendTimeout;
+    private final int maxReplay;
+
+    public TaskChangeStream(final TaskViewService taskViewService,
+                            final OutboxRelay outboxRelay,
+                            final ObjectMapper objectMapper,
+                            @Value("${task-stream.buffer-size:256}") final int bufferSize,
+                            @Value("${task-stream.timeout:PT1H}") final Duration timeout,
+                            @Value("${task-stream.send-timeout:PT10S}") final Duration sendTimeout,
+                            @Value("${task-stream.max-replay:10000}") final int maxReplay) {
+        this.taskViewService = taskViewService;
+        this.outboxRelay = outboxRelay;
+        this.objectMapper = objectMapper;
+        this.senders = new ThreadPoolExecutor(SENDER_THREADS, SENDER_THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_WAITING_SENDERS));
+        this.bufferSize = bufferSize;
+        this.timeout = timeout.toMillis();
+        this.sendTimeout = sendTimeout.toNanos();
+        this.maxReplay = maxReplay;
+    }
+
+    // Events numbered before the start are not delivered here, they are replayed from the outbox
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        final long delivered = outboxRelay.getLastSequenceNumber();
+        synchronized (dispatchLock) {
+            lastDispatched = Math.max(lastDispatched, delivered);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        senders.shutdownNow();
+    }
+
+    // Changes of the tasks after lastEventId are sent first, then new changes as they are committed
+    public SseEmitter subscribe(final TaskMatcher matcher, final Long lastEventId) {
+        final Subscriber subscriber = new Subscriber(new SseEmitter(timeout), matcher, lastEventId != null);
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onError(error -> subscribers.remove(subscriber));
+        final long replayTo;
+        synchronized (dispatchLock) {
+            replayTo = lastDispatched;
+            subscribers.add(subscriber);
+        }
+        if (lastEventId != null) {
+            try {
+                subscriber.prepend(replay(matcher, lastEventId, replayTo));
+            } finally {
+                subscriber.replaying = false;
+            }
+        }
+        schedule(subscriber);
+        return subscriber.emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @TransactionalEventListener
+    public void onTaskChanged(final TaskChangedEvent event) {
+        if (event.getEventId() != null && !subscribers.isEmpty()) {
+            snapshots.put(event.getEventId(), event);
+        }
+    }
+
+    // Runs in the relay transaction, so it only matches and queues; the sender threads write to the clients
+    // and complete the dropped connections
+    @EventListener
+    public void onOutboxBatch(final OutboxBatchEvent batch) {
+        final List<Change> changes = subscribers.isEmpty() ? List.of() : changesOf(batch.getEvents());
+        final List<Subscriber> overflowed = new ArrayList<>();
+        synchronized (dispatchLock) {
+            for (Subscriber subscriber : subscribers) {
+                for (Change change : changes) {
+                    final SseEmitter.SseEventBuilder event = change.eventFor(subscriber.matcher);
+                    if (event != null && !subscriber.offer(event)) {
+                        overflowed.add(subscriber);
+                        break;
+                    }
+                }
+            }
+            lastDispatched = batch.getLastSequenceNumber();
+        }
+        overflowed.forEach(this::close);
+        subscribers.forEach(this::schedule);
+    }
+
+    // Also reveals connections closed by the client, whose writes fail, and drops the ones whose write is stuck
+    @Scheduled(fixedDelayString = "${task-stream.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        final long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isStuck(now)) {
+                close(subscriber);
+            } else if (subscriber.isIdle() && subscriber.offer(SseEmitter.event().comment("heartbeat"))) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    // Changes whose rows were not captured, e.g. committed before a restart, use the current task_view row
+    private List<Change> changesOf(final List<OutboxEvent> events) {
+        final List<OutboxEvent> taskEvents = events.stream()
+                .filter(event -> OutboxEvent.TASK.equals(event.getAggregateType()))
+                .toList();
+        final Map<Long, TaskChangedEvent> captured = snapshots.getAllPresent(taskEvents.stream()
+                .map(OutboxEvent::getId)
+                .toList());
+        snapshots.invalidateAll(captured.keySet());
+        final Map<Long, TaskView> current = findViews(taskEvents.stream()
+                .filter(event -> !captured.containsKey(event.getId()))
+                .filter(event -> event.getEventType() != OutboxEvent.Type.DELETED)
+                .map(OutboxEvent::getAggregateId)
+                .distinct()
+                .toList());
+        return taskEvents.stream()
+                .map(event -> {
+                    final TaskChangedEvent snapshot = captured.get(event.getId());
+                    return snapshot != null
+                            ? new Change(event.getSequenceNumber(), event.getAggregateId(), snapshot.getBefore(),
+                                    snapshot.getAfter(), true)
+                            : new Change(event.getSequenceNumber(), event.getAggregateId(), null,
+                                    current.get(event.getAggregateId()), false);
+                })
+                .toList();
+    }
+
+    // Only the last change of every task matters, and the task is sent as it is now
+    private List<SseEmitter.SseEventBuilder> replay(final TaskMatcher matcher, final long lastEventId,
+                                                    final long replayTo) {
+        if (lastEventId >= replayTo) {
+            return List.of();
+        }
+        final Long firstEventId = outboxRelay.getFirstSequenceNumber();
+        final List<OutboxEvent> events = firstEventId == null || lastEventId < firstEventId
+                ? null
+                : outboxRelay.read(OutboxEvent.TASK, lastEventId, replayTo, maxReplay + 1);
+        if (events == null || events.size() > maxReplay) {
+            return List.of(event(replayTo, RESET, Map.of()));
+        }
+        final Map<Long, OutboxEvent> lastByTask = new LinkedHashMap<>();
+        events.forEach(event -> lastByTask.put(event.getAggregateId(), event));
+        final Map<Long, TaskView> current = findViews(lastByTask.keySet());
+        return lastByTask.values()
+                .stream()
+                .sorted(Comparator.comparing(OutboxEvent::getSequenceNumber))
+                .map(event -> new Change(event.getSequenceNumber(), event.getAggregateId(), null,
+                        current.get(event.getAggregateId()), false).eventFor(matcher))
+                .toList();
+    }
+
+    private Map<Long, TaskView> findViews(final Collection<Long> taskIds) {
+        final List<Long> ids = List.copyOf(taskIds);
+        final Map<Long, TaskView> views = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += MAX_ID_LIST_SIZE) {
+            taskViewService.findAll(ids.subList(from, Math.min(from + MAX_ID_LIST_SIZE, ids.size())))
+                    .forEach(view -> views.put(view.getTaskId(), view));
+        }
+        return views;
+    }
+
+    private void schedule(final Subscriber subscriber) {
+        if (!subscriber.replaying && (subscriber.closed || !subscriber.isIdle())
+                && subscriber.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                // Shutdown, or every thread is busy and the queue is full: the connection is dropped
+                // without waiting for a thread and is never drained again. The client gets the queued events
+                // again by replay
+                subscribers.remove(subscriber);
+                subscriber.close();
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    // A dropped connection is completed here after its last write, since the emitter is locked while it writes
+    private void drain(final Subscriber subscriber) {
+        try {
+            for (SseEmitter.SseEventBuilder event = subscriber.poll(); event != null; event = subscriber.poll()) {
+                subscriber.sendStarted = System.nanoTime();
+                subscriber.emitter.send(event);
+                subscriber.sendStarted = 0;
+            }
+            if (subscriber.closed) {
+                subscriber.emitter.complete();
+                return;
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client has gone or the emitter has completed
+            subscribers.remove(subscriber);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        schedule(subscriber);
+    }
+
+    // Queued events are discarded, the client gets them again by replay
+    private void close(final Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.close();
+        schedule(subscriber);
+    }
+
+    private SseEmitter.SseEventBuilder event(final long eventId, final String name, final Object data) {
+        try {
+            return SseEmitter.event()
+                    .id(String.valueOf(eventId))
+                    .name(name)
+                    .data(objectMapper.writeValueAsString(data));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize task change " + eventId, e);
+        }
+    }
+
+    // exact - before is the captured row; otherwise it is unknown and the task may have matched before
+    private final class Change {
+
+        private final long eventId;
+        private final long taskId;
+        private final TaskView before;
+        private final TaskView after;
+        private final boolean exact;
+        // Serialized once and shared by all subscribers whose filter it matches
+        private String task;
+
+        Change(final long eventId, final long taskId, final TaskView before, final TaskView after,
+               final boolean exact) {
+            this.eventId = eventId;
+            this.taskId = taskId;
+            this.before = before;
+            this.after = after;
+            this.exact = exact;
+        }
+
+        SseEmitter.SseEventBuilder eventFor(final TaskMatcher matcher) {
+            if (after != null && matcher.matches(after)) {
+                return SseEmitter.event()
+                        .id(String.valueOf(eventId))
+                        .name(exact && before == null ? CREATED : UPDATED)
+                        .data(task());
+            }
+            if (exact && (before == null || !matcher.matches(before))) {
+                return null;
+            }
+            return event(eventId, after == null ? DELETED : REMOVED, Map.of("id", taskId));
+        }
+
+        private String task() {
+            if (task == null) {
+                try {
+                    task = objectMapper.writeValueAsString(after.toTask());
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException("Cannot serialize task " + taskId, e);
+                }
+            }
+            return task;
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final TaskMatcher matcher;
+        private final Deque<SseEmitter.SseEventBuilder> queue = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // Nothing is sent until the replayed changes are queued in front of the live ones
+        private volatile boolean replaying;
+        private volatile boolean closed;
+        // System.nanoTime() when the current write started, 0 between writes
+        private volatile long sendStarted;
+
+        Subscriber(final SseEmitter emitter, final TaskMatcher matcher, final boolean replaying) {
+            this.emitter = emitter;
+            this.matcher = matcher;
+            this.replaying = replaying;
+        }
+
+        synchronized boolean offer(final SseEmitter.SseEventBuilder event) {
+            if (closed || queue.size() >= bufferSize) {
+                return false;
+            }
+            queue.addLast(event);
+            return true;
+        }
+
+        synchronized void prepend(final List<SseEmitter.SseEventBuilder> events) {
+            if (closed) {
+                return;
+            }
+            for (int index = events.size() - 1; index >= 0; index--) {
+                queue.addFirst(events.get(index));
+            }
+        }
+
+        synchronized SseEmitter.SseEventBuilder poll() {
+            return queue.pollFirst();
+        }
+
+        synchronized boolean isIdle() {
+            return queue.isEmpty();
+        }
+
+        synchronized void close() {
+            closed = true;
+            queue.clear();
+        }
+
+        boolean isStuck(final long now) {
+            final long started = sendStarted;
+            return started != 0 && now - started > sendTimeout;
+        }
+    }
+}
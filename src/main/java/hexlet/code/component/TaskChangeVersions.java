@@ -0,0 +1,115 @@
+package hexlet.code.component;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.TreeSet;
+
+// Change numbers for the delta sync of task_view. A transaction that writes task rows takes one number and
+// stamps it on every row it writes and on the tombstone of every task it deletes. Readers only trust rows below
+// the watermark, so a late commit can never get a smaller number than a sync token already handed out.
+// On PostgreSQL the number is the id of the writing transaction, and the watermark is the oldest transaction
+// still running in the database, so it holds for writers in every instance.
+// Other databases are only used embedded in a single process: numbers come from blocks of a database sequence,
+// and the numbers of the open transactions of this process are tracked here
+@Component
+public class TaskChangeVersions {
+
+    public static final String SEQUENCE = "task_changes_seq";
+    public static final int ALLOCATION_SIZE = 50;
+
+    private static final String TRANSACTION_VERSION = TaskChangeVersions.class.getName() + ".version";
+
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean transactionIds;
+    private final String nextValueSql;
+    // The rest of the current sequence block is [next, limit)
+    private long next;
+    private long limit;
+    private long lastAllocated;
+
+    public TaskChangeVersions(final JdbcTemplate jdbcTemplate, final EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        final Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect();
+        this.transactionIds = dialect instanceof PostgreSQL81Dialect;
+        this.nextValueSql = dialect.getSequenceNextValString(SEQUENCE);
+    }
+
+    // Numbers written by a previous run of the single process are all committed, so they are trusted from the start
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (transactionIds) {
+            return;
+        }
+        final long written = Math.max(
+                max("select max(change_version) from task_view"),
+                max("select max(change_version) from task_tombstones"));
+        synchronized (inFlight) {
+            lastAllocated = Math.max(lastAllocated, written);
+        }
+    }
+
+    // The number of the current transaction, taken on the first call and open until the transaction completes
+    public long current() {
+        final Long bound = (Long) TransactionSynchronizationManager.getResource(TRANSACTION_VERSION);
+        if (bound != null) {
+            return bound;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Task changes must be numbered in the transaction of the change");
+        }
+        final long version = transactionIds
+                ? jdbcTemplate.queryForObject("select txid_current()", Long.class)
+                : allocate();
+        TransactionSynchronizationManager.bindResource(TRANSACTION_VERSION, version);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(final int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_VERSION);
+                synchronized (inFlight) {
+                    inFlight.remove(version);
+                }
+            }
+        });
+        return version;
+    }
+
+    // Rows below the returned number belong to finished transactions
+    public long watermark() {
+        if (transactionIds) {
+            return jdbcTemplate.queryForObject("select txid_snapshot_xmin(txid_current_snapshot())", Long.class);
+        }
+        synchronized (inFlight) {
+            return inFlight.isEmpty() ? lastAllocated + 1 : inFlight.first();
+        }
+    }
+
+    private long allocate() {
+        synchronized (inFlight) {
+            if (next == limit) {
+                next = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+                limit = next + ALLOCATION_SIZE;
+            }
+            final long version = next++;
+            lastAllocated = Math.max(lastAllocated, version);
+            inFlight.add(version);
+            return version;
+        }
+    }
+
+    private long max(final String sql) {
+        final Long value = jdbcTemplate.queryForObject(sql, Long.class);
+        return value == null ? 0 : value;
+    }
+}
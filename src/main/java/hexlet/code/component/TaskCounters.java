@@ -0,0 +1,180 @@
+package hexlet.code.component;
+
+import hexlet.code.dto.TaskStats;
+import hexlet.code.event.TaskChangedEvent;
+import hexlet.code.model.Label;
+import hexlet.code.model.TaskView;
+import hexlet.code.repository.TaskRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Task counts kept in memory, so the dashboard numbers are read without touching the tasks table.
+// Every committed task change adjusts the counters, and a periodic recount against the database
+// replaces them to correct any drift left by writes that bypass the task service.
+// Each instance counts the changes committed through it, so the stats tag names the instance
+@Component
+public class TaskCounters {
+
+    private final TaskRepository taskRepository;
+    private final String instance = UUID.randomUUID().toString();
+    // Bumped by every applied change and every recount, the stats tag changes whenever the numbers may have
+    private final AtomicLong version = new AtomicLong();
+    // Events take the read lock, so they never block each other, only the start and the end of a recount
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Counters counters = new Counters();
+    // Changes committed while a recount runs. The recount may not see them, so they are added to it before the swap
+    private Counters pending;
+
+    public TaskCounters(final TaskRepository taskRepository) {
+        this.taskRepository = taskRepository;
+    }
+
+    // Changes committed during the count are applied on top of it, so none is lost between the count and the swap.
+    // A change committed just before the count but delivered after it starts is counted twice until the next recount
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${task-stats.reconcile-interval:PT5M}",
+            initialDelayString = "${task-stats.reconcile-interval:PT5M}")
+    public synchronized void reconcile() {
+        lock.writeLock().lock();
+        try {
+            pending = new Counters();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        final Counters recounted;
+        try {
+            recounted = new Counters(taskRepository.countTasks());
+        } catch (RuntimeException e) {
+            stopPending();
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            recounted.addAll(pending);
+            counters = recounted;
+            pending = null;
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onTaskChanged(final TaskChangedEvent event) {
+        lock.readLock().lock();
+        try {
+            apply(counters, event);
+            if (pending != null) {
+                apply(pending, event);
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public TaskStats getStats() {
+        return counters.toStats();
+    }
+
+    // Weak: between recounts the numbers are approximate, and two instances may count the same tasks differently
+    public String etag(final String representation) {
+        return "W/\"" + instance + "-" + version.get() + "-" + representation + "\"";
+    }
+
+    private void stopPending() {
+        lock.writeLock().lock();
+        try {
+            pending = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(final Counters target, final TaskChangedEvent event) {
+        if (event.getBefore() != null) {
+            target.add(event.getBefore(), -1);
+        }
+        if (event.getAfter() != null) {
+            target.add(event.getAfter(), 1);
+        }
+    }
+
+    private static final class Counters {
+
+        private final LongAdder total = new LongAdder();
+        private final Map<Long, LongAdder> byTaskStatus = new ConcurrentHashMap<>();
+        private final Map<Long, LongAdder> byExecutor = new ConcurrentHashMap<>();
+        private final Map<Long, LongAdder> byAuthor = new ConcurrentHashMap<>();
+        private final Map<Long, LongAdder> byLabel = new ConcurrentHashMap<>();
+
+        Counters() {
+        }
+
+        Counters(final TaskStats stats) {
+            total.add(stats.getTotal());
+            load(byTaskStatus, stats.getByTaskStatus());
+            load(byExecutor, stats.getByExecutor());
+            load(byAuthor, stats.getByAuthor());
+            load(byLabel, stats.getByLabel());
+        }
+
+        void add(final TaskView task, final int delta) {
+            total.add(delta);
+            add(byTaskStatus, task.getTaskStatusId(), delta);
+            add(byExecutor, task.getExecutorId(), delta);
+            add(byAuthor, task.getAuthorId(), delta);
+            task.getLabels()
+                    .stream()
+                    .map(Label::getId)
+                    .forEach(labelId -> add(byLabel, labelId, delta));
+        }
+
+        void addAll(final Counters other) {
+            total.add(other.total.sum());
+            addAll(byTaskStatus, other.byTaskStatus);
+            addAll(byExecutor, other.byExecutor);
+            addAll(byAuthor, other.byAuthor);
+            addAll(byLabel, other.byLabel);
+        }
+
+        TaskStats toStats() {
+            return new TaskStats(total.sum(), snapshot(byTaskStatus), snapshot(byExecutor),
+                    snapshot(byAuthor), snapshot(byLabel));
+        }
+
+        private static void add(final Map<Long, LongAdder> counts, final Long key, final int delta) {
+            if (key != null) {
+                counts.computeIfAbsent(key, id -> new LongAdder()).add(delta);
+            }
+        }
+
+        private static void addAll(final Map<Long, LongAdder> counts, final Map<Long, LongAdder> deltas) {
+            deltas.forEach((key, delta) -> counts.computeIfAbsent(key, id -> new LongAdder()).add(delta.sum()));
+        }
+
+        private static void load(final Map<Long, LongAdder> counts, final Map<Long, Long> source) {
+            source.forEach((key, count) -> counts.computeIfAbsent(key, id -> new LongAdder()).add(count));
+        }
+
+        // Groups that dropped to zero stay in the map until the next recount, but are not reported
+        private static Map<Long, Long> snapshot(final Map<Long, LongAdder> counts) {
+            return counts.entrySet()
+                    .stream()
+                    .filter(entry -> entry.getValue().sum() > 0)
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package hexlet.code.component;
+
+import hexlet.code.dto.TaskFacets;
+import hexlet.code.event.TaskChangedEvent;
+import hexlet.code.model.Label;
+import hexlet.code.model.TaskView;
+import hexlet.code.service.TaskViewService;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Compressed bitmaps of task ids for every status, executor, author and label.
+// Any combination of facets is answered with bitmap unions and intersections,
+// so the database is only asked for the rows of the requested page.
+// The bitmaps hold 32-bit ids: once a task id does not fit, the index stops answering and facets go to the database.
+// Neither does it answer until it is loaded
+@Component
+public class TaskFacetIndex {
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final Map<Long, RoaringBitmap> byTaskStatus = new HashMap<>();
+    private final Map<Long, RoaringBitmap> byExecutor = new HashMap<>();
+    private final Map<Long, RoaringBitmap> byAuthor = new HashMap<>();
+    private final Map<Long, RoaringBitmap> byLabel = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TaskIndexLoader loader;
+    private boolean overflowed;
+
+    public TaskFacetIndex(final TaskViewService taskViewService) {
+        this.loader = new TaskIndexLoader(taskViewService, this::update);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        loader.load(this::clear);
+    }
+
+    @TransactionalEventListener
+    public void onTaskChanged(final TaskChangedEvent event) {
+        loader.onTaskChanged(event);
+    }
+
+    // The returned bitmap is a fresh copy the caller is free to modify, or null when the index cannot answer
+    public RoaringBitmap match(final TaskFacets facets) {
+        if (!loader.isLoaded()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            if (overflowed) {
+                return null;
+            }
+            final List<RoaringBitmap> matches = new ArrayList<>();
+            addFacet(matches, byTaskStatus, facets.getTaskStatuses(), true);
+            addFacet(matches, byExecutor, facets.getExecutors(), true);
+            addFacet(matches, byAuthor, facets.getAuthors(), true);
+            addFacet(matches, byLabel, facets.getLabels(), facets.isAny());
+            if (matches.isEmpty()) {
+                return all.clone();
+            }
+            final RoaringBitmap[] bitmaps = matches.toArray(RoaringBitmap[]::new);
+            return facets.isAny() ? FastAggregation.or(bitmaps) : FastAggregation.and(bitmaps);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void clear() {
+        lock.writeLock().lock();
+        try {
+            all.clear();
+            byTaskStatus.clear();
+            byExecutor.clear();
+            byAuthor.clear();
+            byLabel.clear();
+            overflowed = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void update(final TaskView before, final TaskView after) {
+        lock.writeLock().lock();
+        try {
+            if (before != null) {
+                apply(before, false);
+            }
+            if (after != null) {
+                apply(after, true);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(final TaskView task, final boolean present) {
+        if (overflowed || task.getTaskId() > Integer.MAX_VALUE) {
+            overflowed = true;
+            return;
+        }
+        final int id = task.getTaskId().intValue();
+        set(all, id, present);
+        set(byTaskStatus, task.getTaskStatusId(), id, present);
+        set(byExecutor, task.getExecutorId(), id, present);
+        set(byAuthor, task.getAuthorId(), id, present);
+        task.getLabels()
+                .stream()
+                .map(Label::getId)
+                .forEach(labelId -> set(byLabel, labelId, id, present));
+    }
+
+    private static void set(final Map<Long, RoaringBitmap> facet, final Long key, final int id,
+                            final boolean present) {
+        if (key == null) {
+            return;
+        }
+        if (present) {
+            facet.computeIfAbsent(key, value -> new RoaringBitmap()).add(id);
+        } else {
+            final RoaringBitmap bitmap = facet.get(key);
+            if (bitmap != null) {
+                bitmap.remove(id);
+                if (bitmap.isEmpty()) {
+                    facet.remove(key);
+                }
+            }
+        }
+    }
+
+    private static void set(final RoaringBitmap bitmap, final int id, final boolean present) {
+        if (present) {
+            bitmap.add(id);
+        } else {
+            bitmap.remove(id);
+        }
+    }
+
+    // Values of one facet are united or intersected, and a facet without values does not restrict the result
+    private static void addFacet(final List<RoaringBitmap> matches, final Map<Long, RoaringBitmap> facet,
+                                 final Set<Long> keys, final boolean union) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        final RoaringBitmap[] bitmaps = keys.stream()
+                .map(key -> facet.getOrDefault(key, EMPTY))
+                .toArray(RoaringBitmap[]::new);
+        matches.add(union ? FastAggregation.or(bitmaps) : FastAggregation.and(bitmaps));
+    }
+}
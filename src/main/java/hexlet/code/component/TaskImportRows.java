@@ -0,0 +1,110 @@
+package hexlet.code.component;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import hexlet.code.dto.TaskDto;
+import hexlet.code.dto.TaskExportFormat;
+import hexlet.code.dto.TaskImportRow;
+import hexlet.code.model.Label;
+import hexlet.code.model.Status;
+import hexlet.code.model.User;
+import hexlet.code.repository.LabelRepository;
+import hexlet.code.repository.StatusRepository;
+import hexlet.code.repository.UserRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+// Rows of an import file are parsed one at a time, so memory does not depend on the file size.
+// Names are turned into ids by the query-cached repository lookups, and the ids found are also kept for the job,
+// so a name used by millions of rows costs one lookup
+@Component
+@AllArgsConstructor
+public class TaskImportRows {
+
+    // Empty cells are missing values, as absent fields of NDJSON rows
+    private static final CsvMapper CSV_MAPPER = new CsvMapper().enable(CsvParser.Feature.EMPTY_STRING_AS_NULL);
+
+    private final ObjectMapper objectMapper;
+    private final StatusRepository statusRepository;
+    private final LabelRepository labelRepository;
+    private final UserRepository userRepository;
+
+    // Closing the iterator closes the file
+    public MappingIterator<TaskImportRow> open(final TaskExportFormat format, final Path file) throws IOException {
+        return switch (format) {
+            case NDJSON -> objectMapper.readerFor(TaskImportRow.class)
+                    .readValues(Files.newInputStream(file));
+            case CSV -> CSV_MAPPER.readerFor(TaskImportRow.class)
+                    .with(CsvSchema.emptySchema().withHeader())
+                    .readValues(Files.newInputStream(file));
+        };
+    }
+
+    public References references() {
+        return new References();
+    }
+
+    // Ids found for one job. Names not found are looked up again, they may be created while the job runs
+    public final class References {
+
+        private final Map<String, Long> statuses = new HashMap<>();
+        private final Map<String, Long> users = new HashMap<>();
+        private final Map<String, Long> labels = new HashMap<>();
+
+        // Unknown names are added to errors, the rest of the row is still checked by the task service
+        public TaskDto resolve(final TaskImportRow row, final List<String> errors) {
+            final Long statusId = find(statuses, row.getTaskStatus(), statusRepository::findByName, Status::getId);
+            if (row.getTaskStatus() != null && statusId == null) {
+                errors.add("taskStatus: status " + row.getTaskStatus() + " not found");
+            }
+            final Long executorId = find(users, row.getExecutorEmail(),
+                    email -> userRepository.findAllByEmailIgnoringCase(email).stream().findFirst(), User::getId);
+            if (row.getExecutorEmail() != null && executorId == null) {
+                errors.add("executorEmail: user " + row.getExecutorEmail() + " not found");
+            }
+            final Set<Long> labelIds = new LinkedHashSet<>();
+            for (String name : Optional.ofNullable(row.getLabels()).orElse(List.of())) {
+                if (name == null || name.isBlank()) {
+                    continue;
+                }
+                final Long labelId = find(labels, name, labelRepository::findByName, Label::getId);
+                if (labelId == null) {
+                    errors.add("labels: label " + name + " not found");
+                } else {
+                    labelIds.add(labelId);
+                }
+            }
+            return new TaskDto(row.getName(), row.getDescription(), statusId, executorId, labelIds);
+        }
+
+        private <T> Long find(final Map<String, Long> found, final String name,
+                              final Function<String, Optional<T>> lookup, final Function<T, Long> id) {
+            if (name == null) {
+                return null;
+            }
+            final Long cached = found.get(name);
+            if (cached != null) {
+                return cached;
+            }
+            final Long result = lookup.apply(name).map(id).orElse(null);
+            if (result != null) {
+                found.put(name, result);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package hexlet.code.component;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import hexlet.code.dto.TaskBatchResult;
+import hexlet.code.dto.TaskDto;
+import hexlet.code.dto.TaskImportRow;
+import hexlet.code.model.TaskImportJob;
+import hexlet.code.repository.TaskImportJobRepository;
+import hexlet.code.service.TaskService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static hexlet.code.model.TaskImportJob.ERRORS_MAX_LENGTH;
+import static hexlet.code.model.TaskImportJob.State.COMPLETED;
+import static hexlet.code.model.TaskImportJob.State.FAILED;
+import static hexlet.code.model.TaskImportJob.State.QUEUED;
+import static hexlet.code.model.TaskImportJob.State.RUNNING;
+
+// Runs import jobs in the background. The job thread parses rows and resolves their names while a single writer
+// thread per job creates the previous chunks, each in one transaction with the job progress.
+// At most `window` chunks wait for the writer, so a fast reader cannot hold the whole file in memory.
+// Chunks are written in file order, and a restarted job skips the rows of the committed chunks.
+// A job runs on the one instance that claimed it: the claim is a conditional update of the job row, and its lease
+// is renewed with every chunk. Jobs of a stopped instance stay RUNNING and are claimed by any instance, this one
+// after a restart included, once their lease has expired, so the spool directory has to be shared by all instances.
+// Every claim stamps the row with a new token, and a run stops at the first chunk whose token no longer matches,
+// so a run that outlived its lease never writes next to the one that took the job over
+@Component
+public class TaskImportRunner {
+
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    private static final List<TaskImportJob.State> CLAIMABLE = List.of(QUEUED, RUNNING);
+
+    private final String owner = UUID.randomUUID().toString();
+    private final TaskImportJobRepository taskImportJobRepository;
+    private final TaskImportRows taskImportRows;
+    private final TaskService taskService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int window;
+    private final ExecutorService jobs;
+    // Jobs submitted here and not yet ended, so a run that is still going is not queued again
+    private final Set<Long> submitted = ConcurrentHashMap.newKeySet();
+
+    public TaskImportRunner(final TaskImportJobRepository taskImportJobRepository,
+                            final TaskImportRows taskImportRows,
+                            final TaskService taskService,
+                            final PlatformTransactionManager transactionManager,
+                            @Value("${task-import.chunk-size:500}") final int chunkSize,
+                            @Value("${task-import.window:4}") final int window,
+                            @Value("${task-import.threads:2}") final int threads) {
+        this.taskImportJobRepository = taskImportJobRepository;
+        this.taskImportRows = taskImportRows;
+        this.taskService = taskService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.window = window;
+        this.jobs = Executors.newFixedThreadPool(threads);
+    }
+
+    // Only looks for candidates: a job still running here is skipped by submit, one that another instance
+    // claims first is skipped by run
+    @Scheduled(fixedDelayString = "${task-import.claim-interval:PT1M}")
+    public void resume() {
+        taskImportJobRepository.findUnclaimed(CLAIMABLE, new Date()).forEach(this::submit);
+    }
+
+    @PreDestroy
+    public void stop() {
+        jobs.shutdownNow();
+    }
+
+    public void submit(final long jobId) {
+        if (!submitted.add(jobId)) {
+            return;
+        }
+        try {
+            jobs.execute(() -> {
+                try {
+                    run(jobId);
+                } finally {
+                    submitted.remove(jobId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutdown
+            submitted.remove(jobId);
+        }
+    }
+
+    private void run(final long jobId) {
+        final TaskImportJob job = transactionTemplate.execute(status -> claim(jobId));
+        if (job == null) {
+            return;
+        }
+        final ExecutorService writer = Executors.newSingleThreadExecutor();
+        final Semaphore pending = new Semaphore(window);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        try {
+            try (MappingIterator<TaskImportRow> rows = taskImportRows.open(job.getFormat(), Path.of(job.getFile()))) {
+                final TaskImportRows.References references = taskImportRows.references();
+                long row = 0;
+                while (row < job.getRowsRead() && rows.hasNext()) {
+                    rows.next();
+                    row++;
+                }
+                Chunk chunk = new Chunk(row);
+                while (failure.get() == null && rows.hasNext()) {
+                    chunk.add(rows.next(), references);
+                    if (chunk.size == chunkSize) {
+                        write(writer, pending, failure, job, chunk);
+                        chunk = new Chunk(chunk.end());
+                    }
+                }
+                if (failure.get() == null && chunk.size > 0) {
+                    write(writer, pending, failure, job, chunk);
+                }
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+            writer.shutdown();
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            // Shutdown: the job stays RUNNING and continues after the last committed chunk once its lease expires
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        finish(job, failure.get());
+    }
+
+    private TaskImportJob claim(final long jobId) {
+        final Date now = new Date();
+        final String claimToken = UUID.randomUUID().toString();
+        if (taskImportJobRepository.claim(jobId, CLAIMABLE, RUNNING, owner, claimToken, leaseUntil(now), now) == 0) {
+            return null;
+        }
+        return taskImportJobRepository.findById(jobId).orElse(null);
+    }
+
+    // The row lock makes a concurrent claim wait for this transaction and then see the renewed lease.
+    // The job is only owned by the run that still holds the token of the last claim
+    private TaskImportJob lockOwned(final TaskImportJob claimed) {
+        final TaskImportJob job = taskImportJobRepository.findForUpdate(claimed.getId()).orElse(null);
+        if (job == null || !owner.equals(job.getOwner()) || !claimed.getClaimToken().equals(job.getClaimToken())) {
+            return null;
+        }
+        job.setLeaseUntil(leaseUntil(new Date()));
+        return job;
+    }
+
+    private void write(final ExecutorService writer, final Semaphore pending, final AtomicReference<Exception> failure,
+                       final TaskImportJob job, final Chunk chunk) throws InterruptedException {
+        pending.acquire();
+        writer.execute(() -> {
+            try {
+                if (failure.get() == null) {
+                    transactionTemplate.executeWithoutResult(status -> commit(job, chunk));
+                }
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                pending.release();
+            }
+        });
+    }
+
+    // A failure stops the run, and finish leaves a job claimed again to its new run
+    private void commit(final TaskImportJob claimed, final Chunk chunk) {
+        final TaskImportJob job = lockOwned(claimed);
+        if (job == null) {
+            throw new IllegalStateException("Import job " + claimed.getId() + " has been claimed by another run");
+        }
+        final List<TaskBatchResult> results = chunk.dtos.isEmpty()
+                ? List.of()
+                : taskService.importTasks(claimed.getAuthorId(), chunk.dtos);
+        final Map<Long, String> errors = new TreeMap<>(chunk.errors);
+        for (TaskBatchResult result : results) {
+            if (result.getStatus() != HttpStatus.CREATED.value()) {
+                errors.put(chunk.rowNumbers.get(result.getIndex()), String.join(", ", result.getErrors()));
+            }
+        }
+        job.setRowsRead(chunk.end());
+        job.setImported(job.getImported() + chunk.size - errors.size());
+        job.setFailed(job.getFailed() + errors.size());
+        errors.forEach((row, error) -> addError(job, "row " + row + ": " + error));
+    }
+
+    // The file is kept until the job has finished, it is not needed afterwards even by a failed job.
+    // A job claimed again in the meantime is left to its new run
+    private void finish(final TaskImportJob job, final Exception failure) {
+        final Boolean finished = transactionTemplate.execute(status -> {
+            final TaskImportJob current = lockOwned(job);
+            if (current == null) {
+                return false;
+            }
+            current.setState(failure == null ? COMPLETED : FAILED);
+            current.setOwner(null);
+            current.setClaimToken(null);
+            current.setLeaseUntil(null);
+            if (failure != null) {
+                addError(current, "row " + (current.getRowsRead() + 1) + " and after: " + failure.getMessage());
+            }
+            return true;
+        });
+        if (!Boolean.TRUE.equals(finished)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Path.of(job.getFile()));
+        } catch (IOException ignored) {
+            // The file is in the spool directory and does not affect other jobs
+        }
+    }
+
+    private static Date leaseUntil(final Date now) {
+        return new Date(now.getTime() + LEASE.toMillis());
+    }
+
+    private static void addError(final TaskImportJob job, final String error) {
+        final String errors = job.getErrors() == null ? error : job.getErrors() + "\n" + error;
+        if (errors.length() <= ERRORS_MAX_LENGTH) {
+            job.setErrors(errors);
+        }
+    }
+
+    // Rows after `first` rows of the file. Rows with unknown names are rejected here, the others by the task service
+    private static final class Chunk {
+
+        private final long first;
+        private final List<TaskDto> dtos = new ArrayList<>();
+        // Row numbers of dtos, counted from 1 without the CSV header
+        private final List<Long> rowNumbers = new ArrayList<>();
+        private final Map<Long, String> errors = new TreeMap<>();
+        private int size;
+
+        Chunk(final long first) {
+            this.first = first;
+        }
+
+        void add(final TaskImportRow row, final TaskImportRows.References references) {
+            final long number = first + ++size;
+            final List<String> rowErrors = new ArrayList<>();
+            final TaskDto dto = references.resolve(row, rowErrors);
+            if (rowErrors.isEmpty()) {
+                dtos.add(dto);
+                rowNumbers.add(number);
+            } else {
+                errors.put(number, String.join(", ", rowErrors));
+            }
+        }
+
+        long end() {
+            return first + size;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package hexlet.code.component;
+
+import hexlet.code.event.TaskChangedEvent;
+import hexlet.code.model.TaskView;
+import hexlet.code.service.TaskViewService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+// Loads an in-memory task index from task_view and keeps it in step with committed changes.
+// The scan may read a row before or after a change committed while it runs, so such changes are held
+// and applied once it ends, in the order they were delivered. Until then the index is incomplete,
+// and its owner answers from the database instead
+public final class TaskIndexLoader {
+
+    private final TaskViewService taskViewService;
+    // Applies a change to the index: a null before adds the task, a null after removes it
+    private final BiConsumer<TaskView, TaskView> update;
+    private volatile boolean loaded;
+    // Changes delivered while a scan runs, guarded by this
+    private List<TaskChangedEvent> pending;
+
+    public TaskIndexLoader(final TaskViewService taskViewService, final BiConsumer<TaskView, TaskView> update) {
+        this.taskViewService = taskViewService;
+        this.update = update;
+    }
+
+    // Clears the index, scans task_view into it and then applies the changes delivered during the scan.
+    // A failed scan leaves the index unloaded until the next load
+    public void load(final Runnable clear) {
+        synchronized (this) {
+            loaded = false;
+            pending = new ArrayList<>();
+        }
+        try {
+            clear.run();
+            taskViewService.forEach(task -> update.accept(null, task));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            pending.forEach(this::apply);
+            pending = null;
+            loaded = true;
+        }
+    }
+
+    public void onTaskChanged(final TaskChangedEvent event) {
+        synchronized (this) {
+            if (pending != null) {
+                pending.add(event);
+                return;
+            }
+        }
+        apply(event);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private void apply(final TaskChangedEvent event) {
+        update.accept(event.getBefore(), event.getAfter());
+    }
+}
@@ -0,0 +1,126 @@
+package hexlet.code.component;
+
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import hexlet.code.dto.TaskFacets;
+import hexlet.code.exception.BadRequestException;
+import hexlet.code.model.Label;
+import hexlet.code.model.TaskView;
+import org.springframework.beans.BeanWrapperImpl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// The task list filter evaluated against a task_view row in memory, with the semantics of getAllTasks:
+// facet parameters when the request has only those, the QueryDSL predicate of the bindings otherwise.
+// Only the operators the bindings produce are supported, anything else is rejected when the matcher is built
+public final class TaskMatcher {
+
+    private static final Set<Ops> SUPPORTED = Set.of(Ops.AND, Ops.OR, Ops.NOT, Ops.EQ, Ops.NE, Ops.IN, Ops.NOT_IN,
+            Ops.IS_NULL, Ops.IS_NOT_NULL, Ops.STRING_CONTAINS);
+
+    private final Predicate predicate;
+    private final TaskFacets facets;
+
+    private TaskMatcher(final Predicate predicate, final TaskFacets facets) {
+        this.predicate = predicate;
+        this.facets = facets;
+    }
+
+    public static TaskMatcher of(final Predicate predicate, final TaskFacets facets) {
+        if (facets == null && predicate != null) {
+            check(predicate);
+        }
+        return new TaskMatcher(predicate, facets);
+    }
+
+    public boolean matches(final TaskView task) {
+        if (facets != null) {
+            return matchesFacets(task);
+        }
+        return predicate == null || Boolean.TRUE.equals(evaluate(predicate, task));
+    }
+
+    private boolean matchesFacets(final TaskView task) {
+        final List<Boolean> conditions = new ArrayList<>();
+        if (!facets.getTaskStatuses().isEmpty()) {
+            conditions.add(facets.getTaskStatuses().contains(task.getTaskStatusId()));
+        }
+        if (!facets.getExecutors().isEmpty()) {
+            conditions.add(facets.getExecutors().contains(task.getExecutorId()));
+        }
+        if (!facets.getAuthors().isEmpty()) {
+            conditions.add(facets.getAuthors().contains(task.getAuthorId()));
+        }
+        if (!facets.getLabels().isEmpty()) {
+            final Set<Long> labelIds = task.getLabels() == null ? Set.of() : task.getLabels()
+                    .stream()
+                    .map(Label::getId)
+                    .collect(Collectors.toSet());
+            conditions.add(facets.isAny()
+                    ? facets.getLabels().stream().anyMatch(labelIds::contains)
+                    : labelIds.containsAll(facets.getLabels()));
+        }
+        if (conditions.isEmpty()) {
+            return true;
+        }
+        return facets.isAny() ? conditions.contains(true) : !conditions.contains(false);
+    }
+
+    private static void check(final Expression<?> expression) {
+        if (expression instanceof BooleanBuilder builder) {
+            if (builder.getValue() != null) {
+                check(builder.getValue());
+            }
+        } else if (expression instanceof Operation<?> operation) {
+            if (!(operation.getOperator() instanceof Ops ops) || !SUPPORTED.contains(ops)) {
+                throw new BadRequestException("Unsupported filter for the stream: " + operation);
+            }
+            operation.getArgs().forEach(TaskMatcher::check);
+        } else if (!(expression instanceof Path<?>) && !(expression instanceof Constant<?>)) {
+            throw new BadRequestException("Unsupported filter for the stream: " + expression);
+        }
+    }
+
+    private static Object evaluate(final Expression<?> expression, final TaskView task) {
+        if (expression instanceof BooleanBuilder builder) {
+            return builder.getValue() == null || Boolean.TRUE.equals(evaluate(builder.getValue(), task));
+        }
+        if (expression instanceof Constant<?> constant) {
+            return constant.getConstant();
+        }
+        if (expression instanceof Path<?> path) {
+            return path.getMetadata().getParent() == null
+                    ? task
+                    : new BeanWrapperImpl(task).getPropertyValue(path.getMetadata().getName());
+        }
+        final Operation<?> operation = (Operation<?>) expression;
+        final List<Expression<?>> args = operation.getArgs();
+        final Ops operator = (Ops) operation.getOperator();
+        return switch (operator) {
+            case AND -> args.stream().allMatch(arg -> Boolean.TRUE.equals(evaluate(arg, task)));
+            case OR -> args.stream().anyMatch(arg -> Boolean.TRUE.equals(evaluate(arg, task)));
+            case NOT -> !Boolean.TRUE.equals(evaluate(args.get(0), task));
+            case EQ -> Objects.equals(evaluate(args.get(0), task), evaluate(args.get(1), task));
+            case NE -> !Objects.equals(evaluate(args.get(0), task), evaluate(args.get(1), task));
+            case IN -> ((Collection<?>) evaluate(args.get(1), task)).contains(evaluate(args.get(0), task));
+            case NOT_IN -> !((Collection<?>) evaluate(args.get(1), task)).contains(evaluate(args.get(0), task));
+            case IS_NULL -> evaluate(args.get(0), task) == null;
+            case IS_NOT_NULL -> evaluate(args.get(0), task) != null;
+            case STRING_CONTAINS -> {
+                final Object value = evaluate(args.get(0), task);
+                yield value != null && value.toString().contains(String.valueOf(evaluate(args.get(1), task)));
+            }
+            default -> throw new IllegalArgumentException("Unsupported filter for the stream: " + operation);
+        };
+    }
+}
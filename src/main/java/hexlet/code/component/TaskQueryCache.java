@@ -0,0 +1,243 @@
+package hexlet.code.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import hexlet.code.event.TaskChangedEvent;
+import hexlet.code.model.TaskView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+import static hexlet.code.component.TableVersions.STATUSES;
+import static hexlet.code.component.TableVersions.TASKS;
+import static hexlet.code.component.TableVersions.USERS;
+
+// Ids of the tasks matching a list filter, in the order of the requested sort.
+// Entries are keyed by the filter with its AND and OR operands and IN lists sorted, so the same filter
+// sent with its parameters in another order shares the entry. Eviction is size-bounded (W-TinyLFU).
+// An entry is only used while the shared tasks version is the one it was read at, so a change committed
+// by another instance drops every entry. A change committed here only evicts the entries whose result
+// it can change, and moves the others to the version it committed
+@Component
+public class TaskQueryCache {
+
+    // A filter on anything but plain paths is evicted by every task change
+    private static final String ANY_FIELD = "*";
+    // Names copied from statuses and users change without a task change
+    private static final Set<String> COPIED_NAMES = Set.of("taskStatusName", "authorFirstName", "authorLastName",
+            "executorFirstName", "executorLastName");
+    private static final List<String> VERSIONED_TABLES = List.of(TASKS, STATUSES, USERS);
+
+    private final Cache<String, Entry> entries;
+    private final TableVersions tableVersions;
+    private final int maxIds;
+
+    public TaskQueryCache(final TableVersions tableVersions,
+                          final MeterRegistry meterRegistry,
+                          @Value("${task-query-cache.max-weight:1000000}") final long maxWeight,
+                          @Value("${task-query-cache.max-ids:10000}") final int maxIds) {
+        this.tableVersions = tableVersions;
+        this.maxIds = maxIds;
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String key, Entry entry) -> entry.ids == null ? 1 : entry.ids.length + 1)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "task-queries");
+    }
+
+    // Returns the ids of the matching tasks, calling the loader with the maximum number of ids to read
+    // on a miss. Null is returned for an empty filter, which is never cached, and for results with more
+    // than max-ids tasks, which are remembered so the ids are not read again for them
+    public long[] getIds(final Predicate filter, final Path<?> sortKey, final boolean descending,
+                         final LongFunction<List<Long>> loader) {
+        final Query query = Query.of(filter, sortKey, descending);
+        if (query == null) {
+            return null;
+        }
+        // Read before the database, so a result is never stored with a version newer than its data
+        final Map<String, Long> versions = tableVersions.get(VERSIONED_TABLES);
+        final long tasksVersion = versions.getOrDefault(TASKS, 0L);
+        final long namesVersion = namesVersion(query.fields, versions);
+        final Entry cached = entries.getIfPresent(query.key);
+        if (cached != null && cached.tasksVersion == tasksVersion && cached.namesVersion == namesVersion) {
+            return cached.ids;
+        }
+        final List<Long> ids = loader.apply(maxIds + 1);
+        final Entry entry = new Entry(ids.size() > maxIds
+                ? null
+                : ids.stream().mapToLong(Long::longValue).toArray(), query.fields, tasksVersion, namesVersion);
+        entries.put(query.key, entry);
+        return entry.ids;
+    }
+
+    // The version a transaction commits is read back after commit, so every transaction
+    // that publishes a task change bumps it, even one that leaves the tasks rows as they were
+    @EventListener
+    public void onTaskChanging(final TaskChangedEvent event) {
+        tableVersions.changed(TASKS);
+    }
+
+    // Versions only grow by one per transaction, so an entry read at the version just before the committed one
+    // has missed no other change, and is still valid unless this one affects it
+    @TransactionalEventListener
+    public void onTaskChanged(final TaskChangedEvent event) {
+        final Long committed = tableVersions.committed(TASKS);
+        final Iterator<Entry> iterator = entries.asMap().values().iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry.isAffectedBy(event.getBefore(), event.getAfter())) {
+                iterator.remove();
+            } else if (committed != null && entry.tasksVersion == committed - 1) {
+                entry.tasksVersion = committed;
+            }
+        }
+    }
+
+    public void clear() {
+        entries.invalidateAll();
+    }
+
+    private static long namesVersion(final Set<String> fields, final Map<String, Long> versions) {
+        return fields.contains(ANY_FIELD) || fields.stream().anyMatch(COPIED_NAMES::contains)
+                ? versions.getOrDefault(STATUSES, 0L) + versions.getOrDefault(USERS, 0L)
+                : 0;
+    }
+
+    private static final class Query {
+
+        private final String key;
+        private final Set<String> fields;
+
+        private Query(final String key, final Set<String> fields) {
+            this.key = key;
+            this.fields = fields;
+        }
+
+        static Query of(final Predicate filter, final Path<?> sortKey, final boolean descending) {
+            final Set<String> fields = new HashSet<>();
+            final String normalized = filter == null ? "" : normalize(filter, fields);
+            if (normalized.isEmpty()) {
+                return null;
+            }
+            final String sortBy = sortKey.getMetadata().getName();
+            fields.add(sortBy);
+            return new Query(normalized + "|" + sortBy + (descending ? ",desc" : ",asc"), Set.copyOf(fields));
+        }
+
+        private static String normalize(final Expression<?> expression, final Set<String> fields) {
+            if (expression instanceof BooleanBuilder builder) {
+                return builder.getValue() == null ? "" : normalize(builder.getValue(), fields);
+            }
+            if (expression instanceof Operation<?> operation) {
+                final Operator operator = operation.getOperator();
+                if (operator == Ops.AND || operator == Ops.OR) {
+                    final List<Expression<?>> operands = new ArrayList<>();
+                    flatten(operation, operator, operands);
+                    return operands.stream()
+                            .map(operand -> normalize(operand, fields))
+                            .distinct()
+                            .sorted()
+                            .collect(Collectors.joining(" " + operator + " ", "(", ")"));
+                }
+                return operation.getArgs()
+                        .stream()
+                        .map(arg -> normalize(arg, fields))
+                        .collect(Collectors.joining(", ", operator + "(", ")"));
+            }
+            if (expression instanceof Path<?> path) {
+                if (path.getMetadata().getParent() != null) {
+                    fields.add(path.getMetadata().getName());
+                }
+                return path.toString();
+            }
+            if (expression instanceof Constant<?> constant) {
+                return constant.getConstant() instanceof Collection<?> values
+                        ? values.stream().map(String::valueOf).sorted().collect(Collectors.joining(",", "[", "]"))
+                        : String.valueOf(constant.getConstant());
+            }
+            fields.add(ANY_FIELD);
+            return String.valueOf(expression);
+        }
+
+        private static void flatten(final Operation<?> operation, final Operator operator,
+                                    final List<Expression<?>> operands) {
+            for (Expression<?> arg : operation.getArgs()) {
+                if (arg instanceof Operation<?> nested && nested.getOperator() == operator) {
+                    flatten(nested, operator, operands);
+                } else {
+                    operands.add(arg);
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final long[] ids;
+        private final RoaringBitmap members = new RoaringBitmap();
+        private final Set<String> fields;
+        private final long namesVersion;
+        private volatile long tasksVersion;
+
+        Entry(final long[] ids, final Set<String> fields, final long tasksVersion, final long namesVersion) {
+            this.ids = ids;
+            this.fields = fields;
+            this.tasksVersion = tasksVersion;
+            this.namesVersion = namesVersion;
+            if (ids != null) {
+                for (long id : ids) {
+                    if (id <= Integer.MAX_VALUE) {
+                        members.add((int) id);
+                    }
+                }
+            }
+        }
+
+        // A new task may match any filter. A deleted task only matters if it was in the result,
+        // and an updated one only if a field the filter or the sort reads has changed
+        boolean isAffectedBy(final TaskView before, final TaskView after) {
+            if (before == null) {
+                return true;
+            }
+            if (after == null) {
+                // Ids beyond the bitmap range are not tracked, such a deletion drops the entry
+                return before.getTaskId() > Integer.MAX_VALUE || members.contains(before.getTaskId().intValue());
+            }
+            if (fields.contains(ANY_FIELD)) {
+                return true;
+            }
+            final BeanWrapper beforeFields = new BeanWrapperImpl(before);
+            final BeanWrapper afterFields = new BeanWrapperImpl(after);
+            return fields.stream()
+                    .anyMatch(field -> !beforeFields.isReadableProperty(field)
+                            || !Objects.equals(beforeFields.getPropertyValue(field),
+                                    afterFields.getPropertyValue(field)));
+        }
+    }
+}
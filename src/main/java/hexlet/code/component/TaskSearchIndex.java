@@ -0,0 +1,211 @@
+package hexlet.code.component;
+
+import hexlet.code.event.TaskChangedEvent;
+import hexlet.code.model.TaskView;
+import hexlet.code.service.TaskViewService;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// In-process inverted index over task names and descriptions.
+// Every term maps to the tasks containing it with their term frequencies,
+// and matches of all query terms are ranked with BM25. Until the index is loaded it does not answer
+// and the search goes to the database
+@Component
+public class TaskSearchIndex {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // Name terms are indexed several times, so a match in the name outweighs one in the description
+    private static final int NAME_BOOST = 3;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TaskIndexLoader loader;
+    private long totalLength;
+
+    public TaskSearchIndex(final TaskViewService taskViewService) {
+        this.loader = new TaskIndexLoader(taskViewService, this::update);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        loader.load(this::clear);
+    }
+
+    @TransactionalEventListener
+    public void onTaskChanged(final TaskChangedEvent event) {
+        loader.onTaskChanged(event);
+    }
+
+    public void index(final long taskId, final String name, final String description) {
+        final Map<String, Integer> frequencies = new HashMap<>();
+        for (int i = 0; i < NAME_BOOST; i++) {
+            tokenize(name).forEach(term -> frequencies.merge(term, 1, Integer::sum));
+        }
+        tokenize(description).forEach(term -> frequencies.merge(term, 1, Integer::sum));
+
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(taskId);
+            documents.put(taskId, frequencies);
+            frequencies.forEach((term, frequency) -> {
+                postings.computeIfAbsent(term, key -> new HashMap<>()).put(taskId, frequency);
+                totalLength += frequency;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(final long taskId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(taskId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns null while the index is not loaded
+    public Hits search(final String query, final int offset, final int limit) {
+        if (!loader.isLoaded()) {
+            return null;
+        }
+        final List<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            return new Hits(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            final List<Map<Long, Integer>> matches = new ArrayList<>();
+            for (String term : terms) {
+                final Map<Long, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    return new Hits(List.of(), 0);
+                }
+                matches.add(posting);
+            }
+            // Tasks must contain every term, so candidates come from the rarest one
+            matches.sort(Comparator.comparingInt(Map::size));
+
+            final double averageLength = (double) totalLength / documents.size();
+            final PriorityQueue<Scored> top = new PriorityQueue<>(Comparator.comparingDouble(Scored::score));
+            int total = 0;
+            for (Long taskId : matches.get(0).keySet()) {
+                double score = 0;
+                for (Map<Long, Integer> posting : matches) {
+                    final Integer frequency = posting.get(taskId);
+                    if (frequency == null) {
+                        score = -1;
+                        break;
+                    }
+                    score += bm25(frequency, posting.size(), documentLength(taskId), averageLength);
+                }
+                if (score < 0) {
+                    continue;
+                }
+                total++;
+                top.add(new Scored(taskId, score));
+                if (top.size() > offset + limit) {
+                    top.poll();
+                }
+            }
+
+            final List<Scored> ranked = new ArrayList<>(top);
+            ranked.sort(Comparator.comparingDouble(Scored::score).reversed().thenComparing(Scored::taskId));
+            return new Hits(ranked.stream()
+                    .skip(offset)
+                    .map(Scored::taskId)
+                    .toList(), total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The distinct terms of a query, as the index splits names and descriptions
+    public static List<String> terms(final String query) {
+        return tokenize(query).stream().distinct().toList();
+    }
+
+    private void update(final TaskView before, final TaskView after) {
+        if (after == null) {
+            remove(before.getTaskId());
+        } else {
+            index(after.getTaskId(), after.getName(), after.getDescription());
+        }
+    }
+
+    private void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private double bm25(final int frequency, final int documentFrequency, final int length, final double average) {
+        final double idf = Math.log(1 + (documents.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / average));
+    }
+
+    private int documentLength(final long taskId) {
+        return documents.get(taskId).values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private void removeUnlocked(final long taskId) {
+        final Map<String, Integer> frequencies = documents.remove(taskId);
+        if (frequencies == null) {
+            return;
+        }
+        frequencies.forEach((term, frequency) -> {
+            final Map<Long, Integer> posting = postings.get(term);
+            posting.remove(taskId);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+            totalLength -= frequency;
+        });
+    }
+
+    private static List<String> tokenize(final String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(SEPARATORS.split(text.toLowerCase(Locale.ROOT)))
+                .filter(term -> !term.isEmpty())
+                .toList();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static final class Hits {
+
+        private final List<Long> taskIds;
+
+        private final long total;
+    }
+
+    private record Scored(long taskId, double score) { }
+}
@@ -0,0 +1,72 @@
+package hexlet.code.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import hexlet.code.model.Label;
+import hexlet.code.model.Status;
+import hexlet.code.model.TaskView;
+import hexlet.code.model.User;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+// Second-level cache for the rarely changing statuses, labels and users, the task read model rows,
+// and the query cache for the cacheable lookups by name and email, which is invalidated by any change of their table.
+// Every region is created here with a bounded size and a TTL,
+// and Hibernate refuses to start if an entity asks for a region that is not configured.
+// Hit and miss counts are published through the Hibernate statistics metrics when hibernate.generate_statistics is on
+@Configuration
+public class HibernateCacheConfig {
+
+    public static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    public static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+    public static final List<String> ENTITY_REGIONS = List.of(
+            Status.class.getName(),
+            Label.class.getName(),
+            User.class.getName(),
+            TaskView.class.getName()
+    );
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${hibernate-cache.max-size:10000}") final long maxSize,
+                                              @Value("${hibernate-cache.ttl:PT10M}") final Duration ttl) {
+        final CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+        ENTITY_REGIONS.forEach(region -> cacheManager.createCache(region, bounded(maxSize, ttl)));
+        cacheManager.createCache(QUERY_RESULTS_REGION, bounded(maxSize, ttl));
+        // Update timestamps invalidate cached queries, so they must outlive every query result
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(final CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY,
+                    MissingCacheStrategy.FAIL.getExternalRepresentation());
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> bounded(final long maxSize, final Duration ttl) {
+        final CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        return configuration;
+    }
+}
@@ -0,0 +1,92 @@
+package hexlet.code.config;
+
+import hexlet.code.component.PersistenceMetrics;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Wraps connections, statements and result sets to count executed statements, their time and the fetched rows
+// for the request running on the current thread. Outside a request the calls go straight to the driver
+public class MeteredDataSource extends DelegatingDataSource {
+
+    public MeteredDataSource(final DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        return proxy(Connection.class, super.getConnection(username, password));
+    }
+
+    private static <T> T proxy(final Class<T> type, final T target) {
+        return type.cast(Proxy.newProxyInstance(MeteredDataSource.class.getClassLoader(), new Class<?>[] {type},
+                new Metered(target)));
+    }
+
+    private static final class Metered implements InvocationHandler {
+
+        private final Object target;
+
+        Metered(final Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if ("equals".equals(method.getName()) && args != null && args.length == 1) {
+                return proxy == args[0];
+            }
+            final PersistenceMetrics.Usage usage = PersistenceMetrics.current();
+            final boolean execute = usage != null && target instanceof Statement
+                    && method.getName().startsWith("execute");
+            final long start = execute ? System.nanoTime() : 0;
+            final Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (execute) {
+                    usage.statement(System.nanoTime() - start);
+                }
+            }
+            if (usage != null && target instanceof ResultSet && "next".equals(method.getName())
+                    && Boolean.TRUE.equals(result)) {
+                usage.row();
+            }
+            return wrap(result);
+        }
+
+        // Statements are wrapped as the most specific interface the driver object implements
+        private static Object wrap(final Object result) {
+            if (result instanceof CallableStatement statement) {
+                return proxy(CallableStatement.class, statement);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return proxy(PreparedStatement.class, statement);
+            }
+            if (result instanceof Statement statement) {
+                return proxy(Statement.class, statement);
+            }
+            if (result instanceof ResultSet resultSet) {
+                return proxy(ResultSet.class, resultSet);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package hexlet.code.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// Every statement goes through the metered data source, so the work of a request can be attributed to it.
+// Opt-in: the wrapper adds work to every statement
+@Configuration
+@ConditionalOnProperty(name = "persistence-metrics.enabled", matchIfMissing = false)
+public class PersistenceMetricsConfig {
+
+    // Static, so the data source is wrapped before any other bean post processor asks for it
+    @Bean
+    public static BeanPostProcessor meteredDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof MeteredDataSource)
+                        ? new MeteredDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+}
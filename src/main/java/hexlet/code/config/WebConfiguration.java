@@ -1,22 +1,100 @@
 package hexlet.code.config;
 
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import hexlet.code.component.TableVersions;
+import hexlet.code.component.TaskCounters;
+import hexlet.code.filter.ConditionalGetInterceptor;
+import hexlet.code.filter.PersistenceMetricsInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.resource.PathResourceResolver;
 
 import java.io.IOException;
+import java.util.List;
+
+import static hexlet.code.component.TableVersions.LABELS;
+import static hexlet.code.component.TableVersions.STATUSES;
+import static hexlet.code.component.TableVersions.TASKS;
+import static hexlet.code.component.TableVersions.USERS;
+import static hexlet.code.controller.LabelController.LABEL_CONTROLLER_PATH;
+import static hexlet.code.controller.StatusController.STATUS_CONTROLLER_PATH;
+import static hexlet.code.controller.TaskController.CHANGES;
+import static hexlet.code.controller.TaskController.STATS;
+import static hexlet.code.controller.TaskController.STREAM;
+import static hexlet.code.controller.TaskController.TASK_CONTROLLER_PATH;
+import static hexlet.code.controller.UserController.USER_CONTROLLER_PATH;
 
 @Configuration
 public class WebConfiguration implements WebMvcConfigurer {
 
+    // Clients may send and accept application/cbor or application/x-jackson-smile instead of JSON
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    private static final String ENTITY_ID = "/{id:[0-9]+}";
 
     private final String baseApiPath;
+    private final TableVersions tableVersions;
+    private final TaskCounters taskCounters;
+    private final ObjectProvider<PersistenceMetricsInterceptor> persistenceMetricsInterceptor;
 
-    public WebConfiguration(@Value("${base-url}") String baseApiPath) {
+    public WebConfiguration(@Value("${base-url}") String baseApiPath, TableVersions tableVersions,
+                            TaskCounters taskCounters,
+                            ObjectProvider<PersistenceMetricsInterceptor> persistenceMetricsInterceptor) {
         this.baseApiPath = baseApiPath;
+        this.tableVersions = tableVersions;
+        this.taskCounters = taskCounters;
+        this.persistenceMetricsInterceptor = persistenceMetricsInterceptor;
+    }
+
+    // The converters MVC adds by itself build their mappers from a fresh builder, so they would ignore
+    // the spring.jackson properties and modules. These beans replace them and share the JSON converter's setup
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(final Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+            final Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    // Metrics come first, so requests answered with 304 are measured too.
+    // Task responses embed statuses, users and labels, so they depend on all four tables.
+    // A single resource is tagged by the controller instead, so If-Match can carry its row version.
+    // The change stream and the delta sync are not tagged: they depend on changes still in flight,
+    // not only on committed table versions. The stats come from the in-memory counters and follow their version
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        persistenceMetricsInterceptor.ifAvailable(interceptor -> registry.addInterceptor(interceptor)
+                .addPathPatterns(baseApiPath + "/**"));
+        addConditionalGet(registry, TASK_CONTROLLER_PATH, List.of(TASKS, USERS, LABELS, STATUSES))
+                .excludePathPatterns(baseApiPath + TASK_CONTROLLER_PATH + STREAM,
+                        baseApiPath + TASK_CONTROLLER_PATH + CHANGES,
+                        baseApiPath + TASK_CONTROLLER_PATH + STATS);
+        registry.addInterceptor(new ConditionalGetInterceptor(taskCounters::etag))
+                .addPathPatterns(baseApiPath + TASK_CONTROLLER_PATH + STATS);
+        addConditionalGet(registry, USER_CONTROLLER_PATH, List.of(USERS));
+        addConditionalGet(registry, LABEL_CONTROLLER_PATH, List.of(LABELS));
+        addConditionalGet(registry, STATUS_CONTROLLER_PATH, List.of(STATUSES));
+    }
+
+    private InterceptorRegistration addConditionalGet(final InterceptorRegistry registry, final String path,
+                                                      final List<String> tables) {
+        return registry.addInterceptor(new ConditionalGetInterceptor(tableVersions, tables))
+                .addPathPatterns(baseApiPath + path, baseApiPath + path + "/*")
+                .excludePathPatterns(baseApiPath + path + ENTITY_ID);
     }
 
     @Override
@@ -0,0 +1,57 @@
+package hexlet.code.controller;
+
+import hexlet.code.component.TableVersions;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+// The ETag of a single task, user, label or status starts with its version. A task also embeds the names of its
+// status, executor, author and labels, so its tag adds the versions of their tables and a rename changes it.
+// If-Match sends the tag back and only its version is compared. A tag without one never matches,
+// so the write is rejected with 412
+final class EntityTags {
+
+    private static final long NO_VERSION = -1;
+
+    private EntityTags() {
+    }
+
+    static String of(final Long version) {
+        return "\"" + version + "\"";
+    }
+
+    static String of(final Long version, final String dependencies) {
+        return "\"" + version + "-" + dependencies + "\"";
+    }
+
+    static <T> ResponseEntity<T> ok(final T entity, final Long version) {
+        return ResponseEntity.ok().eTag(of(version)).body(entity);
+    }
+
+    static <T> ResponseEntity<T> ok(final T entity, final Long version, final String dependencies) {
+        return ResponseEntity.ok().eTag(of(version, dependencies)).body(entity);
+    }
+
+    // Selected fields are read without the version, so they are tagged with the versions of their tables
+    static <T> ResponseEntity<T> fields(final T fields, final TableVersions tableVersions, final List<String> tables) {
+        return ResponseEntity.ok().eTag(tableVersions.etag(tables, "fields")).body(fields);
+    }
+
+    // Null for a missing header or *, which match any version
+    static Long expectedVersion(final String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        final String tag = ifMatch.trim();
+        if (tag.length() <= 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return NO_VERSION;
+        }
+        final String value = tag.substring(1, tag.length() - 1);
+        final int dependencies = value.indexOf('-');
+        try {
+            return Long.parseLong(dependencies < 0 ? value : value.substring(0, dependencies));
+        } catch (NumberFormatException e) {
+            return NO_VERSION;
+        }
+    }
+}
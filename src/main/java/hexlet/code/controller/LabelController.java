@@ -1,7 +1,11 @@
 package hexlet.code.controller;
 
+import hexlet.code.dto.Fieldset;
 import hexlet.code.dto.LabelDto;
+import hexlet.code.exception.NotFoundException;
 import hexlet.code.model.Label;
+import hexlet.code.model.QLabel;
+import hexlet.code.repository.ProjectionRepository;
 import hexlet.code.repository.LabelRepository;
 import hexlet.code.service.LabelService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -9,7 +13,10 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import hexlet.code.component.OptimisticRetry;
+import hexlet.code.component.TableVersions;
 import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -17,13 +24,19 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 
 import javax.validation.Valid;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static hexlet.code.component.TableVersions.LABELS;
+import static org.springframework.http.HttpHeaders.IF_MATCH;
 import static org.springframework.http.HttpStatus.CREATED;
 
 
@@ -40,6 +53,12 @@ public class LabelController {
 
     private final LabelRepository labelRepository;
 
+    private final ProjectionRepository projectionRepository;
+
+    private final OptimisticRetry optimisticRetry;
+
+    private final TableVersions tableVersions;
+
 
     @Operation(summary = "Create new label")
     @ApiResponse(responseCode = "201", description = "Label created")
@@ -56,10 +75,14 @@ public class LabelController {
             description = "Get all labels"
     ))
     @GetMapping
-    public List<Label> getAll() {
-        return labelRepository.findAll()
-                .stream()
-                .toList();
+    public List<?> getAll(@RequestParam(required = false) final String fields) {
+        final Set<String> selected = Fieldset.LABEL.parse(fields);
+        if (selected == null) {
+            return labelRepository.findAll()
+                    .stream()
+                    .toList();
+        }
+        return projectionRepository.findFields(QLabel.label, Fieldset.LABEL, selected, null);
     }
 
 
@@ -69,8 +92,19 @@ public class LabelController {
             @Content(schema = @Schema(implementation = Label.class))),
             @ApiResponse(responseCode = "404", description = "Label with this id is not found")})
     @GetMapping(ID)
-    public Label getLabelById(@PathVariable final Long id) {
-        return labelRepository.findById(id).get();
+    public Object getLabelById(@PathVariable final Long id, @RequestParam(required = false) final String fields) {
+        final Set<String> selected = Fieldset.LABEL.parse(fields);
+        if (selected == null) {
+            final Label label = labelRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Label not found: " + id));
+            return EntityTags.ok(label, label.getVersion());
+        }
+        final Map<String, Object> found = projectionRepository
+                .findFields(QLabel.label, Fieldset.LABEL, selected, QLabel.label.id.eq(id))
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Label not found: " + id));
+        return EntityTags.fields(found, tableVersions, List.of(LABELS));
     }
 
 
@@ -78,10 +112,15 @@ public class LabelController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Label is updated", content =
             @Content(schema = @Schema(implementation = Label.class))),
-            @ApiResponse(responseCode = "404", description = "Label with this id is not found")})
+            @ApiResponse(responseCode = "404", description = "Label with this id is not found"),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")})
     @PutMapping(ID)
-    public Label update(@PathVariable final long id, @RequestBody @Valid final LabelDto dto) {
-        return labelService.updateLabel(id, dto);
+    public ResponseEntity<Label> update(@PathVariable final long id,
+                                         @RequestHeader(value = IF_MATCH, required = false) final String ifMatch,
+                                         @RequestBody @Valid final LabelDto dto) {
+        final Long version = EntityTags.expectedVersion(ifMatch);
+        final Label label = optimisticRetry.call(version, () -> labelService.updateLabel(id, dto, version));
+        return EntityTags.ok(label, label.getVersion());
     }
 
 
@@ -89,10 +128,13 @@ public class LabelController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Label is deleted", content =
             @Content(schema = @Schema(implementation = Label.class))),
-            @ApiResponse(responseCode = "404", description = "Label with this id is not found")})
+            @ApiResponse(responseCode = "404", description = "Label with this id is not found"),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")})
     @DeleteMapping(ID)
-    public void delete(@PathVariable final long id) {
-        labelRepository.deleteById(id);
+    public void delete(@PathVariable final long id,
+                       @RequestHeader(value = IF_MATCH, required = false) final String ifMatch) {
+        final Long version = EntityTags.expectedVersion(ifMatch);
+        optimisticRetry.run(version, () -> labelService.deleteLabel(id, version));
     }
 
 }
@@ -1,7 +1,11 @@
 package hexlet.code.controller;
 
+import hexlet.code.dto.Fieldset;
 import hexlet.code.dto.StatusDto;
+import hexlet.code.exception.NotFoundException;
 import hexlet.code.model.Status;
+import hexlet.code.model.QStatus;
+import hexlet.code.repository.ProjectionRepository;
 import hexlet.code.repository.StatusRepository;
 import hexlet.code.service.StatusService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -9,7 +13,10 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import hexlet.code.component.OptimisticRetry;
+import hexlet.code.component.TableVersions;
 import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -17,14 +24,20 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 
 import javax.validation.Valid;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static hexlet.code.component.TableVersions.STATUSES;
 import static hexlet.code.controller.StatusController.STATUS_CONTROLLER_PATH;
+import static org.springframework.http.HttpHeaders.IF_MATCH;
 import static org.springframework.http.HttpStatus.CREATED;
 
 
@@ -42,6 +55,12 @@ public class StatusController {
 
     private final StatusRepository statusRepository;
 
+    private final ProjectionRepository projectionRepository;
+
+    private final OptimisticRetry optimisticRetry;
+
+    private final TableVersions tableVersions;
+
 
     @Operation(summary = "Create new status")
     @ApiResponse(responseCode = "201", description = "Status created")
@@ -58,10 +77,14 @@ public class StatusController {
             description = "Get all statuses"
     ))
     @GetMapping
-    public List<Status> getAll() {
-        return statusRepository.findAll()
-                .stream()
-                .toList();
+    public List<?> getAll(@RequestParam(required = false) final String fields) {
+        final Set<String> selected = Fieldset.STATUS.parse(fields);
+        if (selected == null) {
+            return statusRepository.findAll()
+                    .stream()
+                    .toList();
+        }
+        return projectionRepository.findFields(QStatus.status, Fieldset.STATUS, selected, null);
     }
 
 
@@ -71,8 +94,19 @@ public class StatusController {
             @Content(schema = @Schema(implementation = Status.class))),
             @ApiResponse(responseCode = "404", description = "Status with this id is not found")})
     @GetMapping(ID)
-    public Status getStatusById(@PathVariable final Long id) {
-        return statusRepository.findById(id).get();
+    public Object getStatusById(@PathVariable final Long id, @RequestParam(required = false) final String fields) {
+        final Set<String> selected = Fieldset.STATUS.parse(fields);
+        if (selected == null) {
+            final Status status = statusRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Status not found: " + id));
+            return EntityTags.ok(status, status.getVersion());
+        }
+        final Map<String, Object> found = projectionRepository
+                .findFields(QStatus.status, Fieldset.STATUS, selected, QStatus.status.id.eq(id))
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Status not found: " + id));
+        return EntityTags.fields(found, tableVersions, List.of(STATUSES));
     }
 
 
@@ -80,19 +114,27 @@ public class StatusController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Status is updated", content =
             @Content(schema = @Schema(implementation = Status.class))),
-            @ApiResponse(responseCode = "404", description = "Status with this id is not found")})
+            @ApiResponse(responseCode = "404", description = "Status with this id is not found"),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")})
     @PutMapping(ID)
-    public Status update(@PathVariable final long id, @RequestBody @Valid final StatusDto dto) {
-        return statusService.updateStatus(id, dto);
+    public ResponseEntity<Status> update(@PathVariable final long id,
+                                         @RequestHeader(value = IF_MATCH, required = false) final String ifMatch,
+                                         @RequestBody @Valid final StatusDto dto) {
+        final Long version = EntityTags.expectedVersion(ifMatch);
+        final Status status = optimisticRetry.call(version, () -> statusService.updateStatus(id, dto, version));
+        return EntityTags.ok(status, status.getVersion());
     }
 
     @Operation(summary = "Delete status by its id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Status is deleted", content =
             @Content(schema = @Schema(implementation = Status.class))),
-            @ApiResponse(responseCode = "404", description = "Status with this id is not found")})
+            @ApiResponse(responseCode = "404", description = "Status with this id is not found"),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")})
     @DeleteMapping(ID)
-    public void delete(@PathVariable final long id) {
-        statusRepository.deleteById(id);
+    public void delete(@PathVariable final long id,
+                       @RequestHeader(value = IF_MATCH, required = false) final String ifMatch) {
+        final Long version = EntityTags.expectedVersion(ifMatch);
+        optimisticRetry.run(version, () -> statusService.deleteStatus(id, version));
     }
 }
@@ -0,0 +1,50 @@
+package hexlet.code.controller;
+
+import hexlet.code.component.TaskArchive;
+import hexlet.code.dto.TaskRow;
+import hexlet.code.exception.NotFoundException;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+import static hexlet.code.controller.TaskController.TASK_CONTROLLER_PATH;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("${base-url}" + TASK_CONTROLLER_PATH)
+public class TaskArchiveController {
+
+    public static final String ARCHIVE = "/archive";
+    public static final String ARCHIVED_TASK = ARCHIVE + "/{id}";
+
+    private final TaskArchive taskArchive;
+
+
+    // Archived tasks are read from the segment files only, the database is not queried
+    @Operation(summary = "Get archived tasks in id order after the given id")
+    @ApiResponse(responseCode = "200", description = "Archived tasks are found")
+    @GetMapping(ARCHIVE)
+    public List<TaskRow> getArchivedTasks(@RequestParam(defaultValue = "0") final long after,
+                                          @RequestParam(defaultValue = "100") final int size) {
+        return taskArchive.read(after, size);
+    }
+
+
+    @Operation(summary = "Get an archived task by id")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Archived task is found"),
+            @ApiResponse(responseCode = "404", description = "Archived task with this id is not found")})
+    @GetMapping(ARCHIVED_TASK)
+    public TaskRow getArchivedTask(@PathVariable final long id) {
+        return taskArchive.find(id)
+                .orElseThrow(() -> new NotFoundException("Archived task not found: " + id));
+    }
+}
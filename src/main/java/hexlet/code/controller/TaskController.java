@@ -1,9 +1,30 @@
 package hexlet.code.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.querydsl.core.types.Predicate;
+import hexlet.code.component.OptimisticRetry;
+import hexlet.code.component.TableVersions;
+import hexlet.code.component.TaskChangeStream;
+import hexlet.code.component.TaskCounters;
+import hexlet.code.component.TaskMatcher;
+import hexlet.code.dto.Fieldset;
+import hexlet.code.dto.TaskBatchResult;
+import hexlet.code.dto.TaskBatchUpdateDto;
+import hexlet.code.dto.TaskBulkResult;
+import hexlet.code.dto.TaskBulkUpdateDto;
+import hexlet.code.dto.TaskChanges;
 import hexlet.code.dto.TaskDto;
+import hexlet.code.dto.TaskFacets;
+import hexlet.code.dto.TaskPage;
+import hexlet.code.dto.TaskPageRequest;
+import hexlet.code.dto.TaskStats;
+import hexlet.code.exception.NotFoundException;
 import hexlet.code.model.Task;
+import hexlet.code.model.QTaskView;
+import hexlet.code.model.TaskView;
+import hexlet.code.repository.ProjectionRepository;
 import hexlet.code.repository.TaskRepository;
+import hexlet.code.repository.TaskViewRepository;
 import hexlet.code.service.TaskService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,7 +33,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.AllArgsConstructor;
 import org.springframework.data.querydsl.binding.QuerydslPredicate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -20,13 +44,27 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
 
+import java.util.List;
+import java.util.Set;
+
+import static hexlet.code.component.TableVersions.LABELS;
+import static hexlet.code.component.TableVersions.STATUSES;
+import static hexlet.code.component.TableVersions.TASKS;
+import static hexlet.code.component.TableVersions.USERS;
 import static hexlet.code.controller.TaskController.TASK_CONTROLLER_PATH;
+import static org.springframework.http.HttpHeaders.IF_MATCH;
 import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
 
 
 @AllArgsConstructor
@@ -36,6 +74,17 @@ public class TaskController {
 
     public static final String TASK_CONTROLLER_PATH = "/tasks";
     public static final String ID = "/{id}";
+    public static final String SEARCH = "/search";
+    public static final String STATS = "/stats";
+    public static final String STREAM = "/stream";
+    public static final String CHANGES = "/changes";
+    public static final String BATCH = "/batch";
+    public static final String BULK = "/bulk";
+    public static final String LABEL = ID + "/labels/{labelId}";
+    public static final String APPLICATION_MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
 
     private static final String ONLY_TASK_OWNER = """
             @taskRepository.findById(#id).get().getAuthor().getEmail() == authentication.getName()
@@ -43,6 +92,11 @@ public class TaskController {
 
     private final TaskRepository taskRepository;
     private final TaskService taskService;
+    private final TaskCounters taskCounters;
+    private final ProjectionRepository projectionRepository;
+    private final OptimisticRetry optimisticRetry;
+    private final TaskChangeStream taskChangeStream;
+    private final TableVersions tableVersions;
 
 
     @Operation(summary = "Create new task")
@@ -55,14 +109,126 @@ public class TaskController {
     }
 
 
-    @Operation(summary = "Get all tasks by Predicate")
+    @Operation(summary = "Create tasks in one request",
+            description = "Every item gets its own status and errors, valid items are created even if others fail")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "All tasks are created"),
+            @ApiResponse(responseCode = "207", description = "Some tasks are not created, see the item errors")})
+    @PostMapping(BATCH)
+    public ResponseEntity<List<TaskBatchResult>> createTasks(@RequestBody final List<TaskDto> dtos) {
+        return toResponse(taskService.createTasks(dtos), CREATED);
+    }
+
+    @Operation(summary = "Update tasks in one request",
+            description = "Every item gets its own status and errors, valid items are updated even if others fail")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "All tasks are updated"),
+            @ApiResponse(responseCode = "207", description = "Some tasks are not updated, see the item errors")})
+    @PutMapping(BATCH)
+    public ResponseEntity<List<TaskBatchResult>> updateTasks(@RequestBody final List<TaskBatchUpdateDto> dtos) {
+        return toResponse(taskService.updateTasks(dtos), HttpStatus.OK);
+    }
+
+    @Operation(summary = "Update all own tasks matching a filter",
+            description = "Takes the filter parameters of the task list. Only tasks of the current user are changed,"
+                    + " by set-based statements in one transaction, and their number is returned")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", content =
+            @Content(schema = @Schema(implementation = TaskBulkResult.class))),
+            @ApiResponse(responseCode = "400", description = "No filter, nothing to change or unknown references")})
+    @PatchMapping(path = BULK, consumes = APPLICATION_JSON_VALUE)
+    public TaskBulkResult updateMatching(
+            @QuerydslPredicate(root = TaskView.class, bindings = TaskViewRepository.class) final Predicate predicate,
+            @RequestBody final TaskBulkUpdateDto dto) {
+        return taskService.updateMatching(predicate, dto);
+    }
+
+    @Operation(summary = "Delete all own tasks matching a filter",
+            description = "Takes the filter parameters of the task list. Only tasks of the current user are deleted,"
+                    + " by set-based statements in one transaction, and their number is returned")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", content =
+            @Content(schema = @Schema(implementation = TaskBulkResult.class))),
+            @ApiResponse(responseCode = "400", description = "No filter")})
+    @DeleteMapping(BULK)
+    public TaskBulkResult deleteMatching(
+            @QuerydslPredicate(root = TaskView.class, bindings = TaskViewRepository.class) final Predicate predicate) {
+        return taskService.deleteMatching(predicate);
+    }
+
+
+    @Operation(summary = "Get all tasks by Predicate",
+            description = "Pass size and then cursor from the X-Next-Cursor header to read tasks page by page."
+                    + " Pass fields, for example fields=id,name,taskStatus, to read and return only those fields."
+                    + " Filters on taskStatus, executorId, authorId and labels are combined with AND,"
+                    + " or with OR when match=any")
     @ApiResponses(@ApiResponse(responseCode = "200", content =
     @Content (schema =
     @Schema (implementation = Task.class))
     ))
     @GetMapping
-    public Iterable<Task> getAllTasks(@QuerydslPredicate final Predicate predicate) {
-        return predicate == null ? taskRepository.findAll() : taskRepository.findAll(predicate);
+    public ResponseEntity<List<?>> getAllTasks(
+            @QuerydslPredicate(root = TaskView.class, bindings = TaskViewRepository.class) final Predicate predicate,
+            final TaskPageRequest pageRequest,
+            @RequestParam final MultiValueMap<String, String> params) {
+        final TaskPage page = taskService.getTasks(predicate, TaskFacets.fromParams(params), pageRequest);
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNext() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNext());
+        }
+        if (page.getTotal() != null) {
+            response.header(TOTAL_COUNT_HEADER, String.valueOf(page.getTotal()));
+        }
+        final Set<String> fields = Fieldset.TASK.parse(pageRequest.getFields());
+        return response.body(fields == null ? page.getContent() : Fieldset.TASK.trim(page.getContent(), fields));
+    }
+
+    @Operation(summary = "Search tasks by words in their name and description",
+            description = "Tasks containing every word are returned best match first, the total is in X-Total-Count")
+    @ApiResponses(@ApiResponse(responseCode = "200", content =
+    @Content (schema =
+    @Schema (implementation = Task.class))
+    ))
+    @GetMapping(SEARCH)
+    public ResponseEntity<List<Task>> searchTasks(@RequestParam final String q,
+                                                  @RequestParam(defaultValue = "0") final int page,
+                                                  @RequestParam(required = false) final Integer size) {
+        final TaskPage result = taskService.searchTasks(q, page, size);
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(result.getTotal()))
+                .body(result.getContent());
+    }
+
+    @Operation(summary = "Count tasks by status, executor, author and label",
+            description = "Counts are kept in memory and periodically reconciled with the database")
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = TaskStats.class)))
+    @GetMapping(STATS)
+    public TaskStats getStats() {
+        return taskCounters.getStats();
+    }
+
+    @Operation(summary = "Stream changes of the tasks matching a filter",
+            description = "Server-Sent Events created, updated, removed (no longer matches the filter) and deleted"
+                    + " for the filter parameters of the task list. Send Last-Event-ID to receive the missed changes;"
+                    + " a reset event means they are no longer available and the list has to be read again")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = TEXT_EVENT_STREAM_VALUE))
+    @GetMapping(path = STREAM, produces = TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTasks(
+            @QuerydslPredicate(root = TaskView.class, bindings = TaskViewRepository.class) final Predicate predicate,
+            @RequestParam final MultiValueMap<String, String> params,
+            @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) final Long lastEventId) {
+        return taskChangeStream.subscribe(TaskMatcher.of(predicate, TaskFacets.fromParams(params)), lastEventId);
+    }
+
+    @Operation(summary = "Get tasks changed since a sync token",
+            description = "Tasks created or updated and ids of tasks deleted after the since token, with the token"
+                    + " for the next request. Without since all tasks are returned. When more is true the changes"
+                    + " did not fit into size and the next request should follow at once")
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = TaskChanges.class)))
+    @GetMapping(CHANGES)
+    public TaskChanges getChanges(@RequestParam(required = false) final String since,
+                                  @RequestParam(required = false) final Integer size) {
+        return taskService.getChanges(since, size);
     }
 
     @Operation(summary = "Get a task by id")
@@ -71,8 +237,20 @@ public class TaskController {
             @Content(schema = @Schema(implementation = Task.class))),
             @ApiResponse(responseCode = "404", description = "Task with this id is not found")})
     @GetMapping(ID)
-    public Task getTask(@PathVariable long id) {
-        return taskRepository.findById(id).get();
+    public Object getTask(@PathVariable long id, @RequestParam(required = false) final String fields) {
+        final Set<String> selected = Fieldset.TASK.parse(fields);
+        if (selected == null) {
+            final Task task = taskRepository.findGraphById(id)
+                    .orElseThrow(() -> new NotFoundException("Task not found: " + id));
+            return tagged(task);
+        }
+        final QTaskView view = QTaskView.taskView;
+        final TaskView task = projectionRepository.findAll(view, Fieldset.TASK.columns(selected), view.taskId.eq(id), 1)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Task not found: " + id));
+        return EntityTags.fields(Fieldset.TASK.trim(task.toTask(), selected), tableVersions,
+                List.of(TASKS, USERS, LABELS, STATUSES));
     }
 
 
@@ -80,11 +258,66 @@ public class TaskController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Task is updated", content =
             @Content(schema = @Schema(implementation = Task.class))),
-            @ApiResponse(responseCode = "404", description = "Task with this id is not found")})
+            @ApiResponse(responseCode = "404", description = "Task with this id is not found"),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")})
     @PutMapping(ID)
     @PreAuthorize(ONLY_TASK_OWNER)
-    public Task update(@PathVariable final long id, @RequestBody @Valid final TaskDto dto) {
-        return taskService.updateTask(id, dto);
+    public ResponseEntity<Task> update(@PathVariable final long id,
+                                       @RequestHeader(value = IF_MATCH, required = false) final String ifMatch,
+                                       @RequestBody @Valid final TaskDto dto) {
+        final Long version = EntityTags.expectedVersion(ifMatch);
+        final Task task = optimisticRetry.call(version, () -> taskService.updateTask(id, dto, version));
+        return tagged(task);
+    }
+
+
+    @Operation(summary = "Update only the given fields of a task",
+            description = "The body is a JSON Merge Patch: absent fields are kept and null removes a value")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Task is updated", content =
+            @Content(schema = @Schema(implementation = Task.class))),
+            @ApiResponse(responseCode = "400", description = "Patch has unknown fields or invalid values"),
+            @ApiResponse(responseCode = "404", description = "Task with this id is not found"),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")})
+    @PatchMapping(path = ID, consumes = {APPLICATION_MERGE_PATCH_JSON_VALUE, APPLICATION_JSON_VALUE})
+    @PreAuthorize(ONLY_TASK_OWNER)
+    public ResponseEntity<Task> patch(@PathVariable final long id,
+                                      @RequestHeader(value = IF_MATCH, required = false) final String ifMatch,
+                                      @RequestBody final JsonNode patch) {
+        final Long version = EntityTags.expectedVersion(ifMatch);
+        final Task task = optimisticRetry.call(version, () -> taskService.patchTask(id, patch, version));
+        return tagged(task);
+    }
+
+
+    @Operation(summary = "Add a label to a task")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Label is added", content =
+            @Content(schema = @Schema(implementation = Task.class))),
+            @ApiResponse(responseCode = "400", description = "Label with this id is not found"),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")})
+    @PostMapping(LABEL)
+    @PreAuthorize(ONLY_TASK_OWNER)
+    public ResponseEntity<Task> addLabel(@PathVariable final long id, @PathVariable final long labelId,
+                                         @RequestHeader(value = IF_MATCH, required = false) final String ifMatch) {
+        final Long version = EntityTags.expectedVersion(ifMatch);
+        final Task task = optimisticRetry.call(version, () -> taskService.addLabel(id, labelId, version));
+        return tagged(task);
+    }
+
+
+    @Operation(summary = "Remove a label from a task")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Label is removed", content =
+            @Content(schema = @Schema(implementation = Task.class))),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")})
+    @DeleteMapping(LABEL)
+    @PreAuthorize(ONLY_TASK_OWNER)
+    public ResponseEntity<Task> removeLabel(@PathVariable final long id, @PathVariable final long labelId,
+                                            @RequestHeader(value = IF_MATCH, required = false) final String ifMatch) {
+        final Long version = EntityTags.expectedVersion(ifMatch);
+        final Task task = optimisticRetry.call(version, () -> taskService.removeLabel(id, labelId, version));
+        return tagged(task);
     }
 
 
@@ -92,11 +325,23 @@ public class TaskController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Task is deleted", content =
             @Content(schema = @Schema(implementation = Task.class))),
-            @ApiResponse(responseCode = "404", description = "Task with this id is not found")})
+            @ApiResponse(responseCode = "404", description = "Task with this id is not found"),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")})
     @DeleteMapping(ID)
     @PreAuthorize(ONLY_TASK_OWNER)
-    public void delete(@PathVariable final long id) {
-        taskRepository.deleteById(id);
+    public void delete(@PathVariable final long id,
+                       @RequestHeader(value = IF_MATCH, required = false) final String ifMatch) {
+        final Long version = EntityTags.expectedVersion(ifMatch);
+        optimisticRetry.run(version, () -> taskService.deleteTask(id, version));
     }
 
+    private static ResponseEntity<List<TaskBatchResult>> toResponse(final List<TaskBatchResult> results,
+                                                                    final HttpStatus success) {
+        final boolean failed = results.stream().anyMatch(result -> result.getStatus() != success.value());
+        return ResponseEntity.status(failed ? HttpStatus.MULTI_STATUS : success).body(results);
+    }
+
+    private ResponseEntity<Task> tagged(final Task task) {
+        return EntityTags.ok(task, task.getVersion(), tableVersions.version(List.of(USERS, LABELS, STATUSES)));
+    }
 }
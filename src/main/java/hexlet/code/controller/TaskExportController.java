@@ -0,0 +1,46 @@
+package hexlet.code.controller;
+
+import com.querydsl.core.types.Predicate;
+import hexlet.code.dto.TaskExportFormat;
+import hexlet.code.model.Task;
+import hexlet.code.service.TaskExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.data.querydsl.binding.QuerydslPredicate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static hexlet.code.controller.TaskController.TASK_CONTROLLER_PATH;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("${base-url}" + TASK_CONTROLLER_PATH)
+public class TaskExportController {
+
+    public static final String EXPORT = "/export";
+
+    private final TaskExportService taskExportService;
+
+
+    // Rows are written to the response while they are read from the database,
+    // so the export runs on the request thread instead of an async one with its timeout
+    @Operation(summary = "Export tasks by Predicate as NDJSON or CSV")
+    @ApiResponse(responseCode = "200", description = "Tasks are streamed")
+    @GetMapping(EXPORT)
+    public void export(@QuerydslPredicate(root = Task.class) final Predicate predicate,
+                       @RequestParam(defaultValue = "ndjson") final String format,
+                       final HttpServletResponse response) throws IOException {
+        final TaskExportFormat exportFormat = TaskExportFormat.of(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(CONTENT_DISPOSITION, "attachment; filename=tasks." + exportFormat.getExtension());
+        taskExportService.export(predicate, exportFormat, response.getOutputStream());
+    }
+}
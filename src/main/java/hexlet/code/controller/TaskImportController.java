@@ -0,0 +1,62 @@
+package hexlet.code.controller;
+
+import hexlet.code.dto.TaskExportFormat;
+import hexlet.code.model.TaskImportJob;
+import hexlet.code.service.TaskImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+import static hexlet.code.controller.TaskController.TASK_CONTROLLER_PATH;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("${base-url}" + TASK_CONTROLLER_PATH)
+public class TaskImportController {
+
+    public static final String IMPORT = "/import";
+    public static final String IMPORT_JOB = IMPORT + "/{id}";
+
+    private final TaskImportService taskImportService;
+
+
+    // The file is the raw request body in the format of the export, not a multipart form,
+    // so it is read as a stream and never buffered by the servlet container
+    @Operation(summary = "Import tasks from an NDJSON or CSV body in the background")
+    @ApiResponse(responseCode = "202", description = "Import job is queued")
+    @PostMapping(IMPORT)
+    public ResponseEntity<TaskImportJob> importTasks(@RequestParam(defaultValue = "ndjson") final String format,
+                                                     final HttpServletRequest request) throws IOException {
+        final TaskImportJob job = taskImportService.start(TaskExportFormat.of(format), request.getInputStream());
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .replaceQuery(null)
+                        .path("/{id}")
+                        .buildAndExpand(job.getId())
+                        .toUri())
+                .body(job);
+    }
+
+
+    @Operation(summary = "Get the progress of an import job")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import job is found"),
+            @ApiResponse(responseCode = "403", description = "Import job of another user"),
+            @ApiResponse(responseCode = "404", description = "Import job with this id is not found")})
+    @GetMapping(IMPORT_JOB)
+    public TaskImportJob getJob(@PathVariable final long id) {
+        return taskImportService.getJob(id);
+    }
+}
@@ -1,7 +1,11 @@
 package hexlet.code.controller;
 
+import hexlet.code.dto.Fieldset;
 import hexlet.code.dto.UserDto;
+import hexlet.code.exception.NotFoundException;
 import hexlet.code.model.User;
+import hexlet.code.model.QUser;
+import hexlet.code.repository.ProjectionRepository;
 import hexlet.code.repository.UserRepository;
 import hexlet.code.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -11,7 +15,10 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import hexlet.code.component.OptimisticRetry;
+import hexlet.code.component.TableVersions;
 import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -20,14 +27,20 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 
 import javax.validation.Valid;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static hexlet.code.component.TableVersions.USERS;
 import static hexlet.code.controller.UserController.USER_CONTROLLER_PATH;
+import static org.springframework.http.HttpHeaders.IF_MATCH;
 import static org.springframework.http.HttpStatus.CREATED;
 
 @AllArgsConstructor
@@ -45,6 +58,9 @@ public class UserController {
 
     private final UserService userService;
     private final UserRepository userRepository;
+    private final ProjectionRepository projectionRepository;
+    private final OptimisticRetry optimisticRetry;
+    private final TableVersions tableVersions;
 
     @Operation(summary = "Create new user")
     @ApiResponse(responseCode = "201", description = "User created")
@@ -60,10 +76,14 @@ public class UserController {
     @ApiResponses(@ApiResponse(responseCode = "200", content =
     @Content(schema = @Schema(implementation = User.class))))
     @GetMapping
-    public List<User> getAll() {
-        return userRepository.findAll()
-                .stream()
-                .toList();
+    public List<?> getAll(@RequestParam(required = false) final String fields) {
+        final Set<String> selected = Fieldset.USER.parse(fields);
+        if (selected == null) {
+            return userRepository.findAll()
+                    .stream()
+                    .toList();
+        }
+        return projectionRepository.findFields(QUser.user, Fieldset.USER, selected, null);
     }
 
 
@@ -72,28 +92,47 @@ public class UserController {
     @Content(schema = @Schema(implementation = User.class))
     ))
     @GetMapping(ID)
-    public User getUserById(@PathVariable final Long id) {
-        return userRepository.findById(id).get();
+    public Object getUserById(@PathVariable final Long id, @RequestParam(required = false) final String fields) {
+        final Set<String> selected = Fieldset.USER.parse(fields);
+        if (selected == null) {
+            final User user = userRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("User not found: " + id));
+            return EntityTags.ok(user, user.getVersion());
+        }
+        final Map<String, Object> found = projectionRepository
+                .findFields(QUser.user, Fieldset.USER, selected, QUser.user.id.eq(id))
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("User not found: " + id));
+        return EntityTags.fields(found, tableVersions, List.of(USERS));
     }
 
 
     @Operation(summary = "Update user by id")
     @PutMapping(ID)
     @PreAuthorize(ONLY_OWNER_BY_ID)
-    @ApiResponses(@ApiResponse(responseCode = "200", content =
-    @Content(schema = @Schema(implementation = User.class))
-    ))
-    public User update(@PathVariable final long id, @RequestBody @Valid final UserDto dto) {
-        return userService.updateUser(id, dto);
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = User.class))),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")})
+    public ResponseEntity<User> update(@PathVariable final long id,
+                                       @RequestHeader(value = IF_MATCH, required = false) final String ifMatch,
+                                       @RequestBody @Valid final UserDto dto) {
+        final Long version = EntityTags.expectedVersion(ifMatch);
+        final User user = optimisticRetry.call(version, () -> userService.updateUser(id, dto, version));
+        return EntityTags.ok(user, user.getVersion());
     }
 
 
     @Operation(summary = "Delete user by id")
-    @ApiResponses(@ApiResponse(responseCode = "200", description = "User is deleted"))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "User is deleted"),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")})
     @DeleteMapping(ID)
     @PreAuthorize(ONLY_OWNER_BY_ID)
-    public void delete(@PathVariable final long id) {
-        userRepository.deleteById(id);
+    public void delete(@PathVariable final long id,
+                       @RequestHeader(value = IF_MATCH, required = false) final String ifMatch) {
+        final Long version = EntityTags.expectedVersion(ifMatch);
+        optimisticRetry.run(version, () -> userService.deleteUser(id, version));
     }
 
 }
@@ -0,0 +1,140 @@
+package hexlet.code.dto;
+
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.dsl.Expressions;
+import hexlet.code.exception.BadRequestException;
+import hexlet.code.model.Label;
+import hexlet.code.model.QLabel;
+import hexlet.code.model.QStatus;
+import hexlet.code.model.QTaskView;
+import hexlet.code.model.QUser;
+import hexlet.code.model.Status;
+import hexlet.code.model.Task;
+import hexlet.code.model.User;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Поля ответа, которые можно запросить параметром fields, например fields=id,name,taskStatus.
+// Для каждого поля известны колонки, которые нужно прочитать из базы, и способ получить его значение
+public final class Fieldset<T> {
+
+    public static final String ID = "id";
+
+    public static final Fieldset<User> USER = new Fieldset<User>()
+            .field(ID, User::getId, QUser.user.id)
+            .field("firstName", User::getFirstName, QUser.user.firstName)
+            .field("lastName", User::getLastName, QUser.user.lastName)
+            .field("email", User::getEmail, QUser.user.email)
+            .field("createdAt", User::getCreatedAt, QUser.user.createdAt);
+
+    public static final Fieldset<Label> LABEL = new Fieldset<Label>()
+            .field(ID, Label::getId, QLabel.label.id)
+            .field("name", Label::getName, QLabel.label.name)
+            .field("createdAt", Label::getCreatedAt, QLabel.label.createdAt);
+
+    public static final Fieldset<Status> STATUS = new Fieldset<Status>()
+            .field(ID, Status::getId, QStatus.status.id)
+            .field("name", Status::getName, QStatus.status.name)
+            .field("createdAt", Status::getCreatedAt, QStatus.status.createdAt);
+
+    // Списки задач читаются из task_view, поэтому колонки задач - это колонки TaskView
+    public static final Fieldset<Task> TASK = taskFieldset(QTaskView.taskView);
+
+    private final Map<String, Field<T>> fields = new LinkedHashMap<>();
+
+    private Fieldset() {
+    }
+
+    // Возвращает null, если поля не запрошены. id включается всегда
+    public Set<String> parse(final String requested) {
+        if (requested == null || requested.isBlank()) {
+            return null;
+        }
+        final Set<String> names = new LinkedHashSet<>();
+        names.add(ID);
+        for (String name : requested.split(",")) {
+            final String trimmed = name.trim();
+            if (!trimmed.isEmpty() && !fields.containsKey(trimmed)) {
+                throw new BadRequestException("Unknown field: " + trimmed);
+            }
+            if (!trimmed.isEmpty()) {
+                names.add(trimmed);
+            }
+        }
+        return names;
+    }
+
+    public List<Path<?>> columns(final Set<String> names) {
+        return names.stream()
+                .flatMap(name -> fields.get(name).columns().stream())
+                .distinct()
+                .toList();
+    }
+
+    public Map<String, Object> trim(final T item, final Set<String> names) {
+        final Map<String, Object> result = new LinkedHashMap<>();
+        fields.forEach((name, field) -> {
+            if (names.contains(name)) {
+                result.put(name, field.value().apply(item));
+            }
+        });
+        return result;
+    }
+
+    public List<Map<String, Object>> trim(final List<T> items, final Set<String> names) {
+        return items.stream()
+                .map(item -> trim(item, names))
+                .toList();
+    }
+
+    private Fieldset<T> field(final String name, final Function<T, Object> value, final Path<?>... columns) {
+        fields.put(name, new Field<>(Arrays.asList(columns), value));
+        return this;
+    }
+
+    private static Fieldset<Task> taskFieldset(final QTaskView view) {
+        return new Fieldset<Task>()
+                .field(ID, Task::getId, view.taskId)
+                .field("name", Task::getName, view.name)
+                .field("description", Task::getDescription, view.description)
+                .field("createdAt", Task::getCreatedAt, view.createdAt)
+                .field("taskStatus", task -> reference(task.getTaskStatus().getId(),
+                        "name", task.getTaskStatus().getName()),
+                        view.taskStatusId, view.taskStatusName)
+                .field("author", task -> user(task.getAuthor()),
+                        view.authorId, view.authorFirstName, view.authorLastName)
+                .field("executor", task -> user(task.getExecutor()),
+                        view.executorId, view.executorFirstName, view.executorLastName)
+                .field("labels", task -> task.getLabels()
+                                .stream()
+                                .sorted(Comparator.comparing(Label::getId))
+                                .map(label -> reference(label.getId(), "name", label.getName()))
+                                .toList(),
+                        // labels хранятся в task_view как JSON и не попадают в QTaskView
+                        Expressions.path(List.class, view, "labels"));
+    }
+
+    private static Map<String, Object> user(final User user) {
+        return user == null
+                ? null
+                : reference(user.getId(), "firstName", user.getFirstName(), "lastName", user.getLastName());
+    }
+
+    private static Map<String, Object> reference(final Long id, final Object... properties) {
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put(ID, id);
+        for (int i = 0; i < properties.length; i += 2) {
+            result.put((String) properties[i], properties[i + 1]);
+        }
+        return result;
+    }
+
+    private record Field<T>(List<Path<?>> columns, Function<T, Object> value) { }
+}
@@ -0,0 +1,27 @@
+package hexlet.code.dto;
+
+import hexlet.code.model.Task;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Результат одного элемента пакетного запроса.
+// index - позиция элемента в запросе, status - HTTP-код, который получил бы одиночный запрос
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskBatchResult {
+
+    private int index;
+
+    private int status;
+
+    // task - сохранённая задача, null если элемент не сохранён
+    private Task task;
+
+    // errors - причины, по которым элемент не сохранён
+    private List<String> errors;
+
+}
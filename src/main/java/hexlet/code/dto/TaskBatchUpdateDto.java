@@ -0,0 +1,26 @@
+package hexlet.code.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.validation.constraints.NotNull;
+import java.util.Set;
+
+// Элемент PUT /tasks/batch: те же поля, что и при обновлении одной задачи, плюс её id
+@Data
+@NoArgsConstructor
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class TaskBatchUpdateDto extends TaskDto {
+
+    @NotNull
+    private Long id;
+
+    public TaskBatchUpdateDto(final Long id, final String name, final String description, final Long taskStatusId,
+                              final Long executorId, final Set<Long> labelIds) {
+        super(name, description, taskStatusId, executorId, labelIds);
+        this.id = id;
+    }
+}
@@ -0,0 +1,27 @@
+package hexlet.code.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+// Изменения для всех задач по фильтру. null и пустые множества оставляют поле задач как есть
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskBulkUpdateDto {
+
+    // taskStatusId - необязательное. Новый статус задач
+    private Long taskStatusId;
+
+    // executorId - необязательное. Новый исполнитель задач
+    private Long executorId;
+
+    // addLabelIds - необязательное. Метки, которые добавляются задачам, у которых их ещё нет
+    private Set<Long> addLabelIds;
+
+    // removeLabelIds - необязательное. Метки, которые снимаются с задач. Не пересекаются с addLabelIds
+    private Set<Long> removeLabelIds;
+
+}
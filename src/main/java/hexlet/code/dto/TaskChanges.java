@@ -0,0 +1,27 @@
+package hexlet.code.dto;
+
+import hexlet.code.model.Task;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskChanges {
+
+    // tasks - задачи, созданные или изменённые после токена запроса, в порядке изменения
+    private List<Task> tasks;
+
+    // deleted - id задач, удалённых после токена запроса
+    private List<Long> deleted;
+
+    // token - токен для следующего запроса
+    private String token;
+
+    // more - true, если изменений больше, чем поместилось в ответ, и следующий запрос нужно сделать сразу
+    private boolean more;
+
+}
@@ -0,0 +1,48 @@
+package hexlet.code.dto;
+
+import hexlet.code.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskCursor {
+
+    private static final String SEPARATOR = ":";
+    private static final int PARTS = 4;
+
+    private String sort;
+
+    private boolean descending;
+
+    // id - идентификатор последней задачи на странице, используется как второй ключ сортировки
+    private long id;
+
+    // value - значение ключа сортировки последней задачи на странице
+    private String value;
+
+    public String encode() {
+        final String raw = String.join(SEPARATOR, sort, descending ? "desc" : "asc", String.valueOf(id), value);
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TaskCursor decode(final String cursor) {
+        try {
+            final String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final String[] parts = raw.split(SEPARATOR, PARTS);
+            if (parts.length != PARTS) {
+                throw new IllegalArgumentException("Malformed cursor: " + cursor);
+            }
+            return new TaskCursor(parts[0], "desc".equals(parts[1]), Long.parseLong(parts[2]), parts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Malformed cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package hexlet.code.dto;
+
+import hexlet.code.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.util.MultiValueMap;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Фильтр задач по статусам, исполнителям, авторам и меткам.
+// Значения внутри фасета объединяются через ИЛИ, кроме меток: как и в фильтре labels, задача должна иметь все метки.
+// Сами фасеты объединяются через И, либо через ИЛИ при match=any, и тогда достаточно любой из меток
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskFacets {
+
+    public static final String MATCH = "match";
+    public static final String MATCH_ALL = "all";
+    public static final String MATCH_ANY = "any";
+
+    private static final Set<String> PAGE_PARAMS = Set.of("size", "cursor", "sort", "count", "fields", MATCH);
+
+    private Set<Long> taskStatuses = new HashSet<>();
+
+    private Set<Long> executors = new HashSet<>();
+
+    private Set<Long> authors = new HashSet<>();
+
+    private Set<Long> labels = new HashSet<>();
+
+    // any - задача подходит, если подходит хотя бы под один из заданных фасетов
+    private boolean any;
+
+    public boolean isEmpty() {
+        return taskStatuses.isEmpty() && executors.isEmpty() && authors.isEmpty() && labels.isEmpty();
+    }
+
+    // Возвращает null, если в запросе есть условия кроме фасетов: такой фильтр выполняется запросом к базе
+    public static TaskFacets fromParams(final MultiValueMap<String, String> params) {
+        final String match = params.getFirst(MATCH);
+        if (match != null && !MATCH_ALL.equals(match) && !MATCH_ANY.equals(match)) {
+            throw new BadRequestException("Unsupported match mode: " + match);
+        }
+        final TaskFacets facets = new TaskFacets();
+        facets.setAny(MATCH_ANY.equals(match));
+        for (Map.Entry<String, List<String>> param : params.entrySet()) {
+            final Set<Long> target = switch (param.getKey()) {
+                case "taskStatus", "taskStatusId" -> facets.getTaskStatuses();
+                case "executor", "executorId" -> facets.getExecutors();
+                case "author", "authorId" -> facets.getAuthors();
+                case "labels" -> facets.getLabels();
+                default -> null;
+            };
+            if (target != null) {
+                param.getValue().forEach(value -> target.add(id(param.getKey(), value)));
+            } else if (!PAGE_PARAMS.contains(param.getKey())) {
+                if (facets.isAny()) {
+                    throw new BadRequestException("match=any only combines taskStatus, executor, author"
+                            + " and labels, got " + param.getKey());
+                }
+                return null;
+            }
+        }
+        return facets;
+    }
+
+    private static Long id(final String param, final String value) {
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException(param + ": must be an id, got " + value, e);
+        }
+    }
+}
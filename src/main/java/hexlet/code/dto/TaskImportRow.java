@@ -0,0 +1,30 @@
+package hexlet.code.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Строка файла импорта. Статус, исполнитель и метки задаются именами, а не id, так что файл можно перенести
+// между базами. Остальные поля, например колонки экспорта, пропускаются, в CSV метки разделяются ';'
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonPropertyOrder({"name", "description", "taskStatus", "executorEmail", "labels"})
+public class TaskImportRow {
+
+    private String name;
+
+    private String description;
+
+    private String taskStatus;
+
+    private String executorEmail;
+
+    private List<String> labels;
+
+}
@@ -0,0 +1,23 @@
+package hexlet.code.dto;
+
+import hexlet.code.model.Task;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskPage {
+
+    private List<Task> content;
+
+    // next - курсор следующей страницы, null если страница последняя
+    private String next;
+
+    // total - общее количество задач по фильтру, null если не запрошено
+    private Long total;
+
+}
@@ -0,0 +1,30 @@
+package hexlet.code.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskPageRequest {
+
+    // size - необязательное. Если не задано вместе с cursor, возвращаются все задачи
+    private Integer size;
+
+    // cursor - непрозрачный курсор из заголовка X-Next-Cursor предыдущей страницы
+    private String cursor;
+
+    // sort - поле и направление сортировки, например "createdAt,desc"
+    private String sort;
+
+    // count - нужно ли считать общее количество задач по фильтру
+    private boolean count;
+
+    // fields - необязательное. Поля задач в ответе через запятую, например "id,name,taskStatus"
+    private String fields;
+
+    public boolean isPaged() {
+        return size != null || cursor != null;
+    }
+}
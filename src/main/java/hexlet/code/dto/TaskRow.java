@@ -0,0 +1,46 @@
+package hexlet.code.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Плоское представление задачи для выгрузки
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"id", "name", "description", "createdAt", "taskStatusId", "taskStatus",
+    "authorId", "author", "executorId", "executor", "labelIds", "labels"})
+public class TaskRow {
+
+    private Long id;
+
+    private String name;
+
+    private String description;
+
+    private Date createdAt;
+
+    private Long taskStatusId;
+
+    private String taskStatus;
+
+    private Long authorId;
+
+    // author - имя и фамилия автора
+    private String author;
+
+    private Long executorId;
+
+    // executor - имя и фамилия исполнителя
+    private String executor;
+
+    private List<Long> labelIds = new ArrayList<>();
+
+    private List<String> labels = new ArrayList<>();
+
+}
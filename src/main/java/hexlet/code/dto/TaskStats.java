@@ -0,0 +1,26 @@
+package hexlet.code.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// Количество задач всего и в разрезе статусов, исполнителей, авторов и меток.
+// Ключи - id статуса, пользователя или метки
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskStats {
+
+    private long total;
+
+    private Map<Long, Long> byTaskStatus;
+
+    private Map<Long, Long> byExecutor;
+
+    private Map<Long, Long> byAuthor;
+
+    private Map<Long, Long> byLabel;
+
+}
@@ -0,0 +1,47 @@
+package hexlet.code.dto;
+
+import hexlet.code.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Позиция клиента в потоке изменений задач: все изменения с ключом (changeVersion, taskId) до неё получены
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskSyncToken {
+
+    // Начало потока: строки, созданные до появления номеров изменений, имеют номер 0
+    public static final TaskSyncToken START = new TaskSyncToken(0, 0);
+
+    private static final String SEPARATOR = ":";
+    private static final int PARTS = 2;
+
+    private long version;
+
+    // taskId - последняя полученная задача с номером version, Long.MAX_VALUE если получены все
+    private long taskId;
+
+    public String encode() {
+        final String raw = version + SEPARATOR + taskId;
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TaskSyncToken decode(final String token) {
+        try {
+            final String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            final String[] parts = raw.split(SEPARATOR, PARTS);
+            if (parts.length != PARTS) {
+                throw new IllegalArgumentException("Malformed sync token: " + token);
+            }
+            return new TaskSyncToken(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Malformed sync token: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package hexlet.code.event;
+
+import hexlet.code.model.OutboxEvent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Публикуется relay-ем outbox для очередной пачки закоммиченных событий в порядке их номеров.
+// Слушатели вызываются в транзакции relay: после исключения слушателя номер не сдвигается,
+// и пачка будет доставлена повторно
+@Getter
+@AllArgsConstructor
+public class OutboxBatchEvent {
+
+    private final List<OutboxEvent> events;
+
+    public long getLastSequenceNumber() {
+        return events.get(events.size() - 1).getSequenceNumber();
+    }
+}
@@ -0,0 +1,36 @@
+package hexlet.code.event;
+
+import hexlet.code.model.TaskView;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+// Публикуется сервисом задач при создании, изменении и удалении задачи.
+// Слушатели получают состояние задачи до и после изменения в виде строк task_view
+@Getter
+@RequiredArgsConstructor
+public class TaskChangedEvent {
+
+    // before - null, если задача создана
+    private final TaskView before;
+
+    // after - null, если задача удалена
+    private final TaskView after;
+
+    // eventId - id события outbox, записанного для этого изменения в той же транзакции.
+    // null, если изменение не затронуло ни одного поля
+    @Setter
+    private Long eventId;
+
+    public long getTaskId() {
+        return after != null ? after.getTaskId() : before.getTaskId();
+    }
+
+    public boolean isCreated() {
+        return before == null;
+    }
+
+    public boolean isDeleted() {
+        return after == null;
+    }
+}
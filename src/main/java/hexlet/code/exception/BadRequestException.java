@@ -0,0 +1,14 @@
+package hexlet.code.exception;
+
+// Некорректные параметры запроса: курсор, токен, сортировка, фильтр, поля. Отвечается 400 с текстом ошибки,
+// в отличие от IllegalArgumentException из остального кода, который остаётся внутренней ошибкой
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(final String message) {
+        super(message);
+    }
+
+    public BadRequestException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,9 @@
+package hexlet.code.exception;
+
+// Запрошенной сущности нет. Отвечается 404 с текстом ошибки
+public class NotFoundException extends RuntimeException {
+
+    public NotFoundException(final String message) {
+        super(message);
+    }
+}
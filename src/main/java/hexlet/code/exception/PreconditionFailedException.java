@@ -0,0 +1,9 @@
+package hexlet.code.exception;
+
+// Версия из If-Match не совпала с прочитанной версией строки. Отвечается 412
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(final String message) {
+        super(message);
+    }
+}
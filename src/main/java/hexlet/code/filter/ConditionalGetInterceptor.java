@@ -0,0 +1,60 @@
+package hexlet.code.filter;
+
+import hexlet.code.component.TableVersions;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static hexlet.code.config.WebConfiguration.APPLICATION_SMILE_VALUE;
+import static org.springframework.http.HttpHeaders.ACCEPT;
+import static org.springframework.http.HttpHeaders.VARY;
+import static org.springframework.http.HttpMethod.GET;
+import static org.springframework.http.HttpMethod.HEAD;
+import static org.springframework.http.MediaType.APPLICATION_CBOR_VALUE;
+
+// Answers GET requests with an ETag built from the versions of the tables the response is read from,
+// or from another version of the data the response shows.
+// A matching If-None-Match gets 304 before the controller runs: the versions are read with one statement,
+// and no entity is loaded and nothing is serialized
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    // Builds the tag for a representation: json, cbor or smile
+    private final Function<String, String> etag;
+
+    public ConditionalGetInterceptor(final TableVersions tableVersions, final List<String> tables) {
+        this(representation -> tableVersions.etag(tables, representation));
+    }
+
+    public ConditionalGetInterceptor(final Function<String, String> etag) {
+        this.etag = etag;
+    }
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request,
+                             final HttpServletResponse response,
+                             final Object handler) {
+        if (!GET.matches(request.getMethod()) && !HEAD.matches(request.getMethod())) {
+            return true;
+        }
+        response.addHeader(VARY, ACCEPT);
+        return !new ServletWebRequest(request, response)
+                .checkNotModified(etag.apply(representation(request)));
+    }
+
+    // JSON, CBOR and Smile bodies of the same resource differ, so a strong tag must differ too
+    private static String representation(final HttpServletRequest request) {
+        final String accept = Optional.ofNullable(request.getHeader(ACCEPT)).orElse("");
+        if (accept.contains(APPLICATION_CBOR_VALUE)) {
+            return "cbor";
+        }
+        if (accept.contains(APPLICATION_SMILE_VALUE)) {
+            return "smile";
+        }
+        return "json";
+    }
+}
@@ -0,0 +1,106 @@
+package hexlet.code.filter;
+
+import hexlet.code.component.PersistenceMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+// Publishes the database work of every request per controller method, e.g. handler=TaskController.getAllTasks:
+// persistence.statements, persistence.rows and persistence.entities summaries and the persistence.jdbc timer.
+// With a statement budget a request running more statements is logged and counted in persistence.budget.exceeded,
+// which the tests check to catch N+1 regressions. The response itself is never affected
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "persistence-metrics.enabled", matchIfMissing = false)
+public class PersistenceMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String BUDGET_EXCEEDED = "persistence.budget.exceeded";
+
+    private final MeterRegistry meterRegistry;
+    private final int statementBudget;
+
+    public PersistenceMetricsInterceptor(
+            final MeterRegistry meterRegistry,
+            @Value("${persistence-metrics.statement-budget:0}") final int statementBudget) {
+        this.meterRegistry = meterRegistry;
+        this.statementBudget = statementBudget;
+    }
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request,
+                             final HttpServletResponse response,
+                             final Object handler) {
+        if (handler instanceof HandlerMethod) {
+            PersistenceMetrics.start();
+        }
+        return true;
+    }
+
+    // The body is already written here, so lazy loading done by Jackson is counted too
+    @Override
+    public void afterCompletion(final HttpServletRequest request,
+                                final HttpServletResponse response,
+                                final Object handler,
+                                final Exception exception) {
+        final PersistenceMetrics.Usage usage = PersistenceMetrics.stop();
+        if (usage == null) {
+            return;
+        }
+        final String name = handlerName(handler);
+        summary("persistence.statements", name).record(usage.getStatements());
+        summary("persistence.rows", name).record(usage.getRows());
+        summary("persistence.entities", name).record(usage.getEntities());
+        Timer.builder("persistence.jdbc")
+                .description("Time spent executing JDBC statements per request")
+                .tag("handler", name)
+                .register(meterRegistry)
+                .record(usage.getJdbcNanos(), TimeUnit.NANOSECONDS);
+        if (isOverBudget(usage)) {
+            Counter.builder(BUDGET_EXCEEDED)
+                    .description("Requests that ran more statements than the budget")
+                    .tag("handler", name)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn(overBudgetMessage(handler, usage));
+        }
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(final HttpServletRequest request,
+                                               final HttpServletResponse response,
+                                               final Object handler) {
+        PersistenceMetrics.stop();
+    }
+
+    private DistributionSummary summary(final String metric, final String handler) {
+        return DistributionSummary.builder(metric)
+                .tag("handler", handler)
+                .register(meterRegistry);
+    }
+
+    private boolean isOverBudget(final PersistenceMetrics.Usage usage) {
+        return statementBudget > 0 && usage != null && usage.getStatements() > statementBudget;
+    }
+
+    private String overBudgetMessage(final Object handler, final PersistenceMetrics.Usage usage) {
+        return handlerName(handler) + " ran " + usage.getStatements() + " statements, the budget is "
+                + statementBudget;
+    }
+
+    public static String handlerName(final Object handler) {
+        return handler instanceof HandlerMethod method
+                ? method.getBeanType().getSimpleName() + "." + method.getMethod().getName()
+                : String.valueOf(handler);
+    }
+}
@@ -1,25 +1,33 @@
 package hexlet.code.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CreationTimestamp;
 
+import javax.persistence.Version;
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
 import javax.persistence.GeneratedValue;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Temporal;
 import javax.validation.constraints.NotBlank;
 
 import java.util.Date;
 
-import static javax.persistence.GenerationType.IDENTITY;
+import static javax.persistence.GenerationType.SEQUENCE;
 import static javax.persistence.TemporalType.TIMESTAMP;
+import static org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE;
 
 @Entity
+@Cacheable
+@Cache(usage = READ_WRITE)
 @Getter
 @Setter
 @Table(name = "labels")
@@ -28,7 +36,8 @@ import static javax.persistence.TemporalType.TIMESTAMP;
 public class Label {
 
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(strategy = SEQUENCE, generator = "labels_seq")
+    @SequenceGenerator(name = "labels_seq", sequenceName = "labels_seq", allocationSize = 50)
     private Long id;
 
     //name - обязательное. Минимум 1 символ. Названия меток могу быть любыми
@@ -41,6 +50,11 @@ public class Label {
     @Temporal(TIMESTAMP)
     private Date createdAt;
 
+    //version - номер изменения, отдаётся в ETag
+    @Version
+    @JsonIgnore
+    private long version;
+
     public Label(final Long id) {
         this.id = id;
     }
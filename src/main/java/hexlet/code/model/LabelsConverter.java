@@ -0,0 +1,39 @@
+package hexlet.code.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.ArrayList;
+import java.util.List;
+
+@Converter
+public class LabelsConverter implements AttributeConverter<List<Label>, String> {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    @Override
+    public String convertToDatabaseColumn(final List<Label> labels) {
+        try {
+            return MAPPER.writeValueAsString(labels == null ? List.of() : labels);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Can't serialize labels", e);
+        }
+    }
+
+    @Override
+    public List<Label> convertToEntityAttribute(final String json) {
+        if (json == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return MAPPER.readValue(json, new TypeReference<>() { });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Can't deserialize labels: " + json, e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package hexlet.code.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import java.util.Date;
+
+import static javax.persistence.GenerationType.SEQUENCE;
+import static javax.persistence.TemporalType.TIMESTAMP;
+
+// Изменение задачи, метки, статуса или пользователя, записанное в одной транзакции с самим изменением.
+// Строки вставляются без номера, relay нумерует закоммиченные события и передаёт их подписчикам в порядке номеров
+@Entity
+@Getter
+@Setter
+@Table(name = "outbox_events", indexes = {
+    @Index(name = "idx_outbox_events_sequence_number", columnList = "sequenceNumber", unique = true)
+})
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    public static final String TASK = "task";
+    public static final String LABEL = "label";
+    public static final String STATUS = "status";
+    public static final String USER = "user";
+
+    @Id
+    @GeneratedValue(strategy = SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 50)
+    private Long id;
+
+    //aggregateType - task, label, status или user
+    private String aggregateType;
+
+    private Long aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    private Type eventType;
+
+    //changes - изменённые поля и их новые значения в JSON, у удаления - null
+    @JsonRawValue
+    @Column(columnDefinition = "text")
+    private String changes;
+
+    @CreationTimestamp
+    @Temporal(TIMESTAMP)
+    private Date createdAt;
+
+    //sequenceNumber - порядок доставки, общий для всех экземпляров: номера выдаются по одному relay за раз
+    //    после коммита события, поэтому меньший номер не может появиться позже большего. null - ещё не передано
+    private Long sequenceNumber;
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,36 @@
+package hexlet.code.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import java.util.Date;
+
+import static javax.persistence.TemporalType.TIMESTAMP;
+
+// Последний номер события, переданный подписчикам одного экземпляра. Relay меняет строку в той же транзакции,
+// что и передачу, и удаляет из outbox только события ниже наименьшего номера. Relay работает через JDBC,
+// сущность описывает таблицу для схемы
+@Entity
+@Getter
+@Setter
+@Table(name = "outbox_relay_offsets")
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxRelayOffset {
+
+    //instance - случайный id экземпляра, выбранный при запуске
+    @Id
+    private String instance;
+
+    private long lastSequenceNumber;
+
+    //updatedAt - время последнего запуска relay. Строки экземпляров, которые давно не запускались, удаляются
+    @Temporal(TIMESTAMP)
+    private Date updatedAt;
+}
@@ -0,0 +1,28 @@
+package hexlet.code.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+// Последний номер, выданный событиям outbox. Строка одна, и relay каждого экземпляра блокирует её на время
+// нумерации. Relay читает и пишет строку через JDBC, сущность описывает таблицу для схемы
+@Entity
+@Getter
+@Setter
+@Table(name = "outbox_sequencer")
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxSequencer {
+
+    public static final long ID = 1;
+
+    @Id
+    private Long id;
+
+    private long lastSequenceNumber;
+}
@@ -1,24 +1,32 @@
 package hexlet.code.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CreationTimestamp;
 
+import javax.persistence.Version;
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
 import javax.persistence.GeneratedValue;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Temporal;
 import javax.validation.constraints.NotBlank;
 import java.util.Date;
 
-import static javax.persistence.GenerationType.IDENTITY;
+import static javax.persistence.GenerationType.SEQUENCE;
 import static javax.persistence.TemporalType.TIMESTAMP;
+import static org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE;
 
 @Entity
+@Cacheable
+@Cache(usage = READ_WRITE)
 @Getter
 @Setter
 @Table(name = "statuses")
@@ -27,7 +35,8 @@ import static javax.persistence.TemporalType.TIMESTAMP;
 public class Status {
 
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(strategy = SEQUENCE, generator = "statuses_seq")
+    @SequenceGenerator(name = "statuses_seq", sequenceName = "statuses_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -37,6 +46,11 @@ public class Status {
     @Temporal(TIMESTAMP)
     private Date createdAt;
 
+    //version - номер изменения, отдаётся в ETag
+    @Version
+    @JsonIgnore
+    private long version;
+
     public Status(final Long id) {
         this.id = id;
     }
@@ -0,0 +1,27 @@
+package hexlet.code.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+// Версия таблицы, по которой строятся ETag ответов. Растёт в каждой транзакции, изменившей таблицу,
+// одинаково для всех экземпляров приложения. TableVersions читает и пишет строки через JDBC,
+// сущность описывает таблицу для схемы
+@Entity
+@Getter
+@Setter
+@Table(name = "table_versions")
+@NoArgsConstructor
+@AllArgsConstructor
+public class TableVersion {
+
+    @Id
+    private String tableName;
+
+    private long version;
+}
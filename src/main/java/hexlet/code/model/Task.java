@@ -1,41 +1,56 @@
 package hexlet.code.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.Builder;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.CreationTimestamp;
 
+import javax.persistence.Version;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import javax.persistence.GeneratedValue;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Temporal;
 import javax.persistence.ManyToOne;
 import javax.persistence.ManyToMany;
 import javax.persistence.JoinColumn;
+import javax.persistence.JoinTable;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
 import java.util.Date;
 import java.util.Set;
 
-import static javax.persistence.GenerationType.IDENTITY;
+import static javax.persistence.GenerationType.SEQUENCE;
 import static javax.persistence.TemporalType.TIMESTAMP;
 
+// UPDATE содержит только изменённые колонки, перенос задачи в другой статус меняет одну колонку
 @Entity
 @Getter
 @Setter
 @Builder
-@Table(name = "tasks")
+@DynamicUpdate
+@Table(name = "tasks", indexes = {
+    @Index(name = "idx_tasks_author_id", columnList = "author_id"),
+    @Index(name = "idx_tasks_executor_id", columnList = "executor_id"),
+    @Index(name = "idx_tasks_task_status_id", columnList = "task_status_id"),
+    @Index(name = "idx_tasks_created_at", columnList = "createdAt")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 public class Task {
 
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    // id берутся из последовательности блоками по 50, поэтому вставки задач уходят в базу пакетами
+    @GeneratedValue(strategy = SEQUENCE, generator = "tasks_seq")
+    @SequenceGenerator(name = "tasks_seq", sequenceName = "tasks_seq", allocationSize = 50)
     private Long id;
 
     //    name - обязательное. Минимум 1 символ. Названия задач могут быть любыми
@@ -67,9 +82,19 @@ public class Task {
     @Temporal(TIMESTAMP)
     private Date createdAt;
 
+    // Обратный индекс нужен для поиска задач по метке и проверки внешнего ключа при удалении метки
     @ManyToMany
+    @JoinTable(name = "tasks_labels",
+            joinColumns = @JoinColumn(name = "task_id"),
+            inverseJoinColumns = @JoinColumn(name = "labels_id"),
+            indexes = @Index(name = "idx_tasks_labels_labels_id_task_id", columnList = "labels_id, task_id"))
     private Set<Label> labels;
 
+    //    version - номер изменения строки. Отдаётся в ETag, запись с устаревшим If-Match отклоняется
+    @Version
+    @JsonIgnore
+    private long version;
+
     public Task(final Long id) {
         this.id = id;
     }
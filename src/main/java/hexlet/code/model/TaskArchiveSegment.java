@@ -0,0 +1,46 @@
+package hexlet.code.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import java.util.Date;
+
+import static javax.persistence.GenerationType.SEQUENCE;
+import static javax.persistence.TemporalType.TIMESTAMP;
+
+// Файл архива задач. Строка вставляется в одной транзакции с удалением задач из рабочих таблиц,
+// поэтому файл без строки - след прерванного переноса, и при запуске он удаляется.
+// minId и maxId - границы id задач файла, rowCount - их количество
+@Entity
+@Getter
+@Setter
+@Table(name = "task_archive_segments")
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskArchiveSegment {
+
+    @Id
+    @GeneratedValue(strategy = SEQUENCE, generator = "task_archive_segments_seq")
+    @SequenceGenerator(name = "task_archive_segments_seq", sequenceName = "task_archive_segments_seq",
+            allocationSize = 50)
+    private Long id;
+
+    private long minId;
+
+    private long maxId;
+
+    private int rowCount;
+
+    @CreationTimestamp
+    @Temporal(TIMESTAMP)
+    private Date createdAt;
+}
@@ -0,0 +1,105 @@
+package hexlet.code.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import hexlet.code.dto.TaskExportFormat;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import java.util.Date;
+
+import static javax.persistence.GenerationType.SEQUENCE;
+import static javax.persistence.TemporalType.TIMESTAMP;
+
+// Фоновый импорт задач из загруженного файла. Прогресс меняется в одной транзакции с каждой записанной пачкой задач,
+// поэтому после перезапуска задание продолжается со строки rowsRead без потерь и повторов.
+// Задание одновременно выполняет только один экземпляр приложения - его владелец
+@Entity
+@Getter
+@Setter
+@Table(name = "task_import_jobs", indexes = {
+    @Index(name = "idx_task_import_jobs_state", columnList = "state")
+})
+@NoArgsConstructor
+public class TaskImportJob {
+
+    public static final int ERRORS_MAX_LENGTH = 4000;
+
+    @Id
+    @GeneratedValue(strategy = SEQUENCE, generator = "task_import_jobs_seq")
+    @SequenceGenerator(name = "task_import_jobs_seq", sequenceName = "task_import_jobs_seq", allocationSize = 50)
+    private Long id;
+
+    //authorId - пользователь, загрузивший файл, он же автор созданных задач
+    private Long authorId;
+
+    @Enumerated(EnumType.STRING)
+    private TaskExportFormat format;
+
+    //file - загруженный файл, удаляется после завершения задания
+    @JsonIgnore
+    @Column(length = 1024)
+    private String file;
+
+    @Enumerated(EnumType.STRING)
+    private State state;
+
+    //owner - экземпляр приложения, выполняющий задание, leaseUntil - до какого времени задание за ним.
+    //    Владелец продлевает срок с каждой пачкой, задание с истёкшим сроком продолжает любой экземпляр
+    @JsonIgnore
+    private String owner;
+
+    @JsonIgnore
+    @Temporal(TIMESTAMP)
+    private Date leaseUntil;
+
+    //claimToken - метка захвата, новая при каждом захвате. Выполнение, чья метка больше не совпадает,
+    //    останавливается, даже если задание снова захватил тот же экземпляр
+    @JsonIgnore
+    private String claimToken;
+
+    //rowsRead - обработанные строки файла, imported - созданные задачи, failed - пропущенные строки
+    private long rowsRead;
+
+    private long imported;
+
+    private long failed;
+
+    //errors - первые ошибки строк по одной в строке текста, остальные только учитываются в failed
+    @Column(length = ERRORS_MAX_LENGTH)
+    private String errors;
+
+    @CreationTimestamp
+    @Temporal(TIMESTAMP)
+    private Date createdAt;
+
+    @UpdateTimestamp
+    @Temporal(TIMESTAMP)
+    private Date updatedAt;
+
+    public TaskImportJob(final Long authorId, final TaskExportFormat format, final String file) {
+        this.authorId = authorId;
+        this.format = format;
+        this.file = file;
+        this.state = State.QUEUED;
+    }
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
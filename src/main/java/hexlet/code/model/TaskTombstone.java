@@ -0,0 +1,29 @@
+package hexlet.code.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+// Удалённая задача для синхронизации изменений: клиенты, получившие задачу раньше, узнают, что её больше нет.
+// changeVersion - номер изменения, которым задача удалена, как у строк task_view
+@Entity
+@Getter
+@Setter
+@Table(name = "task_tombstones", indexes = {
+    @Index(name = "idx_task_tombstones_change_version_task_id", columnList = "changeVersion, taskId")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskTombstone {
+
+    @Id
+    private Long taskId;
+
+    private long changeVersion;
+}
@@ -0,0 +1,108 @@
+package hexlet.code.model;
+
+import com.querydsl.core.annotations.QueryTransient;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Cache;
+
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import static javax.persistence.TemporalType.TIMESTAMP;
+import static org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE;
+
+// Денормализованная копия задачи для чтения списков без join-ов.
+// Обновляется сервисами в той же транзакции, что и исходные таблицы.
+// Строки кешируются, чтобы страницы закешированных фильтров собирались без обращения к базе
+@Entity
+@Cacheable
+@Cache(usage = READ_WRITE)
+@Getter
+@Setter
+@DynamicUpdate
+@Table(name = "task_view", indexes = {
+    @Index(name = "idx_task_view_task_status_id", columnList = "taskStatusId"),
+    @Index(name = "idx_task_view_executor_id", columnList = "executorId"),
+    @Index(name = "idx_task_view_author_id", columnList = "authorId"),
+    @Index(name = "idx_task_view_created_at_task_id", columnList = "createdAt, taskId"),
+    @Index(name = "idx_task_view_name_task_id", columnList = "name, taskId"),
+    @Index(name = "idx_task_view_change_version_task_id", columnList = "changeVersion, taskId")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskView {
+
+    @Id
+    private Long taskId;
+
+    private String name;
+
+    private String description;
+
+    @Temporal(TIMESTAMP)
+    private Date createdAt;
+
+    private Long taskStatusId;
+
+    private String taskStatusName;
+
+    private Long authorId;
+
+    private String authorFirstName;
+
+    private String authorLastName;
+
+    private Long executorId;
+
+    private String executorFirstName;
+
+    private String executorLastName;
+
+    //    labelIds - идентификаторы меток в виде ",1,2,", чтобы фильтровать по метке без join-а.
+    //    Число меток у задачи не ограничено, поэтому колонка text, как и labels
+    @Column(columnDefinition = "text")
+    private String labelIds;
+
+    //    labels - id и названия меток в JSON
+    @QueryTransient
+    @Column(columnDefinition = "text")
+    @Convert(converter = LabelsConverter.class)
+    private List<Label> labels;
+
+    //    changeVersion - номер последнего изменения строки для синхронизации клиентов, см. TaskChangeVersions
+    private long changeVersion;
+
+    public TaskView copy() {
+        return new TaskView(taskId, name, description, createdAt, taskStatusId, taskStatusName,
+                authorId, authorFirstName, authorLastName, executorId, executorFirstName, executorLastName,
+                labelIds, new ArrayList<>(labels), changeVersion);
+    }
+
+    public Task toTask() {
+        return Task.builder()
+                .id(taskId)
+                .name(name)
+                .description(description)
+                .createdAt(createdAt)
+                .taskStatus(new Status(taskStatusId, taskStatusName, null, 0))
+                .author(new User(authorId, authorFirstName, authorLastName, null, null, null, 0))
+                .executor(executorId == null
+                        ? null
+                        : new User(executorId, executorFirstName, executorLastName, null, null, null, 0))
+                .labels(labels == null ? null : new HashSet<>(labels))
+                .build();
+    }
+}
@@ -0,0 +1,46 @@
+package hexlet.code.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.EntityPathBase;
+import com.querydsl.jpa.impl.JPAQuery;
+import hexlet.code.dto.Fieldset;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Читает только указанные колонки и заполняет ими отсоединённые экземпляры класса сущности,
+// остальные свойства остаются null
+@Repository
+@Transactional(readOnly = true)
+public class ProjectionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @SuppressWarnings("unchecked")
+    public <T> List<T> findAll(final EntityPathBase<T> root, final List<Path<?>> columns, final Predicate predicate,
+                               final long limit, final OrderSpecifier<?>... orders) {
+        final JPAQuery<T> query = new JPAQuery<>(entityManager)
+                .select(Projections.bean((Class<T>) root.getType(), columns.toArray(Path<?>[]::new)))
+                .from(root)
+                .where(predicate)
+                .orderBy(orders);
+        if (limit > 0) {
+            query.limit(limit);
+        }
+        return query.fetch();
+    }
+
+    public <T> List<Map<String, Object>> findFields(final EntityPathBase<T> root, final Fieldset<T> fieldset,
+                                                    final Set<String> fields, final Predicate predicate) {
+        return fieldset.trim(findAll(root, fieldset.columns(fields), predicate, 0), fields);
+    }
+}
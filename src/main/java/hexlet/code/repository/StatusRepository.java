@@ -2,12 +2,17 @@ package hexlet.code.repository;
 
 import hexlet.code.model.Status;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.Optional;
 
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+
 @Repository
 public interface StatusRepository  extends JpaRepository<Status, Long> {
 
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
     Optional<Status> findByName(String str);
 }
@@ -0,0 +1,9 @@
+package hexlet.code.repository;
+
+import hexlet.code.model.TaskArchiveSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TaskArchiveSegmentRepository extends JpaRepository<TaskArchiveSegment, Long> {
+}
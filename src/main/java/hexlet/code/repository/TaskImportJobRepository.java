@@ -0,0 +1,42 @@
+package hexlet.code.repository;
+
+import hexlet.code.model.TaskImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TaskImportJobRepository extends JpaRepository<TaskImportJob, Long> {
+
+    // Задания в указанных состояниях, которые никто не выполняет: без владельца или с истёкшим сроком владения
+    @Query("""
+            select j.id from TaskImportJob j
+            where j.state in :states and (j.owner is null or j.leaseUntil < :now)
+            order by j.id
+        """)
+    List<Long> findUnclaimed(@Param("states") Collection<TaskImportJob.State> states, @Param("now") Date now);
+
+    // Из одновременных захватов одного задания строку меняет только первый, остальные получают 0
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            update TaskImportJob j
+            set j.owner = :owner, j.claimToken = :claimToken, j.leaseUntil = :leaseUntil, j.state = :state
+            where j.id = :id and j.state in :states and (j.owner is null or j.leaseUntil < :now)
+        """)
+    int claim(@Param("id") long id, @Param("states") Collection<TaskImportJob.State> states,
+              @Param("state") TaskImportJob.State state, @Param("owner") String owner,
+              @Param("claimToken") String claimToken, @Param("leaseUntil") Date leaseUntil, @Param("now") Date now);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select j from TaskImportJob j where j.id = :id")
+    Optional<TaskImportJob> findForUpdate(@Param("id") long id);
+}
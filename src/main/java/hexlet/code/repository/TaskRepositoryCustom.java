@@ -0,0 +1,48 @@
+package hexlet.code.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import hexlet.code.dto.TaskRow;
+import hexlet.code.dto.TaskStats;
+import hexlet.code.model.Status;
+import hexlet.code.model.Task;
+import hexlet.code.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface TaskRepositoryCustom {
+
+    // Загружает задачи вместе с автором, исполнителем, статусом и метками за два запроса
+    List<Task> findSlice(Predicate predicate, long limit, OrderSpecifier<?>... orders);
+
+    // Загружает задачу вместе с автором, исполнителем, статусом и метками одним запросом
+    Optional<Task> findGraphById(long id);
+
+    // Читает задачи через forward-only курсор и передаёт их порциями по fetchSize строк вместе с метками
+    void scrollRows(Predicate predicate, int fetchSize, Consumer<List<TaskRow>> consumer);
+
+    // Считает задачи группировкой на стороне базы
+    TaskStats countTasks();
+
+    // Меняет статус и исполнителя задач автора с указанными id одним UPDATE и увеличивает их версию.
+    // null оставляет поле как есть. Возвращает количество изменённых задач
+    long updateOwned(Collection<Long> ids, long authorId, Status status, User executor);
+
+    // Добавляет метки задачам автора, у которых их ещё нет, одним INSERT ... SELECT
+    int addLabels(Collection<Long> ids, long authorId, Collection<Long> labelIds);
+
+    // Снимает метки с задач автора одним DELETE
+    int removeLabels(Collection<Long> ids, long authorId, Collection<Long> labelIds);
+
+    // Удаляет задачи автора вместе с их связями с метками. Возвращает количество удалённых задач
+    long deleteOwned(Collection<Long> ids, long authorId);
+
+    // Блокирует до limit задач по фильтру в порядке id и возвращает их id
+    List<Long> lockIds(Predicate predicate, long limit);
+
+    // Удаляет задачи с указанными id вместе с их связями с метками
+    long deleteWithLabels(Collection<Long> ids);
+}
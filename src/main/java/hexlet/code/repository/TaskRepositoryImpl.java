@@ -0,0 +1,308 @@
+package hexlet.code.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import hexlet.code.dto.TaskRow;
+import hexlet.code.dto.TaskStats;
+import hexlet.code.model.QLabel;
+import hexlet.code.model.QStatus;
+import hexlet.code.model.QTask;
+import hexlet.code.model.QUser;
+import hexlet.code.model.Status;
+import hexlet.code.model.Task;
+import hexlet.code.model.User;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.query.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Transactional(readOnly = true)
+public class TaskRepositoryImpl implements TaskRepositoryCustom {
+
+    private static final int LABELS_CHUNK_SIZE = 1000;
+
+    private static final QStatus STATUS = new QStatus("status");
+    private static final QUser AUTHOR = new QUser("author");
+    private static final QUser EXECUTOR = new QUser("executor");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Условие keyset-курсора уже входит в переданный предикат,
+    // поэтому запрос не использует OFFSET и глубокие страницы стоят столько же, сколько первая.
+    // Метки здесь не подтягиваются fetch join: fetch join коллекции отключил бы LIMIT,
+    // поэтому они загружаются для всей страницы вторым запросом, а не запросом на каждую задачу
+    @Override
+    public List<Task> findSlice(final Predicate predicate, final long limit, final OrderSpecifier<?>... orders) {
+        final QTask task = QTask.task;
+        final JPAQuery<Task> query = new JPAQuery<>(entityManager)
+                .select(task)
+                .from(task)
+                .leftJoin(task.author).fetchJoin()
+                .leftJoin(task.executor).fetchJoin()
+                .leftJoin(task.taskStatus).fetchJoin()
+                .where(predicate)
+                .orderBy(orders);
+        if (limit > 0) {
+            query.limit(limit);
+        }
+        final List<Task> tasks = query.fetch();
+        // Заполняет метки задач, которые уже находятся в persistence context.
+        // Чтение без страниц разбивается на части, чтобы список IN не превышал ограничений драйвера
+        for (int from = 0; from < tasks.size(); from += LABELS_CHUNK_SIZE) {
+            new JPAQuery<>(entityManager)
+                    .select(task)
+                    .distinct()
+                    .from(task)
+                    .leftJoin(task.labels).fetchJoin()
+                    .where(task.in(tasks.subList(from, Math.min(from + LABELS_CHUNK_SIZE, tasks.size()))))
+                    .fetch();
+        }
+        return tasks;
+    }
+
+    @Override
+    public Optional<Task> findGraphById(final long id) {
+        final QTask task = QTask.task;
+        return Optional.ofNullable(new JPAQuery<>(entityManager)
+                .select(task)
+                .distinct()
+                .from(task)
+                .leftJoin(task.author).fetchJoin()
+                .leftJoin(task.executor).fetchJoin()
+                .leftJoin(task.taskStatus).fetchJoin()
+                .leftJoin(task.labels).fetchJoin()
+                .where(task.id.eq(id))
+                .fetchOne());
+    }
+
+    // Выбираются только скалярные колонки, поэтому в persistence context ничего не накапливается,
+    // и память ограничена одной частью при любом числе выгружаемых задач
+    @Override
+    public void scrollRows(final Predicate predicate, final int fetchSize, final Consumer<List<TaskRow>> consumer) {
+        final QTask task = QTask.task;
+        final Query<?> query = new JPAQuery<Tuple>(entityManager)
+                .select(task.id, task.name, task.description, task.createdAt,
+                        STATUS.id, STATUS.name,
+                        AUTHOR.id, AUTHOR.firstName, AUTHOR.lastName,
+                        EXECUTOR.id, EXECUTOR.firstName, EXECUTOR.lastName)
+                .from(task)
+                .leftJoin(task.taskStatus, STATUS)
+                .leftJoin(task.author, AUTHOR)
+                .leftJoin(task.executor, EXECUTOR)
+                .where(predicate)
+                .orderBy(task.id.asc())
+                .createQuery()
+                .unwrap(Query.class);
+
+        try (ScrollableResults results = query
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            List<TaskRow> chunk = new ArrayList<>(fetchSize);
+            while (results.next()) {
+                chunk.add(toRow((Tuple) results.get(0)));
+                if (chunk.size() == fetchSize) {
+                    consumer.accept(withLabels(chunk));
+                    chunk = new ArrayList<>(fetchSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                consumer.accept(withLabels(chunk));
+            }
+        }
+    }
+
+    @Override
+    public TaskStats countTasks() {
+        final QTask task = QTask.task;
+        final QLabel label = QLabel.label;
+        final Long total = new JPAQuery<>(entityManager)
+                .select(task.count())
+                .from(task)
+                .fetchOne();
+        return new TaskStats(total,
+                countBy(task.taskStatus.id),
+                countBy(task.executor.id),
+                countBy(task.author.id),
+                toCounts(new JPAQuery<Tuple>(entityManager)
+                        .select(label.id, task.count())
+                        .from(task)
+                        .join(task.labels, label)
+                        .groupBy(label.id)
+                        .fetch()));
+    }
+
+    // Автор входит в каждое условие WHERE, поэтому задачи других пользователей не затрагиваются, какие бы id ни пришли.
+    // Версия увеличивается так же, как это сделал бы Hibernate, поэтому If-Match со старой версией потом отклоняется
+    @Override
+    @Transactional
+    public long updateOwned(final Collection<Long> ids, final long authorId, final Status status,
+                            final User executor) {
+        final QTask task = QTask.task;
+        final JPAUpdateClause update = new JPAUpdateClause(entityManager, task)
+                .set(task.version, task.version.add(1))
+                .where(task.id.in(ids), task.author.id.eq(authorId));
+        if (status != null) {
+            update.set(task.taskStatus, status);
+        }
+        if (executor != null) {
+            update.set(task.executor, executor);
+        }
+        return update.execute();
+    }
+
+    // У таблицы связей нет сущности, поэтому её строки пишутся нативными запросами
+    @Override
+    @Transactional
+    public int addLabels(final Collection<Long> ids, final long authorId, final Collection<Long> labelIds) {
+        return nativeUpdate("""
+                    insert into tasks_labels (task_id, labels_id)
+                    select t.id, l.id from tasks t cross join labels l
+                    where t.id in (:ids) and t.author_id = :authorId and l.id in (:labelIds)
+                        and not exists (select 1 from tasks_labels tl where tl.task_id = t.id and tl.labels_id = l.id)
+                """)
+                .setParameter("ids", ids)
+                .setParameter("authorId", authorId)
+                .setParameter("labelIds", labelIds)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int removeLabels(final Collection<Long> ids, final long authorId, final Collection<Long> labelIds) {
+        return nativeUpdate("""
+                    delete from tasks_labels
+                    where labels_id in (:labelIds)
+                        and task_id in (select t.id from tasks t where t.id in (:ids) and t.author_id = :authorId)
+                """)
+                .setParameter("ids", ids)
+                .setParameter("authorId", authorId)
+                .setParameter("labelIds", labelIds)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public long deleteOwned(final Collection<Long> ids, final long authorId) {
+        final QTask task = QTask.task;
+        nativeUpdate("""
+                    delete from tasks_labels
+                    where task_id in (select t.id from tasks t where t.id in (:ids) and t.author_id = :authorId)
+                """)
+                .setParameter("ids", ids)
+                .setParameter("authorId", authorId)
+                .executeUpdate();
+        return new JPADeleteClause(entityManager, task)
+                .where(task.id.in(ids), task.author.id.eq(authorId))
+                .execute();
+    }
+
+    // FOR UPDATE не даёт задачам измениться до конца транзакции вызывающего.
+    // Условие не должно соединять другие таблицы, иначе их строки тоже будут заблокированы
+    @Override
+    @Transactional
+    public List<Long> lockIds(final Predicate predicate, final long limit) {
+        final QTask task = QTask.task;
+        return new JPAQuery<>(entityManager)
+                .select(task.id)
+                .from(task)
+                .where(predicate)
+                .orderBy(task.id.asc())
+                .limit(limit)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .fetch();
+    }
+
+    @Override
+    @Transactional
+    public long deleteWithLabels(final Collection<Long> ids) {
+        final QTask task = QTask.task;
+        nativeUpdate("delete from tasks_labels where task_id in (:ids)")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return new JPADeleteClause(entityManager, task)
+                .where(task.id.in(ids))
+                .execute();
+    }
+
+    // Запрос сбрасывает только закешированные данные задач, а не весь кеш второго уровня
+    private NativeQuery<?> nativeUpdate(final String sql) {
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Task.class);
+    }
+
+    private Map<Long, Long> countBy(final NumberPath<Long> key) {
+        final QTask task = QTask.task;
+        return toCounts(new JPAQuery<Tuple>(entityManager)
+                .select(key, task.count())
+                .from(task)
+                .where(key.isNotNull())
+                .groupBy(key)
+                .fetch());
+    }
+
+    private static Map<Long, Long> toCounts(final List<Tuple> groups) {
+        return groups.stream()
+                .collect(Collectors.toMap(group -> group.get(0, Long.class), group -> group.get(1, Long.class)));
+    }
+
+    private List<TaskRow> withLabels(final List<TaskRow> chunk) {
+        final QTask task = QTask.task;
+        final QLabel label = QLabel.label;
+        final Map<Long, TaskRow> rows = chunk.stream()
+                .collect(Collectors.toMap(TaskRow::getId, Function.identity()));
+        new JPAQuery<Tuple>(entityManager)
+                .select(task.id, label.id, label.name)
+                .from(task)
+                .join(task.labels, label)
+                .where(task.id.in(rows.keySet()))
+                .orderBy(task.id.asc(), label.id.asc())
+                .fetch()
+                .forEach(tuple -> {
+                    final TaskRow row = rows.get(tuple.get(task.id));
+                    row.getLabelIds().add(tuple.get(label.id));
+                    row.getLabels().add(tuple.get(label.name));
+                });
+        return chunk;
+    }
+
+    private static TaskRow toRow(final Tuple tuple) {
+        final QTask task = QTask.task;
+        final TaskRow row = new TaskRow();
+        row.setId(tuple.get(task.id));
+        row.setName(tuple.get(task.name));
+        row.setDescription(tuple.get(task.description));
+        row.setCreatedAt(tuple.get(task.createdAt));
+        row.setTaskStatusId(tuple.get(STATUS.id));
+        row.setTaskStatus(tuple.get(STATUS.name));
+        row.setAuthorId(tuple.get(AUTHOR.id));
+        row.setAuthor(fullName(tuple.get(AUTHOR.firstName), tuple.get(AUTHOR.lastName)));
+        row.setExecutorId(tuple.get(EXECUTOR.id));
+        row.setExecutor(fullName(tuple.get(EXECUTOR.firstName), tuple.get(EXECUTOR.lastName)));
+        return row;
+    }
+
+    private static String fullName(final String firstName, final String lastName) {
+        return firstName == null ? null : firstName + " " + lastName;
+    }
+}
@@ -0,0 +1,24 @@
+package hexlet.code.repository;
+
+import hexlet.code.model.TaskTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TaskTombstoneRepository extends JpaRepository<TaskTombstone, Long> {
+
+    // Удалённые после ключа (version, taskId) и до номера below задачи в порядке ключа
+    @Query("""
+            select t from TaskTombstone t
+            where (t.changeVersion > :version or t.changeVersion = :version and t.taskId > :taskId)
+                and t.changeVersion < :below
+            order by t.changeVersion, t.taskId
+        """)
+    List<TaskTombstone> findAfter(@Param("version") long version, @Param("taskId") long taskId,
+                                  @Param("below") long below, Pageable pageable);
+}
@@ -0,0 +1,63 @@
+package hexlet.code.repository;
+
+import com.querydsl.core.BooleanBuilder;
+import hexlet.code.model.QTaskView;
+import hexlet.code.model.TaskView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.querydsl.binding.QuerydslBinderCustomizer;
+import org.springframework.data.querydsl.binding.QuerydslBindings;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TaskViewRepository extends JpaRepository<TaskView, Long>, QuerydslPredicateExecutor<TaskView>,
+        QuerydslBinderCustomizer<QTaskView>, TaskViewRepositoryCustom {
+
+    // Параметры фильтра совпадают с теми, что принимал фильтр по задачам: taskStatus, executor, author, labels.
+    // Как и раньше, задача должна иметь все переданные метки
+    @Override
+    default void customize(final QuerydslBindings bindings, final QTaskView view) {
+        bindings.bind(view.taskStatusId).as("taskStatus").withDefaultBinding();
+        bindings.bind(view.executorId).as("executor").withDefaultBinding();
+        bindings.bind(view.authorId).as("author").withDefaultBinding();
+        bindings.bind(view.labelIds).as("labels").all((path, labelIds) -> {
+            final BooleanBuilder allLabels = new BooleanBuilder();
+            labelIds.forEach(labelId -> allLabels.and(path.contains("," + labelId + ",")));
+            return Optional.ofNullable(allLabels.getValue());
+        });
+    }
+
+    List<TaskView> findByLabelIdsContaining(String labelId);
+
+    @Modifying
+    @Query("""
+            update TaskView v set v.taskStatusName = :name, v.changeVersion = :changeVersion
+            where v.taskStatusId = :id
+        """)
+    int updateTaskStatusName(@Param("id") long id, @Param("name") String name,
+                             @Param("changeVersion") long changeVersion);
+
+    @Modifying
+    @Query("""
+            update TaskView v set v.authorFirstName = :firstName, v.authorLastName = :lastName,
+                v.changeVersion = :changeVersion
+            where v.authorId = :id
+        """)
+    int updateAuthorName(@Param("id") long id, @Param("firstName") String firstName,
+                         @Param("lastName") String lastName, @Param("changeVersion") long changeVersion);
+
+    @Modifying
+    @Query("""
+            update TaskView v set v.executorFirstName = :firstName, v.executorLastName = :lastName,
+                v.changeVersion = :changeVersion
+            where v.executorId = :id
+        """)
+    int updateExecutorName(@Param("id") long id, @Param("firstName") String firstName,
+                           @Param("lastName") String lastName, @Param("changeVersion") long changeVersion);
+}
@@ -0,0 +1,15 @@
+package hexlet.code.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import hexlet.code.model.TaskView;
+
+import java.util.List;
+
+public interface TaskViewRepositoryCustom {
+
+    List<TaskView> findSlice(Predicate predicate, long limit, OrderSpecifier<?>... orders);
+
+    // Читает только id подходящих задач в заданном порядке
+    List<Long> findIds(Predicate predicate, long limit, OrderSpecifier<?>... orders);
+}
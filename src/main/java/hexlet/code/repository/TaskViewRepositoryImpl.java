@@ -0,0 +1,48 @@
+package hexlet.code.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQuery;
+import hexlet.code.model.QTaskView;
+import hexlet.code.model.TaskView;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+@Transactional(readOnly = true)
+public class TaskViewRepositoryImpl implements TaskViewRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // В отличие от QuerydslPredicateExecutor.findAll(predicate, pageable) запрос количества не выполняется
+    @Override
+    public List<TaskView> findSlice(final Predicate predicate, final long limit, final OrderSpecifier<?>... orders) {
+        final QTaskView view = QTaskView.taskView;
+        final JPAQuery<TaskView> query = new JPAQuery<>(entityManager)
+                .select(view)
+                .from(view)
+                .where(predicate)
+                .orderBy(orders);
+        if (limit > 0) {
+            query.limit(limit);
+        }
+        return query.fetch();
+    }
+
+    @Override
+    public List<Long> findIds(final Predicate predicate, final long limit, final OrderSpecifier<?>... orders) {
+        final QTaskView view = QTaskView.taskView;
+        final JPAQuery<Long> query = new JPAQuery<>(entityManager)
+                .select(view.taskId)
+                .from(view)
+                .where(predicate)
+                .orderBy(orders);
+        if (limit > 0) {
+            query.limit(limit);
+        }
+        return query.fetch();
+    }
+}
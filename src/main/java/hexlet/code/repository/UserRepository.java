@@ -2,12 +2,25 @@ package hexlet.code.repository;
 
 import hexlet.code.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
     Optional<User> findByEmail(String email);
+
+    // Адреса в файлах импорта набраны вручную, поэтому сравниваются без учёта регистра.
+    // В PostgreSQL условие обслуживает индекс по lower(email)
+    @Query("select u from User u where lower(u.email) = lower(:email) order by u.id")
+    List<User> findAllByEmailIgnoringCase(@Param("email") String email);
 }
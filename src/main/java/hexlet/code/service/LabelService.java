@@ -6,5 +6,8 @@ import hexlet.code.model.Label;
 public interface LabelService {
     Label createNewLabel(LabelDto dto);
 
-    Label updateLabel(long id, LabelDto dto);
+    // version - версия из If-Match, null - без проверки
+    Label updateLabel(long id, LabelDto dto, Long version);
+
+    void deleteLabel(long id, Long version);
 }
@@ -1,29 +1,53 @@
 package hexlet.code.service;
 
+import hexlet.code.component.Outbox;
 import hexlet.code.dto.LabelDto;
 import hexlet.code.model.Label;
+import hexlet.code.model.OutboxEvent;
 import hexlet.code.repository.LabelRepository;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Map;
+
 @Service
 @Transactional
 @AllArgsConstructor
 public class LabelServiceImpl implements LabelService {
 
     private final LabelRepository labelRepository;
+
+    private final TaskViewService taskViewService;
+
+    private final Outbox outbox;
+
     @Override
     public Label createNewLabel(LabelDto dto) {
         final Label label = new Label();
         label.setName(dto.getName());
-        return labelRepository.save(label);
+        final Label newLabel = labelRepository.save(label);
+        outbox.created(OutboxEvent.LABEL, newLabel.getId(), Outbox.fieldsOf(newLabel));
+        return newLabel;
     }
 
     @Override
-    public Label updateLabel(long id, LabelDto dto) {
+    public Label updateLabel(long id, LabelDto dto, Long version) {
         final Label labelToUpdate = labelRepository.findById(id).get();
+        Versions.check("Label", id, labelToUpdate.getVersion(), version);
+        final Map<String, Object> before = Outbox.fieldsOf(labelToUpdate);
         labelToUpdate.setName(dto.getName());
-        return labelRepository.save(labelToUpdate);
+        final Label updatedLabel = labelRepository.save(labelToUpdate);
+        taskViewService.onLabelUpdated(updatedLabel);
+        outbox.updated(OutboxEvent.LABEL, id, before, Outbox.fieldsOf(updatedLabel));
+        return updatedLabel;
+    }
+
+    @Override
+    public void deleteLabel(long id, Long version) {
+        final Label label = labelRepository.findById(id).get();
+        Versions.check("Label", id, label.getVersion(), version);
+        labelRepository.delete(label);
+        outbox.deleted(OutboxEvent.LABEL, id);
     }
 }
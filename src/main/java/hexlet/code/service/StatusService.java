@@ -7,6 +7,9 @@ public interface StatusService {
 
     Status createNewStatus(StatusDto statusDto);
 
-    Status updateStatus(long id, StatusDto dto);
+    // version - версия из If-Match, null - без проверки
+    Status updateStatus(long id, StatusDto dto, Long version);
+
+    void deleteStatus(long id, Long version);
 
 }
@@ -1,12 +1,16 @@
 package hexlet.code.service;
 
+import hexlet.code.component.Outbox;
 import hexlet.code.dto.StatusDto;
+import hexlet.code.model.OutboxEvent;
 import hexlet.code.model.Status;
 import hexlet.code.repository.StatusRepository;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Map;
+
 
 @Service
 @Transactional
@@ -15,19 +19,38 @@ public class StatusServiceImpl implements StatusService {
 
     private final StatusRepository statusRepository;
 
+    private final TaskViewService taskViewService;
+
+    private final Outbox outbox;
+
 
     @Override
     public Status createNewStatus(StatusDto statusDto) {
         final Status status = new Status();
         status.setName(statusDto.getName());
-        return statusRepository.save(status);
+        final Status newStatus = statusRepository.save(status);
+        outbox.created(OutboxEvent.STATUS, newStatus.getId(), Outbox.fieldsOf(newStatus));
+        return newStatus;
     }
 
     @Override
-    public Status updateStatus(long id, StatusDto statusDto) {
+    public Status updateStatus(long id, StatusDto statusDto, Long version) {
         final Status statusToUpdate = statusRepository.findById(id).get();
+        Versions.check("Status", id, statusToUpdate.getVersion(), version);
+        final Map<String, Object> before = Outbox.fieldsOf(statusToUpdate);
         statusToUpdate.setName(statusDto.getName());
-        return statusRepository.save(statusToUpdate);
+        final Status updatedStatus = statusRepository.save(statusToUpdate);
+        taskViewService.onStatusUpdated(updatedStatus);
+        outbox.updated(OutboxEvent.STATUS, id, before, Outbox.fieldsOf(updatedStatus));
+        return updatedStatus;
+    }
+
+    @Override
+    public void deleteStatus(long id, Long version) {
+        final Status status = statusRepository.findById(id).get();
+        Versions.check("Status", id, status.getVersion(), version);
+        statusRepository.delete(status);
+        outbox.deleted(OutboxEvent.STATUS, id);
     }
 
 }
@@ -0,0 +1,63 @@
+package hexlet.code.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.querydsl.core.types.Predicate;
+import hexlet.code.dto.TaskExportFormat;
+import hexlet.code.dto.TaskRow;
+import hexlet.code.repository.TaskRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+@Service
+@Transactional(readOnly = true)
+@AllArgsConstructor
+public class TaskExportServiceImpl implements TaskExportService {
+
+    public static final int EXPORT_FETCH_SIZE = 500;
+
+    private static final CsvMapper CSV_MAPPER = (CsvMapper) new CsvMapper()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final TaskRepository taskRepository;
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void export(final Predicate predicate, final TaskExportFormat format, final OutputStream out)
+            throws IOException {
+        try (SequenceWriter writer = writerFor(format, out)) {
+            taskRepository.scrollRows(predicate, EXPORT_FETCH_SIZE, chunk -> write(writer, chunk));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private SequenceWriter writerFor(final TaskExportFormat format, final OutputStream out) throws IOException {
+        return switch (format) {
+            case NDJSON -> objectMapper.writer()
+                    .withRootValueSeparator("\n")
+                    .writeValues(out);
+            case CSV -> CSV_MAPPER.writer(CSV_MAPPER.schemaFor(TaskRow.class).withHeader())
+                    .writeValues(out);
+        };
+    }
+
+    // Каждая часть отправляется клиенту до того, как из курсора читается следующая
+    private void write(final SequenceWriter writer, final List<TaskRow> chunk) {
+        try {
+            writer.writeAll(chunk);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package hexlet.code.service;
+
+import hexlet.code.dto.TaskExportFormat;
+import hexlet.code.model.TaskImportJob;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface TaskImportService {
+
+    // Сохраняет файл и ставит задание в очередь, задачи создаются в фоне от имени текущего пользователя
+    TaskImportJob start(TaskExportFormat format, InputStream body) throws IOException;
+
+    // Задание доступно только пользователю, загрузившему файл
+    TaskImportJob getJob(long id);
+}
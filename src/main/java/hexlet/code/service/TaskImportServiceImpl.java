@@ -0,0 +1,67 @@
+package hexlet.code.service;
+
+import hexlet.code.component.TaskImportRunner;
+import hexlet.code.dto.TaskExportFormat;
+import hexlet.code.exception.NotFoundException;
+import hexlet.code.model.TaskImportJob;
+import hexlet.code.repository.TaskImportJobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+// Без транзакции: задание коммитится до того, как его ищет runner.
+// У каталога файлов нет значения по умолчанию: он должен переживать перезапуск и быть общим для экземпляров
+@Service
+public class TaskImportServiceImpl implements TaskImportService {
+
+    private final TaskImportJobRepository taskImportJobRepository;
+    private final TaskImportRunner taskImportRunner;
+    private final UserService userService;
+    private final Path directory;
+
+    public TaskImportServiceImpl(final TaskImportJobRepository taskImportJobRepository,
+                                 final TaskImportRunner taskImportRunner,
+                                 final UserService userService,
+                                 @Value("${task-import.directory}") final String directory) {
+        this.taskImportJobRepository = taskImportJobRepository;
+        this.taskImportRunner = taskImportRunner;
+        this.userService = userService;
+        this.directory = Path.of(directory);
+    }
+
+    // Тело запроса копируется в каталог по мере получения, поэтому целиком в памяти не держится,
+    // а задание, прерванное перезапуском, читает тот же файл заново
+    @Override
+    public TaskImportJob start(final TaskExportFormat format, final InputStream body) throws IOException {
+        final Long authorId = userService.getCurrentUser().getId();
+        Files.createDirectories(directory);
+        final Path file = Files.createTempFile(directory, "tasks-", "." + format.getExtension());
+        try {
+            Files.copy(body, file, REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        final TaskImportJob job = taskImportJobRepository.save(new TaskImportJob(authorId, format, file.toString()));
+        taskImportRunner.submit(job.getId());
+        return job;
+    }
+
+    @Override
+    public TaskImportJob getJob(final long id) {
+        final TaskImportJob job = taskImportJobRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Import job not found: " + id));
+        if (!Objects.equals(job.getAuthorId(), userService.getCurrentUser().getId())) {
+            throw new AccessDeniedException("Only the author can read import job " + id);
+        }
+        return job;
+    }
+}
@@ -1,10 +1,60 @@
 package hexlet.code.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.querydsl.core.types.Predicate;
+import hexlet.code.dto.TaskBatchResult;
+import hexlet.code.dto.TaskBatchUpdateDto;
+import hexlet.code.dto.TaskBulkResult;
+import hexlet.code.dto.TaskBulkUpdateDto;
+import hexlet.code.dto.TaskChanges;
 import hexlet.code.dto.TaskDto;
+import hexlet.code.dto.TaskFacets;
+import hexlet.code.dto.TaskPage;
+import hexlet.code.dto.TaskPageRequest;
+import hexlet.code.dto.TaskRow;
 import hexlet.code.model.Task;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 public interface TaskService {
     Task createNewTask(TaskDto dto);
 
-    Task updateTask(long id, TaskDto dto);
+    // version - версия из If-Match, null - без проверки
+    Task updateTask(long id, TaskDto dto, Long version);
+
+    // patch - JSON Merge Patch (RFC 7396): изменяются только переданные поля, null удаляет значение
+    Task patchTask(long id, JsonNode patch, Long version);
+
+    // Повторное добавление и снятие отсутствующей метки ничего не меняют
+    Task addLabel(long id, long labelId, Long version);
+
+    Task removeLabel(long id, long labelId, Long version);
+
+    // Корректные элементы сохраняются, для остальных в результате возвращаются ошибки
+    List<TaskBatchResult> createTasks(List<TaskDto> dtos);
+
+    // Как createTasks, но от имени author без текущего пользователя: для фонового импорта
+    List<TaskBatchResult> importTasks(long authorId, List<TaskDto> dtos);
+
+    List<TaskBatchResult> updateTasks(List<TaskBatchUpdateDto> dtos);
+
+    void deleteTask(long id, Long version);
+
+    // Меняет или удаляет все задачи текущего пользователя по фильтру списка задач, фильтр обязателен
+    TaskBulkResult updateMatching(Predicate predicate, TaskBulkUpdateDto dto);
+
+    TaskBulkResult deleteMatching(Predicate predicate);
+
+    // Передаёт строки до limit задач по фильтру в archive и удаляет задачи из рабочих таблиц в той же транзакции.
+    // Для подписчиков и синхронизации задачи удалены. Возвращает количество перенесённых задач
+    int archiveTasks(Predicate predicate, int limit, Consumer<List<TaskRow>> archive);
+
+    // facets - null, если фильтр содержит условия, которые нельзя вычислить по индексу
+    TaskPage getTasks(Predicate predicate, TaskFacets facets, TaskPageRequest pageRequest);
+
+    TaskPage searchTasks(String query, int page, Integer size);
+
+    // since - токен предыдущего ответа, null - с начала, то есть все задачи
+    TaskChanges getChanges(String since, Integer size);
 }
@@ -1,47 +1,819 @@
 package hexlet.code.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpression;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import hexlet.code.component.TableVersions;
+import hexlet.code.component.TaskChangeVersions;
+import hexlet.code.component.TaskFacetIndex;
+import hexlet.code.component.TaskQueryCache;
+import hexlet.code.component.TaskSearchIndex;
+import hexlet.code.dto.Fieldset;
+import hexlet.code.dto.TaskBatchResult;
+import hexlet.code.dto.TaskBatchUpdateDto;
+import hexlet.code.dto.TaskBulkResult;
+import hexlet.code.dto.TaskBulkUpdateDto;
+import hexlet.code.dto.TaskChanges;
+import hexlet.code.dto.TaskCursor;
 import hexlet.code.dto.TaskDto;
+import hexlet.code.dto.TaskFacets;
+import hexlet.code.dto.TaskPage;
+import hexlet.code.dto.TaskPageRequest;
+import hexlet.code.dto.TaskRow;
+import hexlet.code.dto.TaskSyncToken;
+import hexlet.code.event.TaskChangedEvent;
+import hexlet.code.exception.BadRequestException;
 import hexlet.code.model.Label;
+import hexlet.code.model.QTask;
+import hexlet.code.model.QTaskView;
 import hexlet.code.model.Status;
 import hexlet.code.model.Task;
+import hexlet.code.model.TaskTombstone;
+import hexlet.code.model.TaskView;
 import hexlet.code.model.User;
+import hexlet.code.repository.LabelRepository;
+import hexlet.code.repository.ProjectionRepository;
+import hexlet.code.repository.StatusRepository;
 import hexlet.code.repository.TaskRepository;
+import hexlet.code.repository.TaskTombstoneRepository;
+import hexlet.code.repository.TaskViewRepository;
+import hexlet.code.repository.UserRepository;
 import lombok.AllArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static hexlet.code.service.TaskViewService.MAX_ID_LIST_SIZE;
 
 @Service
+@Transactional
 @AllArgsConstructor
 public class TaskServiceImpl implements TaskService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_BATCH_SIZE = 1000;
+    public static final int MAX_CHANGES_PAGE_SIZE = 1000;
+
+    private static final String SORT_BY_ID = "id";
+    private static final String SORT_BY_CREATED_AT = "createdAt";
+    private static final String SORT_BY_NAME = "name";
+
     private final TaskRepository taskRepository;
+    private final TaskViewRepository taskViewRepository;
+    private final TaskViewService taskViewService;
+    private final ProjectionRepository projectionRepository;
+    private final TaskSearchIndex taskSearchIndex;
+    private final TaskFacetIndex taskFacetIndex;
+    private final TaskQueryCache taskQueryCache;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
     private final UserService userService;
     private final StatusService statusService;
+    private final StatusRepository statusRepository;
+    private final UserRepository userRepository;
+    private final LabelRepository labelRepository;
+    private final Validator validator;
+    private final TaskTombstoneRepository taskTombstoneRepository;
+    private final TaskChangeVersions taskChangeVersions;
+    private final TableVersions tableVersions;
 
     @Override
     public Task createNewTask(TaskDto dto) {
-        final Task newTask = fromDto(dto);
-        return taskRepository.save(newTask);
+        // createdAt заполняется при вставке, а она с id из последовательности откладывается до flush
+        final Task newTask = taskRepository.saveAndFlush(fromDto(dto));
+        eventPublisher.publishEvent(new TaskChangedEvent(null, taskViewService.save(newTask)));
+        return newTask;
     }
 
     @Override
-    public Task updateTask(final long id, final TaskDto dto) {
+    public Task updateTask(final long id, final TaskDto dto, final Long version) {
         final Task task = taskRepository.findById(id).get();
+        Versions.check("Task", id, task.getVersion(), version);
+        final TaskView before = taskViewService.find(id);
         merge(task, dto);
-        return taskRepository.save(task);
+        final Task updatedTask = taskRepository.save(task);
+        eventPublisher.publishEvent(new TaskChangedEvent(before, taskViewService.save(updatedTask)));
+        return updatedTask;
+    }
+
+    // Статус, исполнитель и метки читаются по id из кеша второго уровня, а метки задачи - только если
+    // патч их меняет. С @DynamicUpdate в UPDATE попадают только изменённые колонки
+    @Override
+    public Task patchTask(final long id, final JsonNode patch, final Long version) {
+        if (patch == null || !patch.isObject()) {
+            throw new BadRequestException("Merge patch must be a JSON object");
+        }
+        final Task task = taskRepository.findById(id).get();
+        Versions.check("Task", id, task.getVersion(), version);
+        final TaskView before = taskViewService.find(id);
+        final Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        boolean labelsChanged = false;
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            final JsonNode value = field.getValue();
+            switch (field.getKey()) {
+                case "name" -> {
+                    if (!value.isTextual() || value.asText().isBlank()) {
+                        throw new BadRequestException("name: must not be blank");
+                    }
+                    task.setName(value.asText());
+                }
+                case "description" -> task.setDescription(value.isNull() ? null : value.asText());
+                case "taskStatusId" -> task.setTaskStatus(statusRepository.findById(idOf(field))
+                        .orElseThrow(() -> new BadRequestException("taskStatusId: status not found")));
+                case "executorId" -> task.setExecutor(value.isNull() ? null : userRepository.findById(idOf(field))
+                        .orElseThrow(() -> new BadRequestException("executorId: user not found")));
+                case "labelIds" -> {
+                    mergeLabels(task, labelsOf(value));
+                    labelsChanged = true;
+                }
+                default -> throw new BadRequestException("Unsupported field: " + field.getKey());
+            }
+        }
+        final Task patchedTask = taskRepository.save(task);
+        eventPublisher.publishEvent(new TaskChangedEvent(before, taskViewService.patch(patchedTask, labelsChanged)));
+        return patchedTask;
+    }
+
+    @Override
+    public Task addLabel(final long id, final long labelId, final Long version) {
+        final Label label = labelRepository.findById(labelId)
+                .orElseThrow(() -> new BadRequestException("Label not found: " + labelId));
+        final Task task = taskRepository.findById(id).get();
+        Versions.check("Task", id, task.getVersion(), version);
+        if (task.getLabels().stream().noneMatch(existing -> existing.getId() == labelId)) {
+            final TaskView before = taskViewService.find(id);
+            task.getLabels().add(label);
+            eventPublisher.publishEvent(new TaskChangedEvent(before, taskViewService.patch(task, true)));
+        }
+        return task;
+    }
+
+    @Override
+    public Task removeLabel(final long id, final long labelId, final Long version) {
+        final Task task = taskRepository.findById(id).get();
+        Versions.check("Task", id, task.getVersion(), version);
+        final TaskView before = taskViewService.find(id);
+        if (task.getLabels().removeIf(label -> label.getId() == labelId)) {
+            eventPublisher.publishEvent(new TaskChangedEvent(before, taskViewService.patch(task, true)));
+        }
+        return task;
+    }
+
+    // Статусы, исполнители и метки всех элементов читаются тремя запросами, а задачи, их метки
+    // и строки task_view вставляются пакетами JDBC
+    @Override
+    public List<TaskBatchResult> createTasks(final List<TaskDto> dtos) {
+        checkBatchSize(dtos);
+        return createAll(dtos, userService.getCurrentUser());
+    }
+
+    @Override
+    public List<TaskBatchResult> importTasks(final long authorId, final List<TaskDto> dtos) {
+        checkBatchSize(dtos);
+        return createAll(dtos, userRepository.findById(authorId).orElseThrow());
+    }
+
+    private List<TaskBatchResult> createAll(final List<TaskDto> dtos, final User author) {
+        final References references = new References(dtos);
+        final List<TaskBatchResult> results = new ArrayList<>(dtos.size());
+        final List<Task> tasks = new ArrayList<>();
+        for (int index = 0; index < dtos.size(); index++) {
+            final TaskDto dto = dtos.get(index);
+            final List<String> errors = references.check(dto, validate(dto));
+            if (errors.isEmpty()) {
+                final Task task = fromDto(dto, author, references);
+                tasks.add(task);
+                results.add(new TaskBatchResult(index, HttpStatus.CREATED.value(), task, List.of()));
+            } else {
+                results.add(new TaskBatchResult(index, HttpStatus.UNPROCESSABLE_ENTITY.value(), null, errors));
+            }
+        }
+        taskRepository.saveAllAndFlush(tasks);
+        taskViewService.createAll(tasks)
+                .forEach(view -> eventPublisher.publishEvent(new TaskChangedEvent(null, view)));
+        return results;
+    }
+
+    // Задачу, как и при одиночном обновлении, может изменить только её автор
+    @Override
+    public List<TaskBatchResult> updateTasks(final List<TaskBatchUpdateDto> dtos) {
+        checkBatchSize(dtos);
+        final References references = new References(dtos);
+        final User currentUser = userService.getCurrentUser();
+        final Set<Long> ids = dtos.stream()
+                .map(TaskBatchUpdateDto::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        final Map<Long, Task> existing = (ids.isEmpty() ? List.<Task>of() : taskRepository.findSlice(
+                QTask.task.id.in(ids), 0))
+                .stream()
+                .collect(Collectors.toMap(Task::getId, Function.identity()));
+        final Map<Long, TaskView> before = taskViewService.findAll(existing.keySet())
+                .stream()
+                .collect(Collectors.toMap(TaskView::getTaskId, Function.identity()));
+
+        final List<TaskBatchResult> results = new ArrayList<>(dtos.size());
+        final List<Task> tasks = new ArrayList<>();
+        final Set<Long> seen = new HashSet<>();
+        for (int index = 0; index < dtos.size(); index++) {
+            final TaskBatchUpdateDto dto = dtos.get(index);
+            final List<String> errors = references.check(dto, validate(dto));
+            final Task task = existing.get(dto.getId());
+            if (!errors.isEmpty()) {
+                results.add(new TaskBatchResult(index, HttpStatus.UNPROCESSABLE_ENTITY.value(), null, errors));
+            } else if (task == null) {
+                results.add(new TaskBatchResult(index, HttpStatus.NOT_FOUND.value(), null,
+                        List.of("id: task " + dto.getId() + " not found")));
+            } else if (!Objects.equals(task.getAuthor().getId(), currentUser.getId())) {
+                results.add(new TaskBatchResult(index, HttpStatus.FORBIDDEN.value(), null,
+                        List.of("id: only the author can update task " + dto.getId())));
+            } else if (!seen.add(dto.getId())) {
+                results.add(new TaskBatchResult(index, HttpStatus.UNPROCESSABLE_ENTITY.value(), null,
+                        List.of("id: task " + dto.getId() + " is updated twice in the batch")));
+            } else {
+                merge(task, fromDto(dto, task.getAuthor(), references));
+                tasks.add(task);
+                results.add(new TaskBatchResult(index, HttpStatus.OK.value(), task, List.of()));
+            }
+        }
+        taskRepository.saveAll(tasks);
+        taskViewService.saveAll(tasks)
+                .forEach(view -> eventPublisher.publishEvent(
+                        new TaskChangedEvent(before.get(view.getTaskId()), view)));
+        return results;
+    }
+
+    @Override
+    public void deleteTask(final long id, final Long version) {
+        final Task task = taskRepository.findById(id).get();
+        Versions.check("Task", id, task.getVersion(), version);
+        final TaskView before = taskViewService.find(id);
+        taskRepository.delete(task);
+        taskViewService.delete(id);
+        if (before != null) {
+            eventPublisher.publishEvent(new TaskChangedEvent(before, null));
+        }
+    }
+
+    // Запись множествами: несколько запросов на пачку id с автором в условии WHERE
+    // вместо проверки владельца, загрузки и полной перезаписи каждой задачи.
+    // Следом меняются строки модели чтения и события изменений, так что outbox и индексы в памяти видят каждую задачу
+    @Override
+    public TaskBulkResult updateMatching(final Predicate predicate, final TaskBulkUpdateDto dto) {
+        final Status status = Optional.ofNullable(dto.getTaskStatusId())
+                .map(id -> statusRepository.findById(id)
+                        .orElseThrow(() -> new BadRequestException("taskStatusId: status " + id + " not found")))
+                .orElse(null);
+        final User executor = Optional.ofNullable(dto.getExecutorId())
+                .map(id -> userRepository.findById(id)
+                        .orElseThrow(() -> new BadRequestException("executorId: user " + id + " not found")))
+                .orElse(null);
+        final Set<Long> addLabelIds = Optional.ofNullable(dto.getAddLabelIds()).orElse(Set.of());
+        final Set<Long> removeLabelIds = Optional.ofNullable(dto.getRemoveLabelIds()).orElse(Set.of());
+        if (addLabelIds.stream().anyMatch(removeLabelIds::contains)) {
+            throw new BadRequestException("addLabelIds and removeLabelIds must not overlap");
+        }
+        if (status == null && executor == null && addLabelIds.isEmpty() && removeLabelIds.isEmpty()) {
+            throw new BadRequestException("Nothing to change");
+        }
+        final List<Label> addLabels = labelRepository.findAllById(addLabelIds);
+        if (addLabels.size() != addLabelIds.size()) {
+            throw new BadRequestException("addLabelIds: label not found");
+        }
+
+        final long authorId = userService.getCurrentUser().getId();
+        long affected = 0;
+        for (List<Long> chunk : ownedTaskIds(predicate, authorId)) {
+            final Map<Long, TaskView> before = taskViewService.findAll(chunk)
+                    .stream()
+                    .collect(Collectors.toMap(TaskView::getTaskId, Function.identity()));
+            affected += taskRepository.updateOwned(chunk, authorId, status, executor);
+            if (!addLabelIds.isEmpty()) {
+                taskRepository.addLabels(chunk, authorId, addLabelIds);
+            }
+            if (!removeLabelIds.isEmpty()) {
+                taskRepository.removeLabels(chunk, authorId, removeLabelIds);
+            }
+            taskViewService.updateAll(chunk, status, executor, addLabels, removeLabelIds)
+                    .forEach(view -> eventPublisher.publishEvent(
+                            new TaskChangedEvent(before.get(view.getTaskId()), view)));
+        }
+        // Запросы проходят мимо событий Hibernate
+        tableVersions.changed(TableVersions.TASKS);
+        return new TaskBulkResult(affected);
+    }
+
+    @Override
+    public TaskBulkResult deleteMatching(final Predicate predicate) {
+        final long authorId = userService.getCurrentUser().getId();
+        long affected = 0;
+        for (List<Long> chunk : ownedTaskIds(predicate, authorId)) {
+            final List<TaskView> before = taskViewService.findAll(chunk);
+            affected += taskRepository.deleteOwned(chunk, authorId);
+            taskViewService.deleteAll(chunk);
+            before.forEach(view -> eventPublisher.publishEvent(new TaskChangedEvent(view, null)));
+        }
+        tableVersions.changed(TableVersions.TASKS);
+        return new TaskBulkResult(affected);
+    }
+
+    // Сначала строки блокируются, поэтому в архив попадает последняя версия каждой задачи
+    @Override
+    public int archiveTasks(final Predicate predicate, final int limit, final Consumer<List<TaskRow>> archive) {
+        final List<Long> ids = taskRepository.lockIds(predicate, limit);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        final List<TaskRow> rows = new ArrayList<>(ids.size());
+        taskRepository.scrollRows(QTask.task.id.in(ids), ids.size(), rows::addAll);
+        archive.accept(rows);
+        final List<TaskView> before = taskViewService.findAll(ids);
+        taskRepository.deleteWithLabels(ids);
+        taskViewService.deleteAll(ids);
+        before.forEach(view -> eventPublisher.publishEvent(new TaskChangedEvent(view, null)));
+        tableVersions.changed(TableVersions.TASKS);
+        return ids.size();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TaskPage searchTasks(final String query, final int page, final Integer size) {
+        final int pageSize = pageSize(size);
+        final TaskSearchIndex.Hits hits = Optional.ofNullable(
+                        taskSearchIndex.search(query, Math.max(page, 0) * pageSize, pageSize))
+                .orElseGet(() -> searchInDatabase(query, page, pageSize));
+        final Map<Long, TaskView> views = taskViewRepository.findAllById(hits.getTaskIds())
+                .stream()
+                .collect(Collectors.toMap(TaskView::getTaskId, Function.identity()));
+        final List<Task> tasks = hits.getTaskIds()
+                .stream()
+                .map(views::get)
+                .filter(Objects::nonNull)
+                .map(TaskView::toTask)
+                .toList();
+        return new TaskPage(tasks, null, hits.getTotal());
+    }
+
+    // Пока поисковый индекс загружается, каждое слово запроса ищется как подстрока названия или описания,
+    // а результаты упорядочены по id, без ранжирования
+    private TaskSearchIndex.Hits searchInDatabase(final String query, final int page, final int pageSize) {
+        final List<String> terms = TaskSearchIndex.terms(query);
+        if (terms.isEmpty()) {
+            return new TaskSearchIndex.Hits(List.of(), 0);
+        }
+        final QTaskView view = QTaskView.taskView;
+        final BooleanBuilder where = new BooleanBuilder();
+        terms.forEach(term -> where.and(view.name.containsIgnoreCase(term)
+                .or(view.description.containsIgnoreCase(term))));
+        final Page<TaskView> found = taskViewRepository.findAll(where,
+                PageRequest.of(Math.max(page, 0), pageSize, Sort.by("taskId")));
+        return new TaskSearchIndex.Hits(found.map(TaskView::getTaskId).getContent(), found.getTotalElements());
+    }
+
+    // Строки и надгробия читаются в порядке (changeVersion, taskId) ниже самого старого незавершённого изменения,
+    // поэтому изменение, закоммиченное позже, всегда оказывается после возвращённого токена
+    @Override
+    @Transactional(readOnly = true)
+    public TaskChanges getChanges(final String since, final Integer size) {
+        final int limit = pageSize(size, MAX_CHANGES_PAGE_SIZE);
+        final TaskSyncToken after = since == null ? TaskSyncToken.START : TaskSyncToken.decode(since);
+        final long below = taskChangeVersions.watermark();
+        final QTaskView view = QTaskView.taskView;
+        final List<TaskView> rows = taskViewRepository.findSlice(view.changeVersion.gt(after.getVersion())
+                        .or(view.changeVersion.eq(after.getVersion()).and(view.taskId.gt(after.getTaskId())))
+                        .and(view.changeVersion.lt(below)),
+                limit + 1, view.changeVersion.asc(), view.taskId.asc());
+        final List<TaskTombstone> tombstones = taskTombstoneRepository.findAfter(after.getVersion(),
+                after.getTaskId(), below, PageRequest.of(0, limit + 1));
+
+        final List<Task> tasks = new ArrayList<>();
+        final List<Long> deleted = new ArrayList<>();
+        int row = 0;
+        int tombstone = 0;
+        TaskSyncToken last = after;
+        while (tasks.size() + deleted.size() < limit && (row < rows.size() || tombstone < tombstones.size())) {
+            if (tombstone == tombstones.size() || row < rows.size()
+                    && compareKeys(rows.get(row), tombstones.get(tombstone)) < 0) {
+                final TaskView changed = rows.get(row++);
+                tasks.add(changed.toTask());
+                last = new TaskSyncToken(changed.getChangeVersion(), changed.getTaskId());
+            } else {
+                final TaskTombstone removed = tombstones.get(tombstone++);
+                deleted.add(removed.getTaskId());
+                last = new TaskSyncToken(removed.getChangeVersion(), removed.getTaskId());
+            }
+        }
+        final boolean more = row < rows.size() || tombstone < tombstones.size();
+        // Всё ниже границы прочитано, следующий запрос начинается с неё
+        final TaskSyncToken next = more
+                ? last
+                : new TaskSyncToken(Math.max(last.getVersion(), below - 1), Long.MAX_VALUE);
+        return new TaskChanges(tasks, deleted, next.encode(), more);
+    }
+
+    // Списки задач читаются из task_view, поэтому предикат строится по TaskView
+    @Override
+    @Transactional(readOnly = true)
+    public TaskPage getTasks(final Predicate predicate, final TaskFacets facets, final TaskPageRequest pageRequest) {
+        final TaskCursor cursor = Optional.ofNullable(pageRequest.getCursor())
+                .map(TaskCursor::decode)
+                .orElse(null);
+        final String[] sort = Optional.ofNullable(pageRequest.getSort())
+                .orElse(SORT_BY_CREATED_AT)
+                .split(",");
+        // Курсор фиксирует сортировку, с которой была получена предыдущая страница
+        final String sortBy = cursor != null ? cursor.getSort() : sort[0].trim();
+        final boolean descending = cursor != null
+                ? cursor.isDescending()
+                : sort.length > 1 && "desc".equalsIgnoreCase(sort[1].trim());
+
+        final int size = pageSize(pageRequest.getSize());
+        final ComparableExpressionBase<?> sortKey = sortKey(sortBy);
+        final QTaskView view = QTaskView.taskView;
+        final List<Path<?>> columns = columns(pageRequest.getFields(), sortKey);
+
+        // Фасетный фильтр вычисляется по bitmap-индексу, а из базы читаются только строки страницы.
+        // Если индекс недоступен, фасеты проверяются в базе
+        final RoaringBitmap matches = facets != null ? taskFacetIndex.match(facets) : null;
+        final Predicate filterPredicate = facets != null ? toPredicate(facets) : predicate;
+        if (matches != null && SORT_BY_ID.equals(sortBy)) {
+            return pageOf(matches, cursor, descending, pageRequest.isPaged() ? size : 0, pageRequest.isCount(),
+                    columns);
+        }
+
+        // Без фасетов подходят все задачи, и условие не нужно вовсе.
+        // Большие совпадения фильтруются базой по фасетам, а не списком id в IN
+        final BooleanBuilder filter = new BooleanBuilder();
+        if (matches == null || facets.isEmpty()) {
+            filter.and(filterPredicate);
+        } else if (matches.getCardinality() <= MAX_ID_LIST_SIZE) {
+            filter.and(view.taskId.in(toIds(matches)));
+        } else {
+            filter.and(toPredicate(facets));
+        }
+        final OrderSpecifier<?> byId = descending ? view.taskId.desc() : view.taskId.asc();
+        final OrderSpecifier<?>[] orders = SORT_BY_ID.equals(sortBy)
+                ? new OrderSpecifier<?>[] {byId}
+                : new OrderSpecifier<?>[] {descending ? sortKey.desc() : sortKey.asc(), byId};
+
+        // Повторяющиеся фильтры отвечаются по закешированному списку id, строки страницы - из кеша сущностей
+        final long[] cachedIds = taskQueryCache.getIds(filterPredicate,
+                (Path<?>) sortKey, descending, limit -> taskViewRepository.findIds(filter, limit, orders));
+        final TaskPage cachedPage = cachedIds != null
+                ? pageOf(cachedIds, cursor, sortBy, descending, pageRequest.isPaged() ? size : 0,
+                        pageRequest.isCount(), columns)
+                : null;
+        if (cachedPage != null) {
+            return cachedPage;
+        }
+
+        final BooleanBuilder where = new BooleanBuilder(filter);
+        if (cursor != null) {
+            where.and(after(cursor));
+        }
+        final List<TaskView> tasks = findViews(where, columns, pageRequest.isPaged() ? size + 1 : 0, orders);
+
+        final boolean hasNext = pageRequest.isPaged() && tasks.size() > size;
+        final List<TaskView> content = hasNext ? tasks.subList(0, size) : tasks;
+        final String next = hasNext
+                ? cursorOf(content.get(content.size() - 1), sortBy, descending).encode()
+                : null;
+        final Long total;
+        if (!pageRequest.isCount()) {
+            total = null;
+        } else if (matches != null) {
+            total = (long) matches.getCardinality();
+        } else {
+            total = taskViewRepository.count(new BooleanBuilder().and(filterPredicate));
+        }
+
+        return new TaskPage(content.stream().map(TaskView::toTask).toList(), next, total);
+    }
+
+    // Страница по id берётся прямо из bitmap: rank находит позицию курсора, select - id по позиции
+    private TaskPage pageOf(final RoaringBitmap matches, final TaskCursor cursor, final boolean descending,
+                            final int limit, final boolean count, final List<Path<?>> columns) {
+        final int cardinality = matches.getCardinality();
+        final int pageSize = limit > 0 ? limit : cardinality;
+        final List<Long> ids = new ArrayList<>(Math.min(pageSize, cardinality));
+        int position;
+        if (descending) {
+            position = cursor == null
+                    ? cardinality - 1
+                    : (int) matches.rankLong(bitmapId(cursor.getId() - 1)) - 1;
+            for (; position >= 0 && ids.size() < pageSize; position--) {
+                ids.add((long) matches.select(position));
+            }
+        } else {
+            position = cursor == null ? 0 : (int) matches.rankLong(bitmapId(cursor.getId()));
+            for (; position < cardinality && ids.size() < pageSize; position++) {
+                ids.add((long) matches.select(position));
+            }
+        }
+
+        final boolean hasNext = limit > 0 && (descending ? position >= 0 : position < cardinality);
+        final String next = hasNext
+                ? new TaskCursor(SORT_BY_ID, descending, ids.get(ids.size() - 1), "").encode()
+                : null;
+        return new TaskPage(toTasks(hydrate(ids, columns)), next, count ? (long) cardinality : null);
+    }
+
+    // Курсор ищется в закешированном списке по id задачи. Если его там нет, возвращается null,
+    // и страница читается из базы по значению ключа сортировки в курсоре
+    private TaskPage pageOf(final long[] ids, final TaskCursor cursor, final String sortBy, final boolean descending,
+                            final int limit, final boolean count, final List<Path<?>> columns) {
+        int from = 0;
+        if (cursor != null) {
+            from = -1;
+            for (int position = 0; position < ids.length && from < 0; position++) {
+                if (ids[position] == cursor.getId()) {
+                    from = position + 1;
+                }
+            }
+            if (from < 0) {
+                return null;
+            }
+        }
+        final int to = limit > 0 ? Math.min(from + limit, ids.length) : ids.length;
+        final List<TaskView> content = hydrate(Arrays.stream(ids, from, to).boxed().toList(), columns);
+        final String next = to < ids.length && !content.isEmpty()
+                ? cursorOf(content.get(content.size() - 1), sortBy, descending).encode()
+                : null;
+        return new TaskPage(toTasks(content), next, count ? (long) ids.length : null);
+    }
+
+    // Задачи возвращаются в порядке ids: лежащие в кеше второго уровня берутся оттуда,
+    // остальные читаются по первичному ключу
+    private List<TaskView> hydrate(final List<Long> ids, final List<Path<?>> columns) {
+        final Cache cache = entityManager.getEntityManagerFactory().getCache();
+        final Map<Long, TaskView> views = new HashMap<>();
+        final List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            final TaskView cached = cache.contains(TaskView.class, id) ? entityManager.find(TaskView.class, id) : null;
+            if (cached != null) {
+                views.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        for (int from = 0; from < missing.size(); from += MAX_ID_LIST_SIZE) {
+            final List<Long> chunk = missing.subList(from, Math.min(from + MAX_ID_LIST_SIZE, missing.size()));
+            findViews(QTaskView.taskView.taskId.in(chunk), columns, 0)
+                    .forEach(view -> views.put(view.getTaskId(), view));
+        }
+        return ids.stream()
+                .map(views::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static List<Task> toTasks(final List<TaskView> views) {
+        return views.stream().map(TaskView::toTask).toList();
+    }
+
+    // Без fields читаются сущности целиком, иначе только колонки запрошенных полей и ключей сортировки
+    private static List<Path<?>> columns(final String fields, final ComparableExpressionBase<?> sortKey) {
+        final Set<String> selected = Fieldset.TASK.parse(fields);
+        if (selected == null) {
+            return List.of();
+        }
+        return Stream.concat(Fieldset.TASK.columns(selected).stream(), Stream.of((Path<?>) sortKey))
+                .distinct()
+                .toList();
+    }
+
+    private List<TaskView> findViews(final Predicate predicate, final List<Path<?>> columns, final long limit,
+                                     final OrderSpecifier<?>... orders) {
+        return columns.isEmpty()
+                ? taskViewRepository.findSlice(predicate, limit, orders)
+                : projectionRepository.findAll(QTaskView.taskView, columns, predicate, limit, orders);
+    }
+
+    // Индекс отвечает, только пока все id помещаются в int, поэтому больший id курсора идёт после всех совпадений
+    private static int bitmapId(final long id) {
+        return (int) Math.max(0, Math.min(id, Integer.MAX_VALUE));
+    }
+
+    private static List<Long> toIds(final RoaringBitmap bitmap) {
+        final List<Long> ids = new ArrayList<>(bitmap.getCardinality());
+        bitmap.forEach((int id) -> ids.add((long) id));
+        return ids;
+    }
+
+    private static Predicate toPredicate(final TaskFacets facets) {
+        final QTaskView view = QTaskView.taskView;
+        final List<Predicate> conditions = new ArrayList<>();
+        if (!facets.getTaskStatuses().isEmpty()) {
+            conditions.add(view.taskStatusId.in(facets.getTaskStatuses()));
+        }
+        if (!facets.getExecutors().isEmpty()) {
+            conditions.add(view.executorId.in(facets.getExecutors()));
+        }
+        if (!facets.getAuthors().isEmpty()) {
+            conditions.add(view.authorId.in(facets.getAuthors()));
+        }
+        if (!facets.getLabels().isEmpty()) {
+            final List<Predicate> labels = facets.getLabels()
+                    .stream()
+                    .map(labelId -> (Predicate) view.labelIds.contains("," + labelId + ","))
+                    .toList();
+            conditions.add(facets.isAny() ? ExpressionUtils.anyOf(labels) : ExpressionUtils.allOf(labels));
+        }
+        return facets.isAny() ? ExpressionUtils.anyOf(conditions) : ExpressionUtils.allOf(conditions);
+    }
+
+    private int pageSize(final Integer requestedSize) {
+        return pageSize(requestedSize, MAX_PAGE_SIZE);
+    }
+
+    private int pageSize(final Integer requestedSize, final int maxSize) {
+        final int size = Optional.ofNullable(requestedSize).orElse(maxSize);
+        if (size < 1) {
+            throw new BadRequestException("Page size must be positive: " + size);
+        }
+        return Math.min(size, maxSize);
+    }
+
+    private static int compareKeys(final TaskView row, final TaskTombstone tombstone) {
+        final int byVersion = Long.compare(row.getChangeVersion(), tombstone.getChangeVersion());
+        return byVersion != 0 ? byVersion : Long.compare(row.getTaskId(), tombstone.getTaskId());
+    }
+
+    private ComparableExpressionBase<?> sortKey(final String sortBy) {
+        return switch (sortBy) {
+            case SORT_BY_ID -> QTaskView.taskView.taskId;
+            case SORT_BY_CREATED_AT -> QTaskView.taskView.createdAt;
+            case SORT_BY_NAME -> QTaskView.taskView.name;
+            default -> throw new BadRequestException("Unsupported sort key: " + sortBy);
+        };
+    }
+
+    private BooleanExpression after(final TaskCursor cursor) {
+        final QTaskView task = QTaskView.taskView;
+        final boolean descending = cursor.isDescending();
+        final BooleanExpression afterId = descending
+                ? task.taskId.lt(cursor.getId())
+                : task.taskId.gt(cursor.getId());
+        return switch (cursor.getSort()) {
+            case SORT_BY_ID -> afterId;
+            case SORT_BY_CREATED_AT -> after(task.createdAt, new Date(cursorTime(cursor)), descending, afterId);
+            case SORT_BY_NAME -> after(task.name, cursor.getValue(), descending, afterId);
+            default -> throw new BadRequestException("Unsupported sort key: " + cursor.getSort());
+        };
+    }
+
+    private static long cursorTime(final TaskCursor cursor) {
+        try {
+            return Long.parseLong(cursor.getValue());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Malformed cursor: " + cursor.encode(), e);
+        }
+    }
+
+    private static <T extends Comparable<? super T>> BooleanExpression after(final ComparableExpression<T> key,
+                                                                           final T value,
+                                                                           final boolean descending,
+                                                                           final BooleanExpression afterId) {
+        final BooleanExpression beyond = descending ? key.lt(value) : key.gt(value);
+        return beyond.or(key.eq(value).and(afterId));
+    }
+
+    private TaskCursor cursorOf(final TaskView last, final String sortBy, final boolean descending) {
+        final String value = switch (sortBy) {
+            case SORT_BY_CREATED_AT -> String.valueOf(last.getCreatedAt().getTime());
+            case SORT_BY_NAME -> last.getName();
+            default -> "";
+        };
+        return new TaskCursor(sortBy, descending, last.getTaskId(), value);
+    }
+
+    private static long idOf(final Map.Entry<String, JsonNode> field) {
+        if (!field.getValue().canConvertToLong()) {
+            throw new BadRequestException(field.getKey() + ": must be an id");
+        }
+        return field.getValue().asLong();
+    }
+
+    private Set<Label> labelsOf(final JsonNode value) {
+        if (value.isNull()) {
+            return new HashSet<>();
+        }
+        if (!value.isArray()) {
+            throw new BadRequestException("labelIds: must be an array of ids");
+        }
+        final Set<Long> ids = new HashSet<>();
+        value.forEach(id -> ids.add(idOf(Map.entry("labelIds", id))));
+        final Set<Label> labels = new HashSet<>(labelRepository.findAllById(ids));
+        if (labels.size() != ids.size()) {
+            throw new BadRequestException("labelIds: label not found");
+        }
+        return labels;
+    }
+
+    // Id задач текущего пользователя, подходящих под фильтр, пачками, которые помещаются в список IN
+    private List<List<Long>> ownedTaskIds(final Predicate predicate, final long authorId) {
+        if (ExpressionUtils.extract(predicate) == null) {
+            throw new BadRequestException("A filter is required for bulk changes");
+        }
+        final QTaskView view = QTaskView.taskView;
+        final List<Long> ids = taskViewRepository.findIds(ExpressionUtils.allOf(predicate, view.authorId.eq(authorId)),
+                0, view.taskId.asc());
+        final List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MAX_ID_LIST_SIZE) {
+            chunks.add(ids.subList(from, Math.min(from + MAX_ID_LIST_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+
+    private void checkBatchSize(final List<?> dtos) {
+        if (dtos.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Batch size must not exceed " + MAX_BATCH_SIZE + ": " + dtos.size());
+        }
+    }
+
+    private List<String> validate(final TaskDto dto) {
+        return validator.validate(dto)
+                .stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.toCollection(ArrayList::new));
     }
 
     private void merge(final Task task, final TaskDto dto) {
-        final Task newTask = fromDto(dto);
+        merge(task, fromDto(dto));
+    }
+
+    private void merge(final Task task, final Task newTask) {
         task.setExecutor(newTask.getExecutor());
         task.setTaskStatus(newTask.getTaskStatus());
         task.setName(newTask.getName());
         task.setDescription(newTask.getDescription());
-        task.setLabels(newTask.getLabels());
+        mergeLabels(task, newTask.getLabels());
+    }
+
+    // Меняется загруженная коллекция, а не подменяется новой: так Hibernate удаляет и вставляет
+    // только строки tasks_labels снятых и добавленных меток, а не переписывает все связи задачи.
+    // Добавленные метки берутся из кеша второго уровня, неизвестный id отклоняется внешним ключом
+    private void mergeLabels(final Task task, final Set<Label> labels) {
+        if (task.getLabels() == null) {
+            task.setLabels(new HashSet<>(labels));
+            return;
+        }
+        final Set<Long> ids = labels.stream().map(Label::getId).collect(Collectors.toSet());
+        task.getLabels().removeIf(label -> !ids.contains(label.getId()));
+        final Set<Long> kept = task.getLabels().stream().map(Label::getId).collect(Collectors.toSet());
+        ids.stream()
+                .filter(id -> !kept.contains(id))
+                .map(id -> Optional.ofNullable(entityManager.find(Label.class, id)).orElseGet(() -> new Label(id)))
+                .forEach(task.getLabels()::add);
+    }
+
+    private static Task fromDto(final TaskDto dto, final User author, final References references) {
+        return Task.builder()
+                .author(author)
+                .executor(references.users.get(dto.getExecutorId()))
+                .taskStatus(references.statuses.get(dto.getTaskStatusId()))
+                .labels(Optional.ofNullable(dto.getLabelIds())
+                        .orElse(Set.of())
+                        .stream()
+                        .filter(Objects::nonNull)
+                        .map(references.labels::get)
+                        .collect(Collectors.toSet()))
+                .name(dto.getName())
+                .description(dto.getDescription())
+                .build();
     }
 
     private Task fromDto(final TaskDto dto) {
@@ -69,4 +841,46 @@ public class TaskServiceImpl implements TaskService {
                 .description(dto.getDescription())
                 .build();
     }
+
+    // Статусы, исполнители и метки, на которые ссылаются элементы пакета
+    private final class References {
+
+        private final Map<Long, Status> statuses;
+        private final Map<Long, User> users;
+        private final Map<Long, Label> labels;
+
+        References(final List<? extends TaskDto> dtos) {
+            statuses = byId(statusRepository.findAllById(ids(dtos.stream().map(TaskDto::getTaskStatusId))),
+                    Status::getId);
+            users = byId(userRepository.findAllById(ids(dtos.stream().map(TaskDto::getExecutorId))), User::getId);
+            labels = byId(labelRepository.findAllById(ids(dtos.stream()
+                    .map(TaskDto::getLabelIds)
+                    .filter(Objects::nonNull)
+                    .flatMap(Collection::stream))), Label::getId);
+        }
+
+        List<String> check(final TaskDto dto, final List<String> errors) {
+            if (dto.getTaskStatusId() != null && !statuses.containsKey(dto.getTaskStatusId())) {
+                errors.add("taskStatusId: status " + dto.getTaskStatusId() + " not found");
+            }
+            if (dto.getExecutorId() != null && !users.containsKey(dto.getExecutorId())) {
+                errors.add("executorId: user " + dto.getExecutorId() + " not found");
+            }
+            Optional.ofNullable(dto.getLabelIds())
+                    .orElse(Set.of())
+                    .stream()
+                    .filter(labelId -> labelId != null && !labels.containsKey(labelId))
+                    .sorted()
+                    .forEach(labelId -> errors.add("labelIds: label " + labelId + " not found"));
+            return errors;
+        }
+
+        private static Set<Long> ids(final Stream<Long> ids) {
+            return ids.filter(Objects::nonNull).collect(Collectors.toSet());
+        }
+
+        private static <T> Map<Long, T> byId(final List<T> entities, final Function<T, Long> id) {
+            return entities.stream().collect(Collectors.toMap(id, Function.identity()));
+        }
+    }
 }
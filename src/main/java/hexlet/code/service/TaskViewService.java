@@ -0,0 +1,53 @@
+package hexlet.code.service;
+
+import hexlet.code.model.Label;
+import hexlet.code.model.Status;
+import hexlet.code.model.Task;
+import hexlet.code.model.TaskView;
+import hexlet.code.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface TaskViewService {
+
+    // Наибольший список id в одном запросе, более длинные списки читаются частями
+    int MAX_ID_LIST_SIZE = 1000;
+
+    TaskView save(Task task);
+
+    // Строка задачи после частичного изменения. Метки читаются из задачи, только если они изменились
+    TaskView patch(Task task, boolean labelsChanged);
+
+    // Возвращает копию строки, которую не затронут последующие изменения в транзакции
+    TaskView find(long taskId);
+
+    // Строки новых задач, ссылки которых уже загружены. Вставки уходят в базу пакетами
+    List<TaskView> createAll(List<Task> tasks);
+
+    // Строки изменённых задач, ссылки которых уже загружены
+    List<TaskView> saveAll(List<Task> tasks);
+
+    // Копии строк задач с указанными id, отсутствующие пропускаются
+    List<TaskView> findAll(Collection<Long> taskIds);
+
+    // Строки задач после массового изменения, уже записанного в tasks. null оставляет статус и исполнителя как есть
+    List<TaskView> updateAll(Collection<Long> taskIds, Status status, User executor, Collection<Label> addLabels,
+                             Collection<Long> removeLabelIds);
+
+    void delete(long taskId);
+
+    void deleteAll(Collection<Long> taskIds);
+
+    void onStatusUpdated(Status status);
+
+    void onLabelUpdated(Label label);
+
+    void onUserUpdated(User user);
+
+    void rebuild();
+
+    // Передаёт все строки в порядке id, читая их порциями. Вызывается вне транзакции с несохранёнными изменениями
+    void forEach(Consumer<TaskView> action);
+}
@@ -0,0 +1,279 @@
+package hexlet.code.service;
+
+import hexlet.code.component.TaskChangeVersions;
+import hexlet.code.model.Label;
+import hexlet.code.model.QTask;
+import hexlet.code.model.QTaskView;
+import hexlet.code.model.Status;
+import hexlet.code.model.Task;
+import hexlet.code.model.TaskTombstone;
+import hexlet.code.model.TaskView;
+import hexlet.code.model.User;
+import hexlet.code.repository.LabelRepository;
+import hexlet.code.repository.StatusRepository;
+import hexlet.code.repository.TaskRepository;
+import hexlet.code.repository.TaskViewRepository;
+import hexlet.code.repository.UserRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Service
+@Transactional
+@AllArgsConstructor
+public class TaskViewServiceImpl implements TaskViewService {
+
+    public static final int REBUILD_CHUNK_SIZE = 500;
+    public static final int SCROLL_CHUNK_SIZE = 1000;
+
+    private final TaskViewRepository taskViewRepository;
+    private final TaskRepository taskRepository;
+    private final StatusRepository statusRepository;
+    private final UserRepository userRepository;
+    private final LabelRepository labelRepository;
+    private final EntityManager entityManager;
+    private final TaskChangeVersions taskChangeVersions;
+
+    // Задача, собранная из DTO, содержит только id статуса, исполнителя и меток,
+    // поэтому их названия читаются здесь. Записей гораздо меньше, чем чтений
+    @Override
+    public TaskView save(final Task task) {
+        final Status status = Optional.ofNullable(task.getTaskStatus())
+                .map(Status::getId)
+                .flatMap(statusRepository::findById)
+                .orElse(task.getTaskStatus());
+        final User executor = Optional.ofNullable(task.getExecutor())
+                .map(User::getId)
+                .flatMap(userRepository::findById)
+                .orElse(task.getExecutor());
+        final List<Label> labels = labelRepository.findAllById(Optional.ofNullable(task.getLabels())
+                .orElse(Set.of())
+                .stream()
+                .map(Label::getId)
+                .toList());
+        return taskViewRepository.save(toView(task, status, task.getAuthor(), executor, labels,
+                taskChangeVersions.current())).copy();
+    }
+
+    // Задача содержит загруженные статус и пользователей, а строка уже содержит метки, если они не менялись,
+    // поэтому здесь ничего не читается. Слияние с управляемой строкой не включает в update неизменённые колонки
+    @Override
+    public TaskView patch(final Task task, final boolean labelsChanged) {
+        final TaskView current = taskViewRepository.findById(task.getId()).orElse(null);
+        if (labelsChanged || current == null) {
+            return save(task);
+        }
+        final TaskView patched = toView(task, task.getTaskStatus(), task.getAuthor(), task.getExecutor(),
+                current.getLabels(), taskChangeVersions.current());
+        // Тот же список не делает колонку меток грязной: у меток нет равенства по значению
+        patched.setLabels(current.getLabels());
+        return taskViewRepository.save(patched).copy();
+    }
+
+    // Строки сохраняются через persist, а не merge, поэтому для назначенных id не выполняется select
+    @Override
+    public List<TaskView> createAll(final List<Task> tasks) {
+        final List<TaskView> views = toViews(tasks, taskChangeVersions.current());
+        views.forEach(entityManager::persist);
+        return views.stream().map(TaskView::copy).toList();
+    }
+
+    @Override
+    public List<TaskView> saveAll(final List<Task> tasks) {
+        return taskViewRepository.saveAll(toViews(tasks, taskChangeVersions.current()))
+                .stream()
+                .map(TaskView::copy)
+                .toList();
+    }
+
+    @Override
+    public List<TaskView> findAll(final Collection<Long> taskIds) {
+        return taskViewRepository.findAllById(taskIds).stream().map(TaskView::copy).toList();
+    }
+
+    @Override
+    public TaskView find(final long taskId) {
+        return taskViewRepository.findById(taskId)
+                .map(TaskView::copy)
+                .orElse(null);
+    }
+
+    // Строки меняются на месте, поэтому записываются только изменённые столбцы, пачками JDBC
+    @Override
+    public List<TaskView> updateAll(final Collection<Long> taskIds, final Status status, final User executor,
+                                    final Collection<Label> addLabels, final Collection<Long> removeLabelIds) {
+        final long changeVersion = taskChangeVersions.current();
+        final List<TaskView> views = taskViewRepository.findAllById(taskIds);
+        for (TaskView view : views) {
+            if (status != null) {
+                view.setTaskStatusId(status.getId());
+                view.setTaskStatusName(status.getName());
+            }
+            if (executor != null) {
+                view.setExecutorId(executor.getId());
+                view.setExecutorFirstName(executor.getFirstName());
+                view.setExecutorLastName(executor.getLastName());
+            }
+            final Map<Long, Label> labels = new TreeMap<>();
+            view.getLabels().forEach(label -> labels.put(label.getId(), label));
+            removeLabelIds.forEach(labels::remove);
+            addLabels.forEach(label -> labels.putIfAbsent(label.getId(), compact(label)));
+            // Тот же список не помечает столбец меток изменённым, если метки не менялись
+            if (!labels.keySet().equals(view.getLabels().stream().map(Label::getId).collect(Collectors.toSet()))) {
+                final List<Label> sortedLabels = List.copyOf(labels.values());
+                view.setLabels(sortedLabels);
+                view.setLabelIds(labelIdsOf(sortedLabels));
+            }
+            view.setChangeVersion(changeVersion);
+        }
+        return views.stream().map(TaskView::copy).toList();
+    }
+
+    // Надгробие сообщает клиентам, получившим задачу раньше, что её больше нет
+    @Override
+    public void delete(final long taskId) {
+        if (taskViewRepository.existsById(taskId)) {
+            taskViewRepository.deleteById(taskId);
+            entityManager.persist(new TaskTombstone(taskId, taskChangeVersions.current()));
+        }
+    }
+
+    @Override
+    public void deleteAll(final Collection<Long> taskIds) {
+        final long changeVersion = taskChangeVersions.current();
+        taskViewRepository.deleteAllByIdInBatch(taskIds);
+        taskIds.forEach(taskId -> entityManager.persist(new TaskTombstone(taskId, changeVersion)));
+    }
+
+    @Override
+    public void onStatusUpdated(final Status status) {
+        taskViewRepository.updateTaskStatusName(status.getId(), status.getName(), taskChangeVersions.current());
+    }
+
+    @Override
+    public void onLabelUpdated(final Label label) {
+        for (TaskView view : taskViewRepository.findByLabelIdsContaining(labelIdsToken(label.getId()))) {
+            view.setLabels(view.getLabels().stream()
+                    .map(existing -> Objects.equals(existing.getId(), label.getId()) ? label : existing)
+                    .map(TaskViewServiceImpl::compact)
+                    .toList());
+            view.setChangeVersion(taskChangeVersions.current());
+        }
+    }
+
+    @Override
+    public void onUserUpdated(final User user) {
+        final long changeVersion = taskChangeVersions.current();
+        taskViewRepository.updateAuthorName(user.getId(), user.getFirstName(), user.getLastName(), changeVersion);
+        taskViewRepository.updateExecutorName(user.getId(), user.getFirstName(), user.getLastName(), changeVersion);
+    }
+
+    // Заполняет модель чтения из исходных таблиц, например для задач, созданных до её появления.
+    // Каждая строка получает новый номер изменения, поэтому синхронизированные клиенты читают все задачи заново
+    @Override
+    public void rebuild() {
+        final QTask task = QTask.task;
+        final long changeVersion = taskChangeVersions.current();
+        taskViewRepository.deleteAllInBatch();
+        long lastId = 0;
+        List<Task> chunk;
+        do {
+            chunk = taskRepository.findSlice(task.id.gt(lastId), REBUILD_CHUNK_SIZE, task.id.asc());
+            taskViewRepository.saveAll(toViews(chunk, changeVersion));
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getId();
+            }
+            entityManager.flush();
+            entityManager.clear();
+        } while (chunk.size() == REBUILD_CHUNK_SIZE);
+    }
+
+    // Чтение частями по id, и после каждой части persistence context очищается,
+    // поэтому при загрузке индекса из большой таблицы в памяти только одна часть сущностей
+    @Override
+    @Transactional(readOnly = true)
+    public void forEach(final Consumer<TaskView> action) {
+        final QTaskView view = QTaskView.taskView;
+        long lastId = 0;
+        List<TaskView> chunk;
+        do {
+            chunk = taskViewRepository.findSlice(view.taskId.gt(lastId), SCROLL_CHUNK_SIZE, view.taskId.asc());
+            chunk.forEach(action);
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getTaskId();
+            }
+            entityManager.clear();
+        } while (chunk.size() == SCROLL_CHUNK_SIZE);
+    }
+
+    // Выполняется раньше слушателей, которые загружают индексы в памяти из task_view
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfStale() {
+        if (taskViewRepository.count() != taskRepository.count()) {
+            rebuild();
+        }
+    }
+
+    private static List<TaskView> toViews(final List<Task> tasks, final long changeVersion) {
+        return tasks.stream()
+                .map(each -> toView(each, each.getTaskStatus(), each.getAuthor(), each.getExecutor(),
+                        each.getLabels(), changeVersion))
+                .toList();
+    }
+
+    private static TaskView toView(final Task task, final Status status, final User author, final User executor,
+                                   final Collection<Label> labels, final long changeVersion) {
+        final List<Label> sortedLabels = labels.stream()
+                .sorted(Comparator.comparing(Label::getId))
+                .map(TaskViewServiceImpl::compact)
+                .toList();
+        return new TaskView(
+                task.getId(),
+                task.getName(),
+                task.getDescription(),
+                task.getCreatedAt(),
+                status == null ? null : status.getId(),
+                status == null ? null : status.getName(),
+                author == null ? null : author.getId(),
+                author == null ? null : author.getFirstName(),
+                author == null ? null : author.getLastName(),
+                executor == null ? null : executor.getId(),
+                executor == null ? null : executor.getFirstName(),
+                executor == null ? null : executor.getLastName(),
+                labelIdsOf(sortedLabels),
+                sortedLabels,
+                changeVersion
+        );
+    }
+
+    private static String labelIdsOf(final List<Label> sortedLabels) {
+        return sortedLabels.isEmpty() ? "" : sortedLabels.stream()
+                .map(label -> String.valueOf(label.getId()))
+                .collect(Collectors.joining(",", ",", ","));
+    }
+
+    private static Label compact(final Label label) {
+        return new Label(label.getId(), label.getName(), null, 0);
+    }
+
+    private static String labelIdsToken(final Long labelId) {
+        return "," + labelId + ",";
+    }
+}
@@ -7,7 +7,10 @@ public interface UserService {
 
     User createNewUser(UserDto userDto);
 
-    User updateUser(long id, UserDto dto);
+    // version - версия из If-Match, null - без проверки
+    User updateUser(long id, UserDto dto, Long version);
+
+    void deleteUser(long id, Long version);
 
     String getCurrentUserName();
 
@@ -1,6 +1,8 @@
 package hexlet.code.service;
 
+import hexlet.code.component.Outbox;
 import hexlet.code.dto.UserDto;
+import hexlet.code.model.OutboxEvent;
 import hexlet.code.model.User;
 import hexlet.code.repository.UserRepository;
 import lombok.AllArgsConstructor;
@@ -12,6 +14,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Map;
+
 import static hexlet.code.config.security.SecurityConfig.DEFAULT_AUTHORITIES;
 
 
@@ -24,6 +28,10 @@ public class UserServiceImpl implements UserService, UserDetailsService {
 
     private final PasswordEncoder passwordEncoder;
 
+    private final TaskViewService taskViewService;
+
+    private final Outbox outbox;
+
     @Override
     public User createNewUser(final UserDto userDto) {
         final User user = new User();
@@ -31,17 +39,32 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         user.setFirstName(userDto.getFirstName());
         user.setLastName(userDto.getLastName());
         user.setPassword(passwordEncoder.encode(userDto.getPassword()));
-        return userRepository.save(user);
+        final User newUser = userRepository.save(user);
+        outbox.created(OutboxEvent.USER, newUser.getId(), Outbox.fieldsOf(newUser));
+        return newUser;
     }
 
     @Override
-    public User updateUser(final long id, final UserDto userDto) {
+    public User updateUser(final long id, final UserDto userDto, final Long version) {
         final User userToUpdate = userRepository.findById(id).get();
+        Versions.check("User", id, userToUpdate.getVersion(), version);
+        final Map<String, Object> before = Outbox.fieldsOf(userToUpdate);
         userToUpdate.setEmail(userDto.getEmail());
         userToUpdate.setFirstName(userDto.getFirstName());
         userToUpdate.setLastName(userDto.getLastName());
         userToUpdate.setPassword(passwordEncoder.encode(userDto.getPassword()));
-        return userRepository.save(userToUpdate);
+        final User updatedUser = userRepository.save(userToUpdate);
+        taskViewService.onUserUpdated(updatedUser);
+        outbox.updated(OutboxEvent.USER, id, before, Outbox.fieldsOf(updatedUser));
+        return updatedUser;
+    }
+
+    @Override
+    public void deleteUser(final long id, final Long version) {
+        final User user = userRepository.findById(id).get();
+        Versions.check("User", id, user.getVersion(), version);
+        userRepository.delete(user);
+        outbox.deleted(OutboxEvent.USER, id);
     }
 
     @Override
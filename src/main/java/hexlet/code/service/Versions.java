@@ -0,0 +1,19 @@
+package hexlet.code.service;
+
+import hexlet.code.exception.PreconditionFailedException;
+
+// Версия, прочитанная в транзакции, сравнивается с той, которую ожидает клиент, при несовпадении ответ 412.
+// Hibernate проверяет ту же прочитанную версию в WHERE запроса update или delete,
+// поэтому изменение, закоммиченное между чтением и записью, тоже отклоняется, как конфликт
+final class Versions {
+
+    private Versions() {
+    }
+
+    static void check(final String resource, final long id, final Long actual, final Long expected) {
+        if (expected != null && !expected.equals(actual)) {
+            throw new PreconditionFailedException(resource + " " + id + " has version " + actual
+                    + ", expected " + expected);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package hexlet.code.benchmark;
+
+import liquibase.Contexts;
+import liquibase.LabelExpression;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Задержка фильтров и сортировок списка задач без вторичных индексов из changelog-master.xml и с ними.
+// Схема создаётся Liquibase в отдельной базе H2 и заполняется одними и теми же данными при каждом запуске,
+// так что результаты разных версий схемы можно сравнивать. Запуск: ./gradlew benchmark
+@Tag("benchmark")
+public class TaskIndexBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:task-index-benchmark;DB_CLOSE_DELAY=-1";
+    private static final String CHANGELOG = "db/changelog/changelog-master.xml";
+    private static final String INDEX_PREFIX = "IDX_";
+
+    private static final long SEED = 73;
+    private static final int TASKS = 100_000;
+    private static final int USERS = 200;
+    private static final int STATUSES = 8;
+    private static final int LABELS = 50;
+    private static final int MAX_LABELS_PER_TASK = 3;
+    private static final int BATCH_SIZE = 1000;
+    private static final int PAGE_SIZE = 20;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 100;
+    private static final double NANOS_PER_MICRO = 1e3;
+
+    // Запросы фильтров TaskFilter.jsx в порядке списка по умолчанию, страниц по курсору и проверок внешних ключей
+    private static final Map<String, String> QUERIES = queries();
+
+    @Test
+    public void compareIndexes() throws Exception {
+        try (Connection connection = DriverManager.getConnection(URL)) {
+            migrate(connection);
+            generate(connection);
+
+            final Map<String, String> indexes = secondaryIndexes(connection);
+            assertThat(indexes).isNotEmpty();
+
+            try (Statement statement = connection.createStatement()) {
+                for (String index : indexes.keySet()) {
+                    statement.execute("DROP INDEX " + index);
+                }
+            }
+            final Map<String, Result> before = measure(connection);
+
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : indexes.values()) {
+                    statement.execute(sql);
+                }
+                statement.execute("ANALYZE");
+            }
+            final Map<String, Result> after = measure(connection);
+
+            System.out.printf("%d tasks, %d rounds, indexes: %s%n", TASKS, ROUNDS, indexes.keySet());
+            System.out.printf("%-28s %14s %14s %10s%n", "query", "before, us", "after, us", "speedup");
+            for (String query : QUERIES.keySet()) {
+                final double beforeMicros = before.get(query).medianMicros;
+                final double afterMicros = after.get(query).medianMicros;
+                System.out.printf("%-28s %14.1f %14.1f %9.1fx%n", query, beforeMicros, afterMicros,
+                        beforeMicros / afterMicros);
+                assertThat(after.get(query).checksum).isEqualTo(before.get(query).checksum);
+            }
+        } finally {
+            try (Connection connection = DriverManager.getConnection(URL);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+            }
+        }
+    }
+
+    private static Map<String, String> queries() {
+        final Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("view by status", "SELECT task_id FROM task_view WHERE task_status_id = ?"
+                + " ORDER BY created_at, task_id LIMIT " + PAGE_SIZE);
+        queries.put("view by executor", "SELECT task_id FROM task_view WHERE executor_id = ?"
+                + " ORDER BY created_at, task_id LIMIT " + PAGE_SIZE);
+        queries.put("view by author", "SELECT task_id FROM task_view WHERE author_id = ?"
+                + " ORDER BY created_at, task_id LIMIT " + PAGE_SIZE);
+        queries.put("view page by created_at", "SELECT task_id FROM task_view"
+                + " WHERE created_at > DATEADD('SECOND', -1000 * ?, TIMESTAMP '2023-01-01 00:00:00')"
+                + " ORDER BY created_at, task_id LIMIT " + PAGE_SIZE);
+        queries.put("view page by name", "SELECT task_id FROM task_view WHERE name > CONCAT('Task ', ?)"
+                + " ORDER BY name, task_id LIMIT " + PAGE_SIZE);
+        queries.put("tasks by executor", "SELECT COUNT(*) FROM tasks WHERE executor_id = ?");
+        queries.put("tasks by status", "SELECT COUNT(*) FROM tasks WHERE task_status_id = ?");
+        queries.put("tasks by label", "SELECT COUNT(*) FROM tasks_labels WHERE labels_id = ?");
+        return queries;
+    }
+
+    private static void migrate(final Connection connection) throws Exception {
+        final Database database = DatabaseFactory.getInstance()
+                .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+        new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), database)
+                .update(new Contexts(), new LabelExpression());
+    }
+
+    // Задачи распределены по статусам, авторам и исполнителям неравномерно, как в живом трекере
+    private static void generate(final Connection connection) throws SQLException {
+        final Random random = new Random(SEED);
+        final Timestamp epoch = Timestamp.valueOf("2023-01-01 00:00:00");
+        connection.setAutoCommit(false);
+        try (PreparedStatement users = connection.prepareStatement(
+                "INSERT INTO users (id, email, first_name, last_name, created_at) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement statuses = connection.prepareStatement(
+                     "INSERT INTO statuses (id, name, created_at) VALUES (?, ?, ?)");
+             PreparedStatement labels = connection.prepareStatement(
+                     "INSERT INTO labels (id, name, created_at) VALUES (?, ?, ?)")) {
+            for (long id = 1; id <= USERS; id++) {
+                users.setLong(1, id);
+                users.setString(2, "user" + id + "@example.com");
+                users.setString(3, "First" + id);
+                users.setString(4, "Last" + id);
+                users.setTimestamp(5, epoch);
+                users.addBatch();
+            }
+            users.executeBatch();
+            for (long id = 1; id <= STATUSES; id++) {
+                statuses.setLong(1, id);
+                statuses.setString(2, "status " + id);
+                statuses.setTimestamp(3, epoch);
+                statuses.addBatch();
+            }
+            statuses.executeBatch();
+            for (long id = 1; id <= LABELS; id++) {
+                labels.setLong(1, id);
+                labels.setString(2, "label " + id);
+                labels.setTimestamp(3, epoch);
+                labels.addBatch();
+            }
+            labels.executeBatch();
+        }
+
+        try (PreparedStatement tasks = connection.prepareStatement("INSERT INTO tasks"
+                + " (id, name, description, created_at, task_status_id, author_id, executor_id)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement taskLabels = connection.prepareStatement(
+                     "INSERT INTO tasks_labels (task_id, labels_id) VALUES (?, ?)");
+             PreparedStatement views = connection.prepareStatement("INSERT INTO task_view"
+                     + " (task_id, name, description, created_at, task_status_id, task_status_name,"
+                     + " author_id, author_first_name, author_last_name,"
+                     + " executor_id, executor_first_name, executor_last_name, label_ids, labels)"
+                     + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (long id = 1; id <= TASKS; id++) {
+                final String name = "Task " + Long.toString(random.nextLong() & Long.MAX_VALUE, Character.MAX_RADIX);
+                final Timestamp createdAt = new Timestamp(epoch.getTime() - random.nextInt(TASKS) * 1000L);
+                final long status = skewed(random, STATUSES);
+                final long author = skewed(random, USERS);
+                final Long executor = random.nextInt(5) == 0 ? null : skewed(random, USERS);
+                final long[] labelIds = random.longs(random.nextInt(MAX_LABELS_PER_TASK + 1), 1, LABELS + 1)
+                        .distinct()
+                        .sorted()
+                        .toArray();
+
+                tasks.setLong(1, id);
+                tasks.setString(2, name);
+                tasks.setString(3, "description " + id);
+                tasks.setTimestamp(4, createdAt);
+                tasks.setLong(5, status);
+                tasks.setLong(6, author);
+                tasks.setObject(7, executor);
+                tasks.addBatch();
+                for (long labelId : labelIds) {
+                    taskLabels.setLong(1, id);
+                    taskLabels.setLong(2, labelId);
+                    taskLabels.addBatch();
+                }
+
+                views.setLong(1, id);
+                views.setString(2, name);
+                views.setString(3, "description " + id);
+                views.setTimestamp(4, createdAt);
+                views.setLong(5, status);
+                views.setString(6, "status " + status);
+                views.setLong(7, author);
+                views.setString(8, "First" + author);
+                views.setString(9, "Last" + author);
+                views.setObject(10, executor);
+                views.setString(11, executor == null ? null : "First" + executor);
+                views.setString(12, executor == null ? null : "Last" + executor);
+                views.setString(13, labelIds.length == 0 ? "" : Arrays.stream(labelIds)
+                        .mapToObj(String::valueOf)
+                        .reduce(",", (ids, labelId) -> ids + labelId + ","));
+                views.setString(14, "[]");
+                views.addBatch();
+
+                if (id % BATCH_SIZE == 0) {
+                    tasks.executeBatch();
+                    taskLabels.executeBatch();
+                    views.executeBatch();
+                }
+            }
+            tasks.executeBatch();
+            taskLabels.executeBatch();
+            views.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    // Меньшие id выбираются чаще, поэтому одни фильтры находят много задач, а другие - всего несколько
+    private static long skewed(final Random random, final int bound) {
+        return 1 + (long) (bound * Math.pow(random.nextDouble(), 2));
+    }
+
+    // Наши индексы называются idx_*, а индексы, которые H2 создаёт для ключей и ограничений, - нет
+    private static Map<String, String> secondaryIndexes(final Connection connection) throws SQLException {
+        final Map<String, String> indexes = new LinkedHashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT DISTINCT INDEX_NAME, SQL FROM INFORMATION_SCHEMA.INDEXES"
+                     + " WHERE INDEX_NAME LIKE '" + INDEX_PREFIX + "%' ORDER BY INDEX_NAME")) {
+            while (rows.next()) {
+                indexes.put(rows.getString(1), rows.getString(2));
+            }
+        }
+        return indexes;
+    }
+
+    // Каждый запрос выполняется с одной и той же последовательностью параметров, а контрольная сумма
+    // возвращённых значений проверяет, что индексы меняют только время, но не результат
+    private static Map<String, Result> measure(final Connection connection) throws SQLException {
+        final Map<String, Result> results = new LinkedHashMap<>();
+        for (Map.Entry<String, String> query : QUERIES.entrySet()) {
+            try (PreparedStatement statement = connection.prepareStatement(query.getValue())) {
+                for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                    run(statement, round);
+                }
+                final List<Long> times = new ArrayList<>(ROUNDS);
+                long checksum = 0;
+                for (int round = 0; round < ROUNDS; round++) {
+                    final long started = System.nanoTime();
+                    checksum = checksum * 31 + run(statement, round);
+                    times.add(System.nanoTime() - started);
+                }
+                times.sort(Long::compare);
+                results.put(query.getKey(), new Result(times.get(ROUNDS / 2) / NANOS_PER_MICRO, checksum));
+            }
+        }
+        return results;
+    }
+
+    private static long run(final PreparedStatement statement, final int round) throws SQLException {
+        statement.setLong(1, 1 + round % STATUSES);
+        long checksum = 0;
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                checksum = checksum * 31 + rows.getLong(1);
+            }
+        }
+        return checksum;
+    }
+
+    private static final class Result {
+
+        private final double medianMicros;
+        private final long checksum;
+
+        Result(final double medianMicros, final long checksum) {
+            this.medianMicros = medianMicros;
+            this.checksum = checksum;
+        }
+    }
+}
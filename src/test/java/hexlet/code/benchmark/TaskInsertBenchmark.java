@@ -0,0 +1,217 @@
+package hexlet.code.benchmark;
+
+import liquibase.Contexts;
+import liquibase.LabelExpression;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Скорость пакетной вставки задач с id из IDENTITY-колонки и из последовательности блоками (pooled-lo).
+// Повторяет запросы, которые Hibernate выполняет в обоих случаях: с IDENTITY каждая задача вставляется
+// отдельным запросом, чтобы получить её id, а с последовательностью задачи, их метки и строки task_view
+// отправляются пакетами по batch_size. Запуск: ./gradlew benchmark
+@Tag("benchmark")
+public class TaskInsertBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:task-insert-benchmark;DB_CLOSE_DELAY=-1";
+    private static final String CHANGELOG = "db/changelog/changelog-master.xml";
+
+    private static final int TASKS = 10_000;
+    private static final int LABELS = 3;
+    // hibernate.jdbc.batch_size и allocationSize последовательностей
+    private static final int BATCH_SIZE = 50;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int ROUNDS = 5;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private static final String INSERT_TASK = "INSERT INTO tasks"
+            + " (name, description, created_at, task_status_id, author_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_TASK_WITH_ID = "INSERT INTO tasks"
+            + " (id, name, description, created_at, task_status_id, author_id) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_LABEL = "INSERT INTO tasks_labels (task_id, labels_id) VALUES (?, ?)";
+    private static final String INSERT_VIEW = "INSERT INTO task_view"
+            + " (task_id, name, description, created_at, task_status_id, task_status_name,"
+            + " author_id, author_first_name, author_last_name, label_ids, labels)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Test
+    public void compareIdGeneration() throws Exception {
+        try (Connection connection = DriverManager.getConnection(URL)) {
+            migrate(connection);
+            references(connection);
+            connection.setAutoCommit(false);
+
+            final double identity = measure(connection, TaskInsertBenchmark::insertWithIdentity);
+            final double sequence = measure(connection, TaskInsertBenchmark::insertWithSequence);
+
+            System.out.printf("%d tasks with %d labels each, batch size %d, %d rounds%n",
+                    TASKS, LABELS, BATCH_SIZE, ROUNDS);
+            System.out.printf("%-12s %14s%n", "ids", "tasks/s");
+            System.out.printf("%-12s %14.0f%n", "identity", identity);
+            System.out.printf("%-12s %14.0f%n", "sequence", sequence);
+            System.out.printf("speedup: %.1fx%n", sequence / identity);
+        } finally {
+            try (Connection connection = DriverManager.getConnection(URL);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+            }
+        }
+    }
+
+    private static void migrate(final Connection connection) throws Exception {
+        final Database database = DatabaseFactory.getInstance()
+                .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+        new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), database)
+                .update(new Contexts(), new LabelExpression());
+    }
+
+    private static void references(final Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO users (id, email, first_name, last_name, created_at)"
+                    + " VALUES (1, 'author@example.com', 'First', 'Last', CURRENT_TIMESTAMP)");
+            statement.execute("INSERT INTO statuses (id, name, created_at) VALUES (1, 'new', CURRENT_TIMESTAMP)");
+            for (int id = 1; id <= LABELS; id++) {
+                statement.execute("INSERT INTO labels (id, name, created_at)"
+                        + " VALUES (" + id + ", 'label " + id + "', CURRENT_TIMESTAMP)");
+            }
+        }
+    }
+
+    // Медиана задач в секунду, каждый раунд начинается с пустых таблиц задач
+    private static double measure(final Connection connection, final Inserter inserter) throws SQLException {
+        final List<Double> rates = new ArrayList<>(ROUNDS);
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM task_view");
+                statement.execute("DELETE FROM tasks_labels");
+                statement.execute("DELETE FROM tasks");
+            }
+            connection.commit();
+            final long started = System.nanoTime();
+            inserter.insert(connection);
+            connection.commit();
+            final long elapsed = System.nanoTime() - started;
+            if (round >= WARMUP_ROUNDS) {
+                rates.add(TASKS * NANOS_PER_SECOND / elapsed);
+            }
+            assertThat(count(connection, "tasks")).isEqualTo(TASKS);
+            assertThat(count(connection, "tasks_labels")).isEqualTo((long) TASKS * LABELS);
+        }
+        rates.sort(Double::compare);
+        return rates.get(ROUNDS / 2);
+    }
+
+    private static void insertWithIdentity(final Connection connection) throws SQLException {
+        final Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (PreparedStatement tasks = connection.prepareStatement(INSERT_TASK, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement labels = connection.prepareStatement(INSERT_LABEL);
+             PreparedStatement views = connection.prepareStatement(INSERT_VIEW)) {
+            for (int task = 1; task <= TASKS; task++) {
+                tasks.setString(1, "Task " + task);
+                tasks.setString(2, "description " + task);
+                tasks.setTimestamp(3, now);
+                tasks.setLong(4, 1);
+                tasks.setLong(5, 1);
+                tasks.executeUpdate();
+                final long id;
+                try (ResultSet keys = tasks.getGeneratedKeys()) {
+                    keys.next();
+                    id = keys.getLong(1);
+                }
+                addRows(labels, views, id, task, now);
+                if (task % BATCH_SIZE == 0) {
+                    labels.executeBatch();
+                    views.executeBatch();
+                }
+            }
+            labels.executeBatch();
+            views.executeBatch();
+        }
+    }
+
+    // Id берутся так же, как их выдаёт оптимизатор pooled-lo: одно обращение к последовательности на BATCH_SIZE задач
+    private static void insertWithSequence(final Connection connection) throws SQLException {
+        final Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (PreparedStatement sequence = connection.prepareStatement("SELECT NEXT VALUE FOR tasks_seq");
+             PreparedStatement tasks = connection.prepareStatement(INSERT_TASK_WITH_ID);
+             PreparedStatement labels = connection.prepareStatement(INSERT_LABEL);
+             PreparedStatement views = connection.prepareStatement(INSERT_VIEW)) {
+            long nextId = 0;
+            for (int task = 1; task <= TASKS; task++) {
+                if ((task - 1) % BATCH_SIZE == 0) {
+                    try (ResultSet value = sequence.executeQuery()) {
+                        value.next();
+                        nextId = value.getLong(1);
+                    }
+                }
+                final long id = nextId++;
+                tasks.setLong(1, id);
+                tasks.setString(2, "Task " + task);
+                tasks.setString(3, "description " + task);
+                tasks.setTimestamp(4, now);
+                tasks.setLong(5, 1);
+                tasks.setLong(6, 1);
+                tasks.addBatch();
+                addRows(labels, views, id, task, now);
+                if (task % BATCH_SIZE == 0) {
+                    tasks.executeBatch();
+                    labels.executeBatch();
+                    views.executeBatch();
+                }
+            }
+            tasks.executeBatch();
+            labels.executeBatch();
+            views.executeBatch();
+        }
+    }
+
+    private static void addRows(final PreparedStatement labels, final PreparedStatement views, final long id,
+                                final int task, final Timestamp now) throws SQLException {
+        for (int label = 1; label <= LABELS; label++) {
+            labels.setLong(1, id);
+            labels.setLong(2, label);
+            labels.addBatch();
+        }
+        views.setLong(1, id);
+        views.setString(2, "Task " + task);
+        views.setString(3, "description " + task);
+        views.setTimestamp(4, now);
+        views.setLong(5, 1);
+        views.setString(6, "new");
+        views.setLong(7, 1);
+        views.setString(8, "First");
+        views.setString(9, "Last");
+        views.setString(10, ",1,2,3,");
+        views.setString(11, "[]");
+        views.addBatch();
+    }
+
+    private static long count(final Connection connection, final String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rows.next();
+            return rows.getLong(1);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Inserter {
+        void insert(Connection connection) throws SQLException;
+    }
+}
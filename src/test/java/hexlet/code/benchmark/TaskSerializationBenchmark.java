@@ -0,0 +1,109 @@
+package hexlet.code.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hexlet.code.model.Label;
+import hexlet.code.model.Status;
+import hexlet.code.model.Task;
+import hexlet.code.model.User;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Сравнивает размер и скорость сериализации списка задач в JSON, CBOR и Smile.
+// Мапперы настраиваются так же, как в конвертерах MVC. Запуск: ./gradlew benchmark
+@Tag("benchmark")
+public class TaskSerializationBenchmark {
+
+    private static final int TASKS = 1000;
+    private static final int USERS = 20;
+    private static final int LABELS = 10;
+    private static final int WARMUP_ROUNDS = 50;
+    private static final int ROUNDS = 200;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private static final TypeReference<List<Task>> TASK_LIST = new TypeReference<>() { };
+
+    @Test
+    public void compareFormats() throws Exception {
+        final List<Task> tasks = tasks();
+        final Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("json", Jackson2ObjectMapperBuilder.json().build());
+        mappers.put("cbor", Jackson2ObjectMapperBuilder.cbor().build());
+        mappers.put("smile", Jackson2ObjectMapperBuilder.smile().build());
+
+        final Map<String, Integer> sizes = new LinkedHashMap<>();
+        System.out.printf("%d tasks, %d rounds%n", TASKS, ROUNDS);
+        System.out.printf("%-6s %10s %14s %14s%n", "format", "bytes", "writes/s", "reads/s");
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            final ObjectMapper mapper = entry.getValue();
+            final byte[] body = mapper.writeValueAsBytes(tasks);
+            assertThat(mapper.readValue(body, TASK_LIST)).hasSize(TASKS);
+
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                mapper.writeValueAsBytes(tasks);
+                mapper.readValue(body, TASK_LIST);
+            }
+            long started = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                mapper.writeValueAsBytes(tasks);
+            }
+            final double writes = ROUNDS * NANOS_PER_SECOND / (System.nanoTime() - started);
+            started = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                mapper.readValue(body, TASK_LIST);
+            }
+            final double reads = ROUNDS * NANOS_PER_SECOND / (System.nanoTime() - started);
+
+            sizes.put(entry.getKey(), body.length);
+            System.out.printf("%-6s %10d %14.1f %14.1f%n", entry.getKey(), body.length, writes, reads);
+        }
+
+        assertThat(sizes.get("cbor")).isLessThan(sizes.get("json"));
+        assertThat(sizes.get("smile")).isLessThan(sizes.get("json"));
+    }
+
+    // Задачи с полным набором вложенных объектов, как их отдаёт GET /api/tasks
+    private static List<Task> tasks() {
+        final Date now = new Date();
+        final List<User> users = new ArrayList<>();
+        for (long id = 1; id <= USERS; id++) {
+            users.add(new User(id, "First" + id, "Last" + id, "user" + id + "@example.com", null, now, 0L));
+        }
+        final List<Label> labels = new ArrayList<>();
+        for (long id = 1; id <= LABELS; id++) {
+            labels.add(new Label(id, "label " + id, now, 0L));
+        }
+        final List<Status> statuses = List.of(new Status(1L, "new", now, 0L), new Status(2L, "in progress", now, 0L),
+                new Status(3L, "testing", now, 0L), new Status(4L, "done", now, 0L));
+
+        final List<Task> tasks = new ArrayList<>();
+        for (long id = 1; id <= TASKS; id++) {
+            final int index = (int) id;
+            final Set<Label> taskLabels = new HashSet<>(labels.subList(index % LABELS,
+                    Math.min(LABELS, index % LABELS + 1 + index % 3)));
+            tasks.add(Task.builder()
+                    .id(id)
+                    .name("Task number " + id)
+                    .description("Investigate the reported problem, write a fix and cover it with tests. "
+                            + "Reference: ticket " + id)
+                    .taskStatus(statuses.get(index % statuses.size()))
+                    .author(users.get(index % USERS))
+                    .executor(index % 4 == 0 ? null : users.get((index * 7) % USERS))
+                    .labels(taskLabels)
+                    .createdAt(now)
+                    .build());
+        }
+        return tasks;
+    }
+}
@@ -13,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -26,14 +27,20 @@ import static hexlet.code.utils.TestUtils.asJson;
 import static hexlet.code.utils.TestUtils.fromJson;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_MATCH;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @AutoConfigureMockMvc
@@ -52,6 +59,9 @@ public class LabelControllerIT {
     @Autowired
     private TestUtils utils;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @AfterEach
     public void clear() {
         utils.tearDown();
@@ -206,4 +216,97 @@ public class LabelControllerIT {
         assertEquals(0, labelRepository.count());
     }
 
+
+    @Test
+    public void testConditionalGet() throws Exception {
+        utils.regDefaultUser();
+        utils.perform(post(LABEL_CONTROLLER_PATH)
+                        .content(asJson(new LabelDto("bug")))
+                        .contentType(APPLICATION_JSON), TEST_USERNAME)
+                .andExpect(status().isCreated());
+
+        final String etag = utils.perform(get(LABEL_CONTROLLER_PATH), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(ETAG);
+        assertNotNull(etag);
+
+        utils.perform(get(LABEL_CONTROLLER_PATH).header(IF_NONE_MATCH, etag), TEST_USERNAME)
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        utils.perform(post(LABEL_CONTROLLER_PATH)
+                        .content(asJson(new LabelDto("feature")))
+                        .contentType(APPLICATION_JSON), TEST_USERNAME)
+                .andExpect(status().isCreated());
+
+        final var response = utils.perform(get(LABEL_CONTROLLER_PATH).header(IF_NONE_MATCH, etag), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        final List<Label> labels = fromJson(response.getContentAsString(), new TypeReference<>() {
+        });
+
+        assertThat(labels.size()).isEqualTo(2);
+        assertNotEquals(etag, response.getHeader(ETAG));
+    }
+
+    @Test
+    public void testConditionalGetFollowsOtherInstances() throws Exception {
+        utils.regDefaultUser();
+        final String etag = utils.perform(get(LABEL_CONTROLLER_PATH), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(ETAG);
+
+        // Так версию меняет запись, закоммиченная другим экземпляром приложения
+        jdbcTemplate.update("update table_versions set version = version + 1 where table_name = 'labels'");
+
+        utils.perform(get(LABEL_CONTROLLER_PATH).header(IF_NONE_MATCH, etag), TEST_USERNAME)
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testUpdateWithIfMatch() throws Exception {
+        utils.regDefaultUser();
+        final Label label = fromJson(utils.perform(post(LABEL_CONTROLLER_PATH)
+                        .content(asJson(new LabelDto("bug")))
+                        .contentType(APPLICATION_JSON), TEST_USERNAME)
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+
+        final String etag = utils.perform(get(LABEL_CONTROLLER_PATH + ID, label.getId()), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(ETAG);
+        assertEquals("\"0\"", etag);
+
+        final String updatedEtag = utils.perform(put(LABEL_CONTROLLER_PATH + ID, label.getId())
+                        .header(IF_MATCH, etag)
+                        .content(asJson(new LabelDto("defect")))
+                        .contentType(APPLICATION_JSON), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(ETAG);
+        assertEquals("\"1\"", updatedEtag);
+
+        utils.perform(put(LABEL_CONTROLLER_PATH + ID, label.getId())
+                        .header(IF_MATCH, etag)
+                        .content(asJson(new LabelDto("feature")))
+                        .contentType(APPLICATION_JSON), TEST_USERNAME)
+                .andExpect(status().isPreconditionFailed());
+        utils.perform(delete(LABEL_CONTROLLER_PATH + ID, label.getId()).header(IF_MATCH, etag), TEST_USERNAME)
+                .andExpect(status().isPreconditionFailed());
+        assertEquals("defect", labelRepository.findById(label.getId()).get().getName());
+
+        utils.perform(delete(LABEL_CONTROLLER_PATH + ID, label.getId()).header(IF_MATCH, updatedEtag), TEST_USERNAME)
+                .andExpect(status().isOk());
+        assertTrue(labelRepository.findById(label.getId()).isEmpty());
+    }
 }
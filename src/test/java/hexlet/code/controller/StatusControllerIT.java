@@ -7,6 +7,8 @@ import hexlet.code.model.Status;
 import hexlet.code.repository.StatusRepository;
 import hexlet.code.repository.UserRepository;
 import hexlet.code.utils.TestUtils;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,6 +18,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.List;
 
 import static hexlet.code.config.SpringConfigForIT.TEST_PROFILE;
@@ -50,6 +53,9 @@ public class StatusControllerIT {
     @Autowired
     private TestUtils utils;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @AfterEach
     public void clear() {
         utils.tearDown();
@@ -203,4 +209,46 @@ public class StatusControllerIT {
         assertEquals(0, statusRepository.count());
     }
 
+
+    @Test
+    public void testStatusIsReadFromSecondLevelCache() throws Exception {
+        utils.regDefaultUser();
+        final Status status = fromJson(utils.perform(post(STATUS_CONTROLLER_PATH)
+                                .content(asJson(new StatusDto("new")))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        utils.perform(get(STATUS_CONTROLLER_PATH + ID, status.getId()), TEST_USERNAME)
+                .andExpect(status().isOk());
+        statistics.clear();
+        utils.perform(get(STATUS_CONTROLLER_PATH + ID, status.getId()), TEST_USERNAME)
+                .andExpect(status().isOk());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getSecondLevelCacheHitCount() >= 1);
+
+        statusRepository.findByName("new");
+        statistics.clear();
+        assertEquals(status.getId(), statusRepository.findByName("new").get().getId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+
+        utils.perform(put(STATUS_CONTROLLER_PATH + ID, status.getId())
+                                .content(asJson(new StatusDto("done")))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        final Status updated = fromJson(utils.perform(get(STATUS_CONTROLLER_PATH + ID, status.getId()), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+        assertEquals("done", updated.getName());
+        assertTrue(statusRepository.findByName("new").isEmpty());
+    }
 }
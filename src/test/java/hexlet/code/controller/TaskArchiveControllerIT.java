@@ -0,0 +1,169 @@
+package hexlet.code.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import hexlet.code.component.TaskArchive;
+import hexlet.code.component.TaskArchiver;
+import hexlet.code.config.SpringConfigForIT;
+import hexlet.code.dto.LabelDto;
+import hexlet.code.dto.StatusDto;
+import hexlet.code.dto.TaskDto;
+import hexlet.code.dto.TaskRow;
+import hexlet.code.model.Label;
+import hexlet.code.model.Status;
+import hexlet.code.model.Task;
+import hexlet.code.model.TaskArchiveSegment;
+import hexlet.code.repository.TaskArchiveSegmentRepository;
+import hexlet.code.repository.TaskRepository;
+import hexlet.code.utils.TestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static hexlet.code.config.SpringConfigForIT.TEST_PROFILE;
+import static hexlet.code.controller.LabelController.LABEL_CONTROLLER_PATH;
+import static hexlet.code.controller.StatusController.STATUS_CONTROLLER_PATH;
+import static hexlet.code.controller.TaskArchiveController.ARCHIVE;
+import static hexlet.code.controller.TaskArchiveController.ARCHIVED_TASK;
+import static hexlet.code.controller.TaskController.TASK_CONTROLLER_PATH;
+import static hexlet.code.utils.TestUtils.TEST_USERNAME;
+import static hexlet.code.utils.TestUtils.asJson;
+import static hexlet.code.utils.TestUtils.fromJson;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@ActiveProfiles(TEST_PROFILE)
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT, classes = SpringConfigForIT.class, properties = {
+    "task-archive.enabled=true",
+    "task-archive.directory=${java.io.tmpdir}/task-archive-it",
+    "task-archive.terminal-statuses=done",
+    "task-archive.terminal-age=PT0S",
+    "task-archive.chunk-size=1"
+})
+public class TaskArchiveControllerIT {
+
+    @Autowired
+    private TaskArchive taskArchive;
+
+    @Autowired
+    private TaskArchiver taskArchiver;
+
+    @Autowired
+    private TaskArchiveSegmentRepository taskArchiveSegmentRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TestUtils utils;
+
+    @AfterEach
+    public void clear() {
+        utils.tearDown();
+    }
+
+
+    @Test
+    public void testArchiveTerminalTasks() throws Exception {
+        utils.regDefaultUser();
+        final Status created = createStatus("new");
+        final Status done = createStatus("done");
+        final Label label = fromJson(utils.perform(post(LABEL_CONTROLLER_PATH)
+                                .content(asJson(new LabelDto("bug")))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+        final Task first = createTask(new TaskDto("first", "description", done.getId(), null, Set.of(label.getId())));
+        createTask(new TaskDto("second", "description", created.getId(), null, Set.of()));
+        final Task third = createTask(new TaskDto("third", "description", done.getId(), null, Set.of()));
+
+        // Задачи, созданные в ту же миллисекунду, что и граница, не старше неё
+        Thread.sleep(10);
+        taskArchiver.archive();
+
+        assertEquals(List.of("second"), taskRepository.findAll().stream()
+                .map(Task::getName)
+                .collect(Collectors.toList()));
+
+        final List<TaskRow> archived = getArchived("");
+        assertEquals(List.of(first.getId(), third.getId()), archived.stream()
+                .map(TaskRow::getId)
+                .collect(Collectors.toList()));
+        assertEquals("done", archived.get(0).getTaskStatus());
+        assertEquals(List.of("bug"), archived.get(0).getLabels());
+
+        final List<TaskRow> afterFirst = getArchived("?after=" + first.getId() + "&size=1");
+        assertEquals(1, afterFirst.size());
+        assertEquals("third", afterFirst.get(0).getName());
+
+        final TaskRow found = fromJson(utils.perform(get(TASK_CONTROLLER_PATH + ARCHIVED_TASK, first.getId()),
+                        TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+        assertEquals("first", found.getName());
+    }
+
+
+    @Test
+    public void testSegmentWithoutFileIsSkipped() throws Exception {
+        utils.regDefaultUser();
+        final long id = Long.MAX_VALUE - 1;
+        taskArchiveSegmentRepository.save(new TaskArchiveSegment(null, id, id, 1, null));
+
+        // Сегмент без файла пропускается с ошибкой в логе, остальной архив загружается
+        taskArchive.load();
+
+        utils.perform(get(TASK_CONTROLLER_PATH + ARCHIVED_TASK, id), TEST_USERNAME)
+                .andExpect(status().isNotFound());
+    }
+
+
+    private List<TaskRow> getArchived(final String query) throws Exception {
+        return fromJson(utils.perform(get(TASK_CONTROLLER_PATH + ARCHIVE + query), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+    }
+
+    private Status createStatus(final String name) throws Exception {
+        return fromJson(utils.perform(post(STATUS_CONTROLLER_PATH)
+                                .content(asJson(new StatusDto(name)))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+    }
+
+    private Task createTask(final TaskDto dto) throws Exception {
+        return fromJson(utils.perform(post(TASK_CONTROLLER_PATH)
+                                .content(asJson(dto))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+    }
+}
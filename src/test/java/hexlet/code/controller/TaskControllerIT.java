@@ -1,51 +1,100 @@
 package hexlet.code.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import hexlet.code.component.OptimisticRetry;
+import hexlet.code.component.OutboxRelay;
+import hexlet.code.component.PersistenceMetrics;
+import hexlet.code.component.TaskChangeStream;
+import hexlet.code.component.TaskCounters;
 import hexlet.code.config.SpringConfigForIT;
 import hexlet.code.dto.LabelDto;
 import hexlet.code.dto.StatusDto;
+import hexlet.code.dto.TaskBatchResult;
+import hexlet.code.dto.TaskBatchUpdateDto;
+import hexlet.code.dto.TaskBulkResult;
+import hexlet.code.dto.TaskBulkUpdateDto;
+import hexlet.code.dto.TaskChanges;
 import hexlet.code.dto.TaskDto;
+import hexlet.code.dto.TaskStats;
+import hexlet.code.dto.UserDto;
+import hexlet.code.filter.PersistenceMetricsInterceptor;
 import hexlet.code.model.Label;
+import hexlet.code.model.OutboxEvent;
 import hexlet.code.model.Status;
 import hexlet.code.model.Task;
 import hexlet.code.model.User;
 import hexlet.code.repository.LabelRepository;
+import hexlet.code.repository.OutboxEventRepository;
 import hexlet.code.repository.StatusRepository;
 import hexlet.code.repository.TaskRepository;
 import hexlet.code.repository.UserRepository;
 import hexlet.code.utils.TestUtils;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static hexlet.code.config.SpringConfigForIT.TEST_PROFILE;
+import static hexlet.code.config.WebConfiguration.APPLICATION_SMILE_VALUE;
 import static hexlet.code.controller.LabelController.LABEL_CONTROLLER_PATH;
 import static hexlet.code.controller.StatusController.STATUS_CONTROLLER_PATH;
+import static hexlet.code.controller.TaskController.APPLICATION_MERGE_PATCH_JSON_VALUE;
+import static hexlet.code.controller.TaskController.BATCH;
+import static hexlet.code.controller.TaskController.BULK;
+import static hexlet.code.controller.TaskController.CHANGES;
 import static hexlet.code.controller.TaskController.ID;
+import static hexlet.code.controller.TaskController.LABEL;
+import static hexlet.code.controller.TaskController.LAST_EVENT_ID_HEADER;
+import static hexlet.code.controller.TaskController.STREAM;
 import static hexlet.code.controller.TaskController.TASK_CONTROLLER_PATH;
 import static hexlet.code.controller.UserController.USER_CONTROLLER_PATH;
 import static hexlet.code.utils.TestUtils.TEST_USERNAME;
+import static hexlet.code.utils.TestUtils.TEST_USERNAME_2;
 import static hexlet.code.utils.TestUtils.asJson;
 import static hexlet.code.utils.TestUtils.fromJson;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_MATCH;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.MediaType.APPLICATION_CBOR;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @AutoConfigureMockMvc
@@ -70,6 +119,30 @@ public class TaskControllerIT {
     @Autowired
     private TestUtils utils;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TaskCounters taskCounters;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private TaskChangeStream taskChangeStream;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @AfterEach
     public void clear() {
         utils.tearDown();
@@ -596,4 +669,961 @@ public class TaskControllerIT {
         assertThat(tasks.size()).isEqualTo(1);
     }
 
+
+
+    @Test
+    public void testGetTasksPageByPage() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status status = createStatus("new");
+        for (int i = 0; i < 3; i++) {
+            createTask(new TaskDto("task" + i, "description", status.getId(), expectedUser.getId(), Set.of()));
+        }
+
+        final var firstPage = utils.perform(get(TASK_CONTROLLER_PATH + "?size=2&sort=id,desc&count=true"),
+                        TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        final List<Task> firstTasks = fromJson(firstPage.getContentAsString(), new TypeReference<>() {
+        });
+        final String cursor = firstPage.getHeader(TaskController.NEXT_CURSOR_HEADER);
+
+        assertThat(firstTasks.size()).isEqualTo(2);
+        assertThat(firstTasks.get(0).getId()).isGreaterThan(firstTasks.get(1).getId());
+        assertThat(cursor).isNotNull();
+        assertEquals("3", firstPage.getHeader(TaskController.TOTAL_COUNT_HEADER));
+
+        final var lastPage = utils.perform(get(TASK_CONTROLLER_PATH + "?size=2&cursor=" + cursor), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        final List<Task> lastTasks = fromJson(lastPage.getContentAsString(), new TypeReference<>() {
+        });
+
+        assertThat(lastTasks.size()).isEqualTo(1);
+        assertThat(lastTasks.get(0).getId()).isLessThan(firstTasks.get(1).getId());
+        assertThat(lastPage.getHeader(TaskController.NEXT_CURSOR_HEADER)).isNull();
+    }
+
+    @Test
+    public void testGetTasksWithMalformedCursor() throws Exception {
+        utils.regDefaultUser();
+
+        utils.perform(get(TASK_CONTROLLER_PATH + "?size=2&cursor=broken"), TEST_USERNAME)
+                .andExpect(status().isBadRequest());
+        utils.perform(get(TASK_CONTROLLER_PATH + "?size=2&sort=description"), TEST_USERNAME)
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testReadTasksWithFixedNumberOfStatements() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status status = createStatus("new");
+        final Label bug = createLabel("bug");
+        final Label feature = createLabel("feature");
+
+        final Task task = createTask(new TaskDto("task", "description", status.getId(), expectedUser.getId(),
+                Set.of(bug.getId(), feature.getId())));
+        final long statementsForOneTask = countStatements(get(TASK_CONTROLLER_PATH));
+        final long statementsForOneTaskFilter = countStatements(get(TASK_CONTROLLER_PATH + "?labels=" + bug.getId()));
+
+        for (int i = 0; i < 5; i++) {
+            createTask(new TaskDto("task" + i, "description", createStatus("status" + i).getId(),
+                    expectedUser.getId(), Set.of(createLabel("label" + i).getId(), bug.getId())));
+        }
+        final long statementsForManyTasks = countStatements(get(TASK_CONTROLLER_PATH));
+        final long statementsForPage = countStatements(get(TASK_CONTROLLER_PATH + "?size=3"));
+        final long statementsForFilter = countStatements(get(TASK_CONTROLLER_PATH + "?labels=" + bug.getId()));
+        final long statementsForSingleTask = countStatements(get(TASK_CONTROLLER_PATH + ID, task.getId()));
+
+        assertEquals(1, statementsForOneTask);
+        assertEquals(statementsForOneTask, statementsForManyTasks);
+        assertEquals(statementsForOneTask, statementsForPage);
+        assertEquals(statementsForOneTaskFilter, statementsForFilter);
+        assertEquals(1, statementsForSingleTask);
+    }
+
+    @Test
+    public void testTaskListFollowsRenames() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status status = createStatus("new");
+        final Label label = createLabel("bug");
+        createTask(new TaskDto("task", "description", status.getId(), expectedUser.getId(), Set.of(label.getId())));
+
+        utils.perform(put(STATUS_CONTROLLER_PATH + ID, status.getId())
+                                .content(asJson(new StatusDto("done")))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isOk());
+        utils.perform(put(LABEL_CONTROLLER_PATH + ID, label.getId())
+                                .content(asJson(new LabelDto("feature")))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isOk());
+        utils.perform(put(USER_CONTROLLER_PATH + ID, expectedUser.getId())
+                                .content(asJson(new UserDto(TEST_USERNAME, "new fname", "new lname", "pwd")))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        final var response = utils.perform(get(TASK_CONTROLLER_PATH + "?executorId=" + expectedUser.getId()),
+                        TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        final List<Task> tasks = fromJson(response.getContentAsString(), new TypeReference<>() {
+        });
+        final Task task = tasks.get(0);
+
+        assertThat(tasks.size()).isEqualTo(1);
+        assertEquals("done", task.getTaskStatus().getName());
+        assertEquals("feature", task.getLabels().iterator().next().getName());
+        assertEquals("new fname", task.getAuthor().getFirstName());
+        assertEquals("new lname", task.getExecutor().getLastName());
+    }
+
+    @Test
+    public void testSearchTasks() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status status = createStatus("new");
+        final Task inDescription = createTask(new TaskDto("deploy", "Fix the Zanzibar crash",
+                status.getId(), expectedUser.getId(), Set.of()));
+        final Task inName = createTask(new TaskDto("Zanzibar crash", "reported twice",
+                status.getId(), expectedUser.getId(), Set.of()));
+        final Task updated = createTask(new TaskDto("other", "unrelated",
+                status.getId(), expectedUser.getId(), Set.of()));
+
+        utils.perform(put(TASK_CONTROLLER_PATH + ID, updated.getId())
+                                .content(asJson(new TaskDto("zanzibar", "crash again", status.getId(),
+                                        expectedUser.getId(), Set.of())))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isOk());
+        utils.perform(delete(TASK_CONTROLLER_PATH + ID, inDescription.getId()), TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        final var response = utils.perform(get(TASK_CONTROLLER_PATH + TaskController.SEARCH
+                        + "?q=ZANZIBAR, crash&size=1"), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        final List<Task> tasks = fromJson(response.getContentAsString(), new TypeReference<>() {
+        });
+
+        assertEquals("2", response.getHeader(TaskController.TOTAL_COUNT_HEADER));
+        assertThat(tasks.size()).isEqualTo(1);
+        assertEquals(inName.getId(), tasks.get(0).getId());
+
+        final var secondPage = utils.perform(get(TASK_CONTROLLER_PATH + TaskController.SEARCH
+                        + "?q=zanzibar crash&size=1&page=1"), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        final List<Task> secondTasks = fromJson(secondPage.getContentAsString(), new TypeReference<>() {
+        });
+
+        assertEquals(updated.getId(), secondTasks.get(0).getId());
+        assertEquals("zanzibar", secondTasks.get(0).getName());
+    }
+
+    @Test
+    public void testGetStats() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status todo = createStatus("todo");
+        final Status done = createStatus("done");
+        final Label label = createLabel("bug");
+        createTask(new TaskDto("first", "description", todo.getId(), expectedUser.getId(), Set.of(label.getId())));
+        createTask(new TaskDto("second", "description", todo.getId(), null, Set.of(label.getId())));
+        final Task third = createTask(new TaskDto("third", "description", todo.getId(), null, Set.of()));
+
+        utils.perform(put(TASK_CONTROLLER_PATH + ID, third.getId())
+                                .content(asJson(new TaskDto("third", "description", done.getId(),
+                                        expectedUser.getId(), Set.of(label.getId()))))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isOk());
+        utils.perform(delete(TASK_CONTROLLER_PATH + ID, third.getId()), TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        final TaskStats stats = fromJson(utils.perform(get(TASK_CONTROLLER_PATH + TaskController.STATS),
+                        TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+
+        assertEquals(2, stats.getTotal());
+        assertEquals(Map.of(todo.getId(), 2L), stats.getByTaskStatus());
+        assertEquals(Map.of(expectedUser.getId(), 1L), stats.getByExecutor());
+        assertEquals(Map.of(expectedUser.getId(), 2L), stats.getByAuthor());
+        assertEquals(Map.of(label.getId(), 2L), stats.getByLabel());
+
+        taskCounters.reconcile();
+        assertEquals(stats, taskCounters.getStats());
+    }
+
+    @Test
+    public void testGetStatsTagFollowsRecount() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status todo = createStatus("todo");
+        createTask(new TaskDto("first", "description", todo.getId(), expectedUser.getId(), Set.of()));
+
+        final String etag = utils.perform(get(TASK_CONTROLLER_PATH + TaskController.STATS), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(ETAG);
+        assertThat(etag).startsWith("W/");
+        utils.perform(get(TASK_CONTROLLER_PATH + TaskController.STATS).header(IF_NONE_MATCH, etag), TEST_USERNAME)
+                .andExpect(status().isNotModified());
+
+        // Пересчёт может исправить расхождение, поэтому после него старый тег не подходит
+        taskCounters.reconcile();
+        utils.perform(get(TASK_CONTROLLER_PATH + TaskController.STATS).header(IF_NONE_MATCH, etag), TEST_USERNAME)
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testGetTasksByFacets() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status todo = createStatus("todo");
+        final Status done = createStatus("done");
+        final Label bug = createLabel("bug");
+        final Label feature = createLabel("feature");
+        final Task first = createTask(new TaskDto("first", "description", todo.getId(), expectedUser.getId(),
+                Set.of(bug.getId())));
+        final Task second = createTask(new TaskDto("second", "description", done.getId(), null,
+                Set.of(feature.getId())));
+        final Task third = createTask(new TaskDto("third", "description", done.getId(), expectedUser.getId(),
+                Set.of(bug.getId(), feature.getId())));
+
+        assertEquals(List.of(third.getId()), getTaskIds("?taskStatus=" + done.getId()
+                + "&labels=" + bug.getId() + "&sort=id"));
+        assertEquals(List.of(third.getId(), first.getId()), getTaskIds("?executorId=" + expectedUser.getId()
+                + "&labels=" + bug.getId() + "&sort=id,desc"));
+        assertEquals(List.of(first.getId(), second.getId(), third.getId()), getTaskIds("?taskStatus=" + todo.getId()
+                + "&labels=" + feature.getId() + "&match=any&sort=id"));
+        assertEquals(List.of(second.getId(), third.getId()), getTaskIds("?taskStatus=" + done.getId()
+                + "&authorId=" + expectedUser.getId()));
+        assertEquals(List.of(third.getId()), getTaskIds("?labels=" + bug.getId() + "&labels=" + feature.getId()
+                + "&sort=id"));
+
+        final var firstPage = utils.perform(get(TASK_CONTROLLER_PATH + "?labels=" + bug.getId()
+                        + "&labels=" + feature.getId() + "&match=any&sort=id&size=2&count=true"), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        final List<Task> firstTasks = fromJson(firstPage.getContentAsString(), new TypeReference<>() {
+        });
+
+        assertEquals("3", firstPage.getHeader(TaskController.TOTAL_COUNT_HEADER));
+        assertEquals(List.of(first.getId(), second.getId()), firstTasks.stream().map(Task::getId).toList());
+        assertEquals(List.of(third.getId()), getTaskIds("?labels=" + bug.getId() + "&labels=" + feature.getId()
+                + "&match=any&size=2&cursor=" + firstPage.getHeader(TaskController.NEXT_CURSOR_HEADER)));
+
+        utils.perform(delete(TASK_CONTROLLER_PATH + ID, third.getId()), TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        assertEquals(List.of(second.getId()), getTaskIds("?taskStatus=" + done.getId()));
+        utils.perform(get(TASK_CONTROLLER_PATH + "?name=first&match=any"), TEST_USERNAME)
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetTasksWithFields() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status status = createStatus("new");
+        final Label label = createLabel("bug");
+        final Task task = createTask(new TaskDto("task", "description", status.getId(), expectedUser.getId(),
+                Set.of(label.getId())));
+
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        final var response = utils.perform(get(TASK_CONTROLLER_PATH + "?fields=name,taskStatus&size=10"),
+                        TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        final List<Map<String, Object>> tasks = fromJson(response.getContentAsString(), new TypeReference<>() {
+        });
+
+        assertEquals(List.of(Map.of("id", task.getId().intValue(), "name", "task",
+                "taskStatus", Map.of("id", status.getId().intValue(), "name", "new"))), tasks);
+        assertThat(statistics.getQueries()).isNotEmpty();
+        for (String query : statistics.getQueries()) {
+            assertThat(query).doesNotContain("description");
+        }
+
+        final var single = utils.perform(get(TASK_CONTROLLER_PATH + ID + "?fields=executor,labels", task.getId()),
+                        TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+        final Map<String, Object> fields = fromJson(single.getContentAsString(), new TypeReference<>() {
+        });
+
+        assertEquals(Map.of("id", task.getId().intValue(),
+                "executor", Map.of("id", expectedUser.getId().intValue(), "firstName", "fname", "lastName", "lname"),
+                "labels", List.of(Map.of("id", label.getId().intValue(), "name", "bug"))), fields);
+        utils.perform(get(TASK_CONTROLLER_PATH + "?fields=name,secret"), TEST_USERNAME)
+                .andExpect(status().isBadRequest());
+        utils.perform(get(TASK_CONTROLLER_PATH + ID + "?fields=name", task.getId() + 1000), TEST_USERNAME)
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testTaskListEtagFollowsRenames() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status status = createStatus("new");
+        final Task task = createTask(new TaskDto("task", "description", status.getId(), expectedUser.getId(),
+                Set.of()));
+
+        final String etag = utils.perform(get(TASK_CONTROLLER_PATH), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(ETAG);
+        final String taskEtag = utils.perform(get(TASK_CONTROLLER_PATH + ID, task.getId()), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(ETAG);
+        final String fieldsEtag = utils.perform(get(TASK_CONTROLLER_PATH + ID + "?fields=taskStatus", task.getId()),
+                        TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(ETAG);
+        assertThat(fieldsEtag).isNotNull();
+
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        utils.perform(get(TASK_CONTROLLER_PATH).header(IF_NONE_MATCH, etag), TEST_USERNAME)
+                .andExpect(status().isNotModified());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        utils.perform(put(STATUS_CONTROLLER_PATH + ID, status.getId())
+                                .content(asJson(new StatusDto("done")))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        utils.perform(get(TASK_CONTROLLER_PATH).header(IF_NONE_MATCH, etag), TEST_USERNAME)
+                .andExpect(status().isOk());
+        // Строка задачи не изменилась, но ответ содержит новое название статуса
+        utils.perform(get(TASK_CONTROLLER_PATH + ID, task.getId()).header(IF_NONE_MATCH, taskEtag), TEST_USERNAME)
+                .andExpect(status().isOk());
+        utils.perform(get(TASK_CONTROLLER_PATH + ID + "?fields=taskStatus", task.getId())
+                        .header(IF_NONE_MATCH, fieldsEtag), TEST_USERNAME)
+                .andExpect(status().isOk());
+        // Версия строки в теге по-прежнему подходит для If-Match
+        utils.perform(patch(TASK_CONTROLLER_PATH + ID, task.getId())
+                        .header(IF_MATCH, taskEtag)
+                        .content("{\"name\": \"renamed\"}")
+                        .contentType(APPLICATION_MERGE_PATCH_JSON_VALUE), TEST_USERNAME)
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testBinaryContentNegotiation() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status status = createStatus("new");
+        final ObjectMapper smile = new SmileMapper().findAndRegisterModules();
+        final ObjectMapper cbor = new CBORMapper().findAndRegisterModules();
+
+        utils.perform(post(TASK_CONTROLLER_PATH)
+                                .content(smile.writeValueAsBytes(new TaskDto("task", "description", status.getId(),
+                                        expectedUser.getId(), Set.of())))
+                                .contentType(APPLICATION_SMILE_VALUE),
+                        TEST_USERNAME)
+                .andExpect(status().isCreated());
+
+        final var response = utils.perform(get(TASK_CONTROLLER_PATH).accept(APPLICATION_CBOR), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_CBOR))
+                .andReturn()
+                .getResponse();
+        final List<Task> tasks = cbor.readValue(response.getContentAsByteArray(), new TypeReference<>() { });
+
+        assertThat(tasks.size()).isEqualTo(1);
+        assertEquals("task", tasks.get(0).getName());
+        assertEquals("new", tasks.get(0).getTaskStatus().getName());
+    }
+
+    @Test
+    public void testRepeatedFiltersAreServedFromCache() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status todo = createStatus("todo");
+        final Status done = createStatus("done");
+        final Task first = createTask(new TaskDto("first", "description", todo.getId(), expectedUser.getId(),
+                Set.of()));
+        final Task second = createTask(new TaskDto("second", "description", done.getId(), null, Set.of()));
+
+        assertEquals(List.of(first.getId()), getTaskIds("?taskStatus=" + todo.getId() + "&sort=name"));
+        assertEquals(List.of(second.getId()), getTaskIds("?name=second"));
+        assertEquals(0, countStatements(get(TASK_CONTROLLER_PATH + "?sort=name&taskStatus=" + todo.getId())));
+        assertEquals(0, countStatements(get(TASK_CONTROLLER_PATH + "?name=second&count=true")));
+
+        utils.perform(put(TASK_CONTROLLER_PATH + ID, second.getId())
+                                .content(asJson(new TaskDto("second", "description", todo.getId(), null, Set.of())))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isOk());
+        utils.perform(put(TASK_CONTROLLER_PATH + ID, first.getId())
+                                .content(asJson(new TaskDto("first", "changed", todo.getId(), expectedUser.getId(),
+                                        Set.of())))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        assertEquals(0, countStatements(get(TASK_CONTROLLER_PATH + "?name=second")));
+        assertEquals(List.of(first.getId(), second.getId()), getTaskIds("?taskStatus=" + todo.getId()
+                + "&sort=name"));
+
+        utils.perform(delete(TASK_CONTROLLER_PATH + ID, second.getId()), TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        assertEquals(List.of(), getTaskIds("?name=second"));
+    }
+
+    @Test
+    public void testCachedFiltersFollowOtherInstances() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status todo = createStatus("todo");
+        createTask(new TaskDto("first", "description", todo.getId(), expectedUser.getId(), Set.of()));
+
+        getTaskIds("?taskStatus=" + todo.getId());
+        assertEquals(0, countStatements(get(TASK_CONTROLLER_PATH + "?taskStatus=" + todo.getId())));
+
+        // Так версию задач меняет изменение, закоммиченное другим экземпляром: его события сюда не приходят
+        jdbcTemplate.update("update table_versions set version = version + 1 where table_name = 'tasks'");
+
+        assertThat(countStatements(get(TASK_CONTROLLER_PATH + "?taskStatus=" + todo.getId()))).isPositive();
+    }
+
+    @Test
+    public void testPersistenceMetricsPerHandler() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status status = createStatus("new");
+        createTask(new TaskDto("first", "description", status.getId(), expectedUser.getId(), Set.of()));
+        createTask(new TaskDto("second", "description", status.getId(), null, Set.of()));
+
+        final DistributionSummary statements = meterRegistry.summary("persistence.statements",
+                "handler", "TaskController.getAllTasks");
+        final DistributionSummary rows = meterRegistry.summary("persistence.rows",
+                "handler", "TaskController.getAllTasks");
+        final DistributionSummary entities = meterRegistry.summary("persistence.entities",
+                "handler", "TaskController.getAllTasks");
+        final long requests = statements.count();
+        final double statementsBefore = statements.totalAmount();
+        final double rowsBefore = rows.totalAmount();
+        final double entitiesBefore = entities.totalAmount();
+        // Строки должны прийти из базы, а не из кеша второго уровня
+        entityManagerFactory.getCache().evictAll();
+
+        final long executed = countStatements(get(TASK_CONTROLLER_PATH + "?sort=id"));
+
+        assertEquals(requests + 1, statements.count());
+        // Условный GET читает версии четырёх таблиц одним запросом через JDBC, его Hibernate не считает
+        assertEquals(executed + 1, statements.totalAmount() - statementsBefore);
+        assertEquals(2 + 4, rows.totalAmount() - rowsBefore);
+        assertEquals(2, entities.totalAmount() - entitiesBefore);
+        assertThat(meterRegistry.timer("persistence.jdbc", "handler", "TaskController.getAllTasks").count())
+                .isEqualTo(requests + 1);
+
+        final MeterRegistry strictRegistry = new SimpleMeterRegistry();
+        final PersistenceMetricsInterceptor strict = new PersistenceMetricsInterceptor(strictRegistry, 1);
+        PersistenceMetrics.start().statement(0);
+        PersistenceMetrics.current().statement(0);
+        strict.afterCompletion(null, null, null, null);
+        assertEquals(1, strictRegistry.counter(PersistenceMetricsInterceptor.BUDGET_EXCEEDED, "handler", "null")
+                .count());
+    }
+
+    @Test
+    public void testBatchCreateAndUpdate() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status status = createStatus("new");
+        final Label label = createLabel("bug");
+
+        final var createRequest = post(TASK_CONTROLLER_PATH + BATCH)
+                .content(asJson(List.of(
+                        new TaskDto("first", "description", status.getId(), expectedUser.getId(),
+                                Set.of(label.getId())),
+                        new TaskDto("", "description", status.getId(), null, Set.of()),
+                        new TaskDto("third", "description", status.getId(), null, Set.of(label.getId() + 1)),
+                        new TaskDto("fourth", null, status.getId(), null, Set.of()))))
+                .contentType(APPLICATION_JSON);
+        final List<TaskBatchResult> created = fromJson(utils.perform(createRequest, TEST_USERNAME)
+                .andExpect(status().isMultiStatus())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+
+        assertEquals(List.of(201, 422, 422, 201), created.stream().map(TaskBatchResult::getStatus).toList());
+        assertEquals(List.of("labelIds: label " + (label.getId() + 1) + " not found"), created.get(2).getErrors());
+        assertEquals(2, taskRepository.count());
+        final Task first = created.get(0).getTask();
+        final Task fourth = created.get(3).getTask();
+        assertEquals(Set.of(label.getId()), taskRepository.findGraphById(first.getId()).get()
+                .getLabels()
+                .stream()
+                .map(Label::getId)
+                .collect(Collectors.toSet()));
+        assertEquals(List.of(first.getId()), getTaskIds("?labels=" + label.getId()));
+
+        final var updateRequest = put(TASK_CONTROLLER_PATH + BATCH)
+                .content(asJson(List.of(
+                        new TaskBatchUpdateDto(first.getId(), "first updated", null, status.getId(), null, Set.of()),
+                        new TaskBatchUpdateDto(fourth.getId() + 1, "missing", null, status.getId(), null, Set.of()),
+                        new TaskBatchUpdateDto(fourth.getId(), "fourth updated", null, status.getId(), null,
+                                Set.of(label.getId())))))
+                .contentType(APPLICATION_JSON);
+        final List<TaskBatchResult> updated = fromJson(utils.perform(updateRequest, TEST_USERNAME)
+                .andExpect(status().isMultiStatus())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+
+        assertEquals(List.of(200, 404, 200), updated.stream().map(TaskBatchResult::getStatus).toList());
+        assertEquals("first updated", taskRepository.findById(first.getId()).get().getName());
+        assertEquals(List.of(fourth.getId()), getTaskIds("?labels=" + label.getId()));
+        assertEquals(List.of(first.getId()), getTaskIds("?name=first updated"));
+
+        final var validRequest = put(TASK_CONTROLLER_PATH + BATCH)
+                .content(asJson(List.of(
+                        new TaskBatchUpdateDto(first.getId(), "first", null, status.getId(), null, Set.of()))))
+                .contentType(APPLICATION_JSON);
+        utils.perform(validRequest, TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        utils.regUser(new UserDto(TEST_USERNAME_2, "name", "last name", "pwd"));
+        final var foreignRequest = put(TASK_CONTROLLER_PATH + BATCH)
+                .content(asJson(List.of(
+                        new TaskBatchUpdateDto(first.getId(), "foreign", null, status.getId(), null, Set.of()))))
+                .contentType(APPLICATION_JSON);
+        final List<TaskBatchResult> foreign = fromJson(utils.perform(foreignRequest, TEST_USERNAME_2)
+                .andExpect(status().isMultiStatus())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+        assertEquals(403, foreign.get(0).getStatus());
+        assertEquals("first", taskRepository.findById(first.getId()).get().getName());
+    }
+
+    @Test
+    public void testPatchTask() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final Status status = createStatus("new");
+        final Status inProgress = createStatus("in progress");
+        final Label label = createLabel("bug");
+        final Task task = createTask(new TaskDto("first", "description", status.getId(), expectedUser.getId(),
+                Set.of(label.getId())));
+
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        utils.perform(patch(TASK_CONTROLLER_PATH + ID, task.getId())
+                        .content("{\"taskStatusId\": " + inProgress.getId() + "}")
+                        .contentType(APPLICATION_MERGE_PATCH_JSON_VALUE), TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        // Одно UPDATE задачи и одно строки task_view, связи с метками не переписываются
+        assertEquals(2, statistics.getEntityUpdateCount());
+        assertEquals(0, statistics.getCollectionRecreateCount() + statistics.getCollectionUpdateCount());
+        final Task moved = taskRepository.findGraphById(task.getId()).get();
+        assertEquals(inProgress.getId(), moved.getTaskStatus().getId());
+        assertEquals("first", moved.getName());
+        assertEquals("description", moved.getDescription());
+        assertEquals(expectedUser.getId(), moved.getExecutor().getId());
+        assertEquals(1, moved.getLabels().size());
+        assertEquals(List.of(task.getId()), getTaskIds("?taskStatus=" + inProgress.getId()));
+        assertEquals(List.of(task.getId()), getTaskIds("?labels=" + label.getId()));
+
+        utils.perform(patch(TASK_CONTROLLER_PATH + ID, task.getId())
+                        .content("{\"description\": null, \"executorId\": null, \"labelIds\": []}")
+                        .contentType(APPLICATION_MERGE_PATCH_JSON_VALUE), TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        final Task cleared = taskRepository.findGraphById(task.getId()).get();
+        assertEquals(null, cleared.getDescription());
+        assertEquals(null, cleared.getExecutor());
+        assertEquals(0, cleared.getLabels().size());
+        assertEquals(List.of(), getTaskIds("?labels=" + label.getId()));
+
+        utils.perform(patch(TASK_CONTROLLER_PATH + ID, task.getId())
+                        .content("{\"author\": 1}")
+                        .contentType(APPLICATION_MERGE_PATCH_JSON_VALUE), TEST_USERNAME)
+                .andExpect(status().isBadRequest());
+        utils.perform(patch(TASK_CONTROLLER_PATH + ID, task.getId())
+                        .content("{\"name\": \"\"}")
+                        .contentType(APPLICATION_MERGE_PATCH_JSON_VALUE), TEST_USERNAME)
+                .andExpect(status().isBadRequest());
+        assertEquals("first", taskRepository.findById(task.getId()).get().getName());
+    }
+
+    @Test
+    public void testLabelChangesAreAppliedAsDiff() throws Exception {
+        utils.regDefaultUser();
+        final Status status = createStatus("new");
+        final Label bug = createLabel("bug");
+        final Label feature = createLabel("feature");
+        final Label urgent = createLabel("urgent");
+        final Task task = createTask(new TaskDto("first", "description", status.getId(), null,
+                Set.of(bug.getId(), feature.getId())));
+
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        utils.perform(put(TASK_CONTROLLER_PATH + ID, task.getId())
+                        .content(asJson(new TaskDto("first", "description", status.getId(), null,
+                                Set.of(feature.getId(), urgent.getId()))))
+                        .contentType(APPLICATION_JSON), TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        // Связи задачи не пересоздаются: удаляется строка bug и вставляется строка urgent
+        assertEquals(0, statistics.getCollectionRecreateCount());
+        assertEquals(1, statistics.getCollectionUpdateCount());
+        assertEquals(List.of(), getTaskIds("?labels=" + bug.getId()));
+        assertEquals(List.of(task.getId()), getTaskIds("?labels=" + urgent.getId()));
+
+        utils.perform(post(TASK_CONTROLLER_PATH + LABEL, task.getId(), bug.getId()), TEST_USERNAME)
+                .andExpect(status().isOk());
+        utils.perform(post(TASK_CONTROLLER_PATH + LABEL, task.getId(), bug.getId()), TEST_USERNAME)
+                .andExpect(status().isOk());
+        utils.perform(delete(TASK_CONTROLLER_PATH + LABEL, task.getId(), feature.getId()), TEST_USERNAME)
+                .andExpect(status().isOk());
+        utils.perform(post(TASK_CONTROLLER_PATH + LABEL, task.getId(), urgent.getId() + 1), TEST_USERNAME)
+                .andExpect(status().isBadRequest());
+
+        assertEquals(Set.of(bug.getId(), urgent.getId()), taskRepository.findGraphById(task.getId()).get()
+                .getLabels()
+                .stream()
+                .map(Label::getId)
+                .collect(Collectors.toSet()));
+        assertEquals(List.of(task.getId()), getTaskIds("?labels=" + bug.getId()));
+        assertEquals(List.of(), getTaskIds("?labels=" + feature.getId()));
+    }
+
+    @Test
+    public void testConditionalWritesWithIfMatch() throws Exception {
+        utils.regDefaultUser();
+        final Status status = createStatus("new");
+        final Task task = createTask(new TaskDto("first", "description", status.getId(), null, Set.of()));
+
+        final String etag = utils.perform(get(TASK_CONTROLLER_PATH + ID, task.getId()), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(ETAG);
+        utils.perform(get(TASK_CONTROLLER_PATH + ID, task.getId()).header(IF_NONE_MATCH, etag), TEST_USERNAME)
+                .andExpect(status().isNotModified());
+
+        final String updatedEtag = utils.perform(put(TASK_CONTROLLER_PATH + ID, task.getId())
+                        .header(IF_MATCH, etag)
+                        .content(asJson(new TaskDto("second", "description", status.getId(), null, Set.of())))
+                        .contentType(APPLICATION_JSON), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(ETAG);
+        assertNotEquals(etag, updatedEtag);
+
+        // Второй клиент прочитал задачу до первого изменения, его запись отклоняется
+        utils.perform(patch(TASK_CONTROLLER_PATH + ID, task.getId())
+                        .header(IF_MATCH, etag)
+                        .content("{\"name\": \"third\"}")
+                        .contentType(APPLICATION_MERGE_PATCH_JSON_VALUE), TEST_USERNAME)
+                .andExpect(status().isPreconditionFailed());
+        utils.perform(delete(TASK_CONTROLLER_PATH + ID, task.getId()).header(IF_MATCH, etag), TEST_USERNAME)
+                .andExpect(status().isPreconditionFailed());
+        assertEquals("second", taskRepository.findById(task.getId()).get().getName());
+
+        utils.perform(patch(TASK_CONTROLLER_PATH + ID, task.getId())
+                        .header(IF_MATCH, updatedEtag)
+                        .content("{\"name\": \"third\"}")
+                        .contentType(APPLICATION_MERGE_PATCH_JSON_VALUE), TEST_USERNAME)
+                .andExpect(status().isOk());
+        assertEquals("third", taskRepository.findById(task.getId()).get().getName());
+
+        // Запросы без If-Match повторяются после конфликта, с If-Match - нет
+        final int[] attempts = {0};
+        assertEquals("done", optimisticRetry.call(null, () -> {
+            if (attempts[0]++ == 0) {
+                throw new ObjectOptimisticLockingFailureException(Task.class, task.getId());
+            }
+            return "done";
+        }));
+        assertEquals(2, attempts[0]);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> optimisticRetry.call(1L, () -> {
+            throw new ObjectOptimisticLockingFailureException(Task.class, task.getId());
+        }));
+    }
+
+    @Test
+    public void testChangesAreWrittenToOutbox() throws Exception {
+        utils.regDefaultUser();
+        final Status status = createStatus("new");
+        final Status done = createStatus("done");
+        final Task task = createTask(new TaskDto("first", "description", status.getId(), null, Set.of()));
+
+        utils.perform(patch(TASK_CONTROLLER_PATH + ID, task.getId())
+                        .content("{\"taskStatusId\": " + done.getId() + "}")
+                        .contentType(APPLICATION_MERGE_PATCH_JSON_VALUE), TEST_USERNAME)
+                .andExpect(status().isOk());
+        // Запись, которая ничего не меняет, события не оставляет
+        utils.perform(put(TASK_CONTROLLER_PATH + ID, task.getId())
+                        .content(asJson(new TaskDto("first", "description", done.getId(), null, Set.of())))
+                        .contentType(APPLICATION_JSON), TEST_USERNAME)
+                .andExpect(status().isOk());
+        utils.perform(delete(TASK_CONTROLLER_PATH + ID, task.getId()), TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        final List<OutboxEvent> events = outboxEventRepository.findByAggregateTypeAndAggregateIdOrderById(
+                OutboxEvent.TASK, task.getId());
+        assertEquals(List.of(OutboxEvent.Type.CREATED, OutboxEvent.Type.UPDATED, OutboxEvent.Type.DELETED),
+                events.stream().map(OutboxEvent::getEventType).toList());
+        assertEquals("{\"taskStatusId\":" + done.getId() + "}", events.get(1).getChanges());
+        assertEquals(null, events.get(2).getChanges());
+        assertEquals(1, outboxEventRepository.findByAggregateTypeAndAggregateIdOrderById(
+                OutboxEvent.STATUS, done.getId()).size());
+
+        // Relay нумерует события в порядке id, передаёт их в фоне и запоминает последнее переданное
+        OutboxEvent deleted = events.get(2);
+        for (int attempt = 0; attempt < 50 && (deleted.getSequenceNumber() == null
+                || outboxRelay.getLastSequenceNumber() < deleted.getSequenceNumber()); attempt++) {
+            Thread.sleep(100);
+            deleted = outboxEventRepository.findById(deleted.getId()).orElseThrow();
+        }
+        assertThat(deleted.getSequenceNumber()).isNotNull();
+        assertThat(outboxRelay.getLastSequenceNumber()).isGreaterThanOrEqualTo(deleted.getSequenceNumber());
+        assertThat(outboxEventRepository.findById(events.get(1).getId()).orElseThrow().getSequenceNumber())
+                .isLessThan(deleted.getSequenceNumber());
+    }
+
+    @Test
+    public void testStreamTaskChanges() throws Exception {
+        utils.regDefaultUser();
+        final Status status = createStatus("new");
+        final Status done = createStatus("done");
+
+        final MvcResult stream = utils.perform(get(TASK_CONTROLLER_PATH + STREAM)
+                        .param("taskStatus", status.getId().toString()), TEST_USERNAME)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        final Task matching = createTask(new TaskDto("matching", "description", status.getId(), null, Set.of()));
+        createTask(new TaskDto("ignored", "description", done.getId(), null, Set.of()));
+        utils.perform(patch(TASK_CONTROLLER_PATH + ID, matching.getId())
+                        .content("{\"taskStatusId\": " + done.getId() + "}")
+                        .contentType(APPLICATION_MERGE_PATCH_JSON_VALUE), TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        // События приходят после того, как relay передаст их из outbox
+        final String events = awaitContent(stream, "event:removed");
+        assertThat(events).contains("event:created", "matching");
+        assertThat(events).doesNotContain("ignored");
+
+        // Пропущенные после Last-Event-ID изменения повторяются: задача уже не подходит под фильтр
+        final Matcher created = Pattern.compile("id:(\\d+)\nevent:created").matcher(events);
+        assertThat(created.find()).isTrue();
+        final MvcResult resumed = utils.perform(get(TASK_CONTROLLER_PATH + STREAM)
+                        .param("taskStatus", status.getId().toString())
+                        .header(LAST_EVENT_ID_HEADER, created.group(1)), TEST_USERNAME)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String replayed = awaitContent(resumed, "event:removed");
+        assertThat(replayed).doesNotContain("event:created");
+
+        // Закрытые подключения больше не получают изменений
+        stream.getRequest().getAsyncContext().complete();
+        resumed.getRequest().getAsyncContext().complete();
+        assertEquals(0, taskChangeStream.getSubscriberCount());
+    }
+
+    @Test
+    public void testGetChangesSinceToken() throws Exception {
+        utils.regDefaultUser();
+        final Status status = createStatus("new");
+        final Task first = createTask(new TaskDto("first", "description", status.getId(), null, Set.of()));
+        final Task second = createTask(new TaskDto("second", "description", status.getId(), null, Set.of()));
+
+        // Без токена возвращаются все задачи, страницами по size
+        final TaskChanges firstPage = getChanges("?size=1");
+        assertEquals(List.of(first.getId()), firstPage.getTasks().stream().map(Task::getId).toList());
+        assertThat(firstPage.isMore()).isTrue();
+        final TaskChanges secondPage = getChanges("?size=1&since=" + firstPage.getToken());
+        assertEquals(List.of(second.getId()), secondPage.getTasks().stream().map(Task::getId).toList());
+        final TaskChanges synced = getChanges("?since=" + secondPage.getToken());
+        assertThat(synced.getTasks()).isEmpty();
+        assertThat(synced.isMore()).isFalse();
+
+        utils.perform(patch(TASK_CONTROLLER_PATH + ID, first.getId())
+                        .content("{\"name\": \"renamed\"}")
+                        .contentType(APPLICATION_MERGE_PATCH_JSON_VALUE), TEST_USERNAME)
+                .andExpect(status().isOk());
+        utils.perform(delete(TASK_CONTROLLER_PATH + ID, second.getId()), TEST_USERNAME)
+                .andExpect(status().isOk());
+
+        final TaskChanges changes = getChanges("?since=" + synced.getToken());
+        assertEquals(List.of("renamed"), changes.getTasks().stream().map(Task::getName).toList());
+        assertEquals(List.of(second.getId()), changes.getDeleted());
+
+        // Переименование статуса меняет задачи, в которых он показан
+        utils.perform(put(STATUS_CONTROLLER_PATH + ID, status.getId())
+                        .content(asJson(new StatusDto("todo")))
+                        .contentType(APPLICATION_JSON), TEST_USERNAME)
+                .andExpect(status().isOk());
+        final TaskChanges renamed = getChanges("?since=" + changes.getToken());
+        assertEquals(List.of("todo"), renamed.getTasks().stream().map(task -> task.getTaskStatus().getName()).toList());
+        assertThat(renamed.getDeleted()).isEmpty();
+
+        utils.perform(get(TASK_CONTROLLER_PATH + CHANGES + "?since=broken"), TEST_USERNAME)
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testBulkUpdateAndDeleteByFilter() throws Exception {
+        utils.regDefaultUser();
+        final Status todo = createStatus("todo");
+        final Status done = createStatus("done");
+        final Label bug = createLabel("bug");
+        final Label feature = createLabel("feature");
+        final Task first = createTask(new TaskDto("first", "description", todo.getId(), null, Set.of(bug.getId())));
+        final Task second = createTask(new TaskDto("second", "description", todo.getId(), null, Set.of()));
+        final Task third = createTask(new TaskDto("third", "description", done.getId(), null, Set.of()));
+
+        // Задачи другого пользователя под фильтр попадают, но не меняются
+        utils.regUser(new UserDto(TEST_USERNAME_2, "name", "last name", "pwd"));
+        final Task foreign = fromJson(utils.perform(post(TASK_CONTROLLER_PATH)
+                        .content(asJson(new TaskDto("foreign", "description", todo.getId(), null, Set.of())))
+                        .contentType(APPLICATION_JSON), TEST_USERNAME_2)
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+
+        final TaskBulkResult updated = fromJson(utils.perform(patch(TASK_CONTROLLER_PATH + BULK)
+                        .param("taskStatus", todo.getId().toString())
+                        .content(asJson(new TaskBulkUpdateDto(done.getId(), null, Set.of(feature.getId()),
+                                Set.of(bug.getId()))))
+                        .contentType(APPLICATION_JSON), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+        assertEquals(2, updated.getAffected());
+        assertEquals(Set.of(first.getId(), second.getId(), third.getId()),
+                new HashSet<>(getTaskIds("?taskStatus=" + done.getId())));
+        assertEquals(List.of(foreign.getId()), getTaskIds("?taskStatus=" + todo.getId()));
+        assertEquals(List.of(first.getId(), second.getId()), getTaskIds("?labels=" + feature.getId()));
+        assertEquals(List.of(), getTaskIds("?labels=" + bug.getId()));
+        assertEquals(Set.of(feature.getId()), taskRepository.findGraphById(first.getId()).get()
+                .getLabels()
+                .stream()
+                .map(Label::getId)
+                .collect(Collectors.toSet()));
+
+        utils.perform(patch(TASK_CONTROLLER_PATH + BULK)
+                        .content(asJson(new TaskBulkUpdateDto(done.getId(), null, null, null)))
+                        .contentType(APPLICATION_JSON), TEST_USERNAME)
+                .andExpect(status().isBadRequest());
+        utils.perform(patch(TASK_CONTROLLER_PATH + BULK)
+                        .param("taskStatus", done.getId().toString())
+                        .content(asJson(new TaskBulkUpdateDto()))
+                        .contentType(APPLICATION_JSON), TEST_USERNAME)
+                .andExpect(status().isBadRequest());
+
+        utils.perform(delete(TASK_CONTROLLER_PATH + BULK)
+                        .param("taskStatus", todo.getId().toString()), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"affected\": 0}"));
+        utils.perform(delete(TASK_CONTROLLER_PATH + BULK)
+                        .param("taskStatus", done.getId().toString()), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"affected\": 3}"));
+        assertEquals(List.of(foreign.getId()), getTaskIds(""));
+        assertEquals(1, taskRepository.count());
+    }
+
+    private TaskChanges getChanges(final String query) throws Exception {
+        return fromJson(utils.perform(get(TASK_CONTROLLER_PATH + CHANGES + query), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+    }
+
+    private String awaitContent(final MvcResult result, final String expected) throws Exception {
+        final MockHttpServletResponse response = result.getResponse();
+        for (int attempt = 0; attempt < 50 && !response.getContentAsString().contains(expected); attempt++) {
+            Thread.sleep(100);
+        }
+        assertThat(response.getContentAsString()).contains(expected);
+        return response.getContentAsString();
+    }
+
+    private List<Long> getTaskIds(final String query) throws Exception {
+        final List<Task> tasks = fromJson(utils.perform(get(TASK_CONTROLLER_PATH + query), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+        return tasks.stream().map(Task::getId).toList();
+    }
+
+    private long countStatements(final MockHttpServletRequestBuilder request) throws Exception {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        utils.perform(request, TEST_USERNAME)
+                .andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Label createLabel(final String name) throws Exception {
+        final var request = post(LABEL_CONTROLLER_PATH)
+                .content(asJson(new LabelDto(name)))
+                .contentType(APPLICATION_JSON);
+        return fromJson(utils.perform(request, TEST_USERNAME)
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+    }
+
+    private Status createStatus(final String name) throws Exception {
+        final var request = post(STATUS_CONTROLLER_PATH)
+                .content(asJson(new StatusDto(name)))
+                .contentType(APPLICATION_JSON);
+        return fromJson(utils.perform(request, TEST_USERNAME)
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+    }
+
+    private Task createTask(final TaskDto dto) throws Exception {
+        final var request = post(TASK_CONTROLLER_PATH)
+                .content(asJson(dto))
+                .contentType(APPLICATION_JSON);
+        return fromJson(utils.perform(request, TEST_USERNAME)
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+    }
+
 }
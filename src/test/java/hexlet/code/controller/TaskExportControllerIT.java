@@ -0,0 +1,151 @@
+package hexlet.code.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import hexlet.code.config.SpringConfigForIT;
+import hexlet.code.dto.LabelDto;
+import hexlet.code.dto.StatusDto;
+import hexlet.code.dto.TaskDto;
+import hexlet.code.dto.TaskRow;
+import hexlet.code.model.Label;
+import hexlet.code.model.Status;
+import hexlet.code.model.User;
+import hexlet.code.repository.UserRepository;
+import hexlet.code.utils.TestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static hexlet.code.config.SpringConfigForIT.TEST_PROFILE;
+import static hexlet.code.controller.LabelController.LABEL_CONTROLLER_PATH;
+import static hexlet.code.controller.StatusController.STATUS_CONTROLLER_PATH;
+import static hexlet.code.controller.TaskController.TASK_CONTROLLER_PATH;
+import static hexlet.code.controller.TaskExportController.EXPORT;
+import static hexlet.code.utils.TestUtils.TEST_USERNAME;
+import static hexlet.code.utils.TestUtils.asJson;
+import static hexlet.code.utils.TestUtils.fromJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@ActiveProfiles(TEST_PROFILE)
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT, classes = SpringConfigForIT.class)
+public class TaskExportControllerIT {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestUtils utils;
+
+    @AfterEach
+    public void clear() {
+        utils.tearDown();
+    }
+
+
+    @Test
+    public void testExportNdjson() throws Exception {
+        final Label label = createTasks();
+
+        final var response = utils.perform(get(TASK_CONTROLLER_PATH + EXPORT), TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        final String[] lines = response.getContentAsString().split("\n");
+        final TaskRow first = fromJson(lines[0], new TypeReference<>() { });
+        final TaskRow second = fromJson(lines[1], new TypeReference<>() { });
+
+        assertThat(response.getContentType()).startsWith("application/x-ndjson");
+        assertEquals(2, lines.length);
+        assertEquals("first", first.getName());
+        assertEquals("fname lname", first.getAuthor());
+        assertEquals("new", first.getTaskStatus());
+        assertEquals(List.of(label.getId()), first.getLabelIds());
+        assertEquals(List.of("bug"), first.getLabels());
+        assertEquals("second", second.getName());
+        assertThat(second.getLabelIds()).isEmpty();
+    }
+
+
+    @Test
+    public void testExportCsvByPredicate() throws Exception {
+        final Label label = createTasks();
+
+        final var response = utils.perform(get(TASK_CONTROLLER_PATH + EXPORT)
+                                .param("format", "csv")
+                                .param("labels", label.getId().toString()),
+                        TEST_USERNAME)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        final String[] lines = response.getContentAsString().split("\n");
+
+        assertThat(response.getContentType()).startsWith("text/csv");
+        assertEquals(2, lines.length);
+        assertThat(lines[0]).startsWith("id,name,description,createdAt");
+        assertThat(lines[1]).contains("first", "\"fname lname\"", "bug");
+    }
+
+
+    @Test
+    public void testExportUnknownFormat() throws Exception {
+        utils.regDefaultUser();
+
+        utils.perform(get(TASK_CONTROLLER_PATH + EXPORT).param("format", "xml"), TEST_USERNAME)
+                .andExpect(status().isBadRequest());
+    }
+
+
+    private Label createTasks() throws Exception {
+        utils.regDefaultUser();
+        final User user = userRepository.findAll().get(0);
+
+        final Status status = fromJson(utils.perform(post(STATUS_CONTROLLER_PATH)
+                                .content(asJson(new StatusDto("new")))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+
+        final Label label = fromJson(utils.perform(post(LABEL_CONTROLLER_PATH)
+                                .content(asJson(new LabelDto("bug")))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+
+        utils.perform(post(TASK_CONTROLLER_PATH)
+                                .content(asJson(new TaskDto("first", "description", status.getId(), user.getId(),
+                                        Set.of(label.getId()))))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isCreated());
+        utils.perform(post(TASK_CONTROLLER_PATH)
+                                .content(asJson(new TaskDto("second", "description", status.getId(), null, Set.of())))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isCreated());
+
+        return label;
+    }
+}
@@ -0,0 +1,164 @@
+package hexlet.code.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import hexlet.code.config.SpringConfigForIT;
+import hexlet.code.dto.LabelDto;
+import hexlet.code.dto.StatusDto;
+import hexlet.code.dto.UserDto;
+import hexlet.code.model.Task;
+import hexlet.code.model.TaskImportJob;
+import hexlet.code.repository.TaskRepository;
+import hexlet.code.utils.TestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static hexlet.code.config.SpringConfigForIT.TEST_PROFILE;
+import static hexlet.code.controller.LabelController.LABEL_CONTROLLER_PATH;
+import static hexlet.code.controller.StatusController.STATUS_CONTROLLER_PATH;
+import static hexlet.code.controller.TaskController.TASK_CONTROLLER_PATH;
+import static hexlet.code.controller.TaskImportController.IMPORT;
+import static hexlet.code.controller.TaskImportController.IMPORT_JOB;
+import static hexlet.code.utils.TestUtils.TEST_USERNAME;
+import static hexlet.code.utils.TestUtils.TEST_USERNAME_2;
+import static hexlet.code.utils.TestUtils.asJson;
+import static hexlet.code.utils.TestUtils.fromJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpHeaders.LOCATION;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@ActiveProfiles(TEST_PROFILE)
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT, classes = SpringConfigForIT.class)
+public class TaskImportControllerIT {
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TestUtils utils;
+
+    @AfterEach
+    public void clear() {
+        utils.tearDown();
+    }
+
+
+    @Test
+    public void testImportNdjson() throws Exception {
+        createReferences();
+
+        final MockHttpServletResponse response = utils.perform(post(TASK_CONTROLLER_PATH + IMPORT)
+                                .content("""
+                                    {"name": "first", "taskStatus": "new", "executorEmail": "%s", "labels": ["bug"]}
+                                    {"name": "second", "taskStatus": "done"}
+                                    {"name": "", "taskStatus": "new"}
+                                    {"name": "third", "description": "description", "taskStatus": "new"}
+                                    """.formatted(TEST_USERNAME.toUpperCase(Locale.ROOT)))
+                                .contentType("application/x-ndjson"),
+                        TEST_USERNAME)
+                .andExpect(status().isAccepted())
+                .andReturn()
+                .getResponse();
+        final TaskImportJob queued = fromJson(response.getContentAsString(), new TypeReference<>() { });
+
+        assertThat(response.getHeader(LOCATION)).endsWith(TASK_CONTROLLER_PATH + IMPORT + "/" + queued.getId());
+
+        final TaskImportJob job = awaitJob(queued.getId());
+
+        assertEquals(TaskImportJob.State.COMPLETED, job.getState());
+        assertEquals(4, job.getRowsRead());
+        assertEquals(2, job.getImported());
+        assertEquals(2, job.getFailed());
+        assertThat(job.getErrors().split("\n")).hasSize(2);
+        assertThat(job.getErrors()).contains("row 2: taskStatus: status done not found", "row 3: name");
+        assertEquals(List.of("first", "third"), taskRepository.findAll().stream()
+                .map(Task::getName)
+                .sorted()
+                .collect(Collectors.toList()));
+    }
+
+
+    @Test
+    public void testImportCsvIsReadOnlyByAuthor() throws Exception {
+        createReferences();
+        utils.regUser(new UserDto(TEST_USERNAME_2, "name", "last name", "pwd"));
+
+        final TaskImportJob queued = fromJson(utils.perform(post(TASK_CONTROLLER_PATH + IMPORT)
+                                .param("format", "csv")
+                                .content("""
+                                    name,taskStatus,labels,ignored
+                                    first,new,bug,x
+                                    second,new,,y
+                                    """)
+                                .contentType("text/csv"),
+                        TEST_USERNAME)
+                .andExpect(status().isAccepted())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<>() { });
+
+        final TaskImportJob job = awaitJob(queued.getId());
+
+        assertEquals(TaskImportJob.State.COMPLETED, job.getState());
+        assertEquals(2, job.getImported());
+        assertEquals(0, job.getFailed());
+        utils.perform(get(TASK_CONTROLLER_PATH + IMPORT_JOB, job.getId()), TEST_USERNAME_2)
+                .andExpect(status().isForbidden());
+    }
+
+
+    @Test
+    public void testGetUnknownJobIsNotFound() throws Exception {
+        utils.regDefaultUser();
+        utils.perform(get(TASK_CONTROLLER_PATH + IMPORT_JOB, Long.MAX_VALUE), TEST_USERNAME)
+                .andExpect(status().isNotFound());
+    }
+
+
+    private void createReferences() throws Exception {
+        utils.regDefaultUser();
+        utils.perform(post(STATUS_CONTROLLER_PATH)
+                                .content(asJson(new StatusDto("new")))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isCreated());
+        utils.perform(post(LABEL_CONTROLLER_PATH)
+                                .content(asJson(new LabelDto("bug")))
+                                .contentType(APPLICATION_JSON),
+                        TEST_USERNAME)
+                .andExpect(status().isCreated());
+    }
+
+    private TaskImportJob awaitJob(final long id) throws Exception {
+        TaskImportJob job = null;
+        for (int attempt = 0; attempt < 100; attempt++) {
+            job = fromJson(utils.perform(get(TASK_CONTROLLER_PATH + IMPORT_JOB, id), TEST_USERNAME)
+                    .andExpect(status().isOk())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString(), new TypeReference<>() { });
+            if (job.getState() == TaskImportJob.State.COMPLETED || job.getState() == TaskImportJob.State.FAILED) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        return job;
+    }
+}
@@ -19,6 +19,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.List;
+import java.util.Map;
 
 import static hexlet.code.config.SpringConfigForIT.TEST_PROFILE;
 import static hexlet.code.config.security.SecurityConfig.LOGIN;
@@ -143,6 +144,24 @@ public class UserControllerIT {
     }
 
 
+    @Test
+    public void getAllUsersWithFields() throws Exception {
+        utils.regDefaultUser();
+        final User expectedUser = userRepository.findAll().get(0);
+        final var response = utils.perform(get(USER_CONTROLLER_PATH + "?fields=email"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        final List<Map<String, Object>> users = fromJson(response.getContentAsString(), new TypeReference<>() {
+        });
+
+        assertEquals(List.of(Map.of("id", expectedUser.getId().intValue(), "email", TEST_USERNAME)), users);
+        utils.perform(get(USER_CONTROLLER_PATH + ID + "?fields=password", expectedUser.getId()), TEST_USERNAME)
+                .andExpect(status().isBadRequest());
+    }
+
+
     //test when login feature is ready
     @Test
     public void login() throws Exception {
@@ -4,21 +4,34 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import hexlet.code.component.JWTHelper;
+import hexlet.code.component.TaskArchive;
+import hexlet.code.component.TaskCounters;
+import hexlet.code.component.TaskFacetIndex;
+import hexlet.code.component.TaskQueryCache;
 import hexlet.code.dto.UserDto;
 import hexlet.code.model.User;
 import hexlet.code.repository.LabelRepository;
 import hexlet.code.repository.StatusRepository;
+import hexlet.code.repository.TaskArchiveSegmentRepository;
+import hexlet.code.repository.TaskImportJobRepository;
 import hexlet.code.repository.TaskRepository;
+import hexlet.code.repository.TaskTombstoneRepository;
+import hexlet.code.repository.TaskViewRepository;
 import hexlet.code.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.util.List;
 import java.util.Map;
 
 import static hexlet.code.controller.UserController.USER_CONTROLLER_PATH;
+import static hexlet.code.filter.PersistenceMetricsInterceptor.BUDGET_EXCEEDED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -55,14 +68,57 @@ public class TestUtils {
     @Autowired
     private TaskRepository taskRepository;
 
+    @Autowired
+    private TaskViewRepository taskViewRepository;
+
+    @Autowired
+    private TaskTombstoneRepository taskTombstoneRepository;
+
+    @Autowired
+    private TaskImportJobRepository taskImportJobRepository;
+
+    @Autowired
+    private TaskArchiveSegmentRepository taskArchiveSegmentRepository;
+
+    @Autowired
+    private TaskArchive taskArchive;
+
+    @Autowired
+    private TaskFacetIndex taskFacetIndex;
+
+    @Autowired
+    private TaskCounters taskCounters;
+
+    @Autowired
+    private TaskQueryCache taskQueryCache;
+
     @Autowired
     private JWTHelper jwtHelper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     public void tearDown() {
+        // Запросы сверх бюджета запросов только пишут в лог и в метрику, поэтому тест падает здесь, например при N+1
+        final List<Counter> overBudget = List.copyOf(meterRegistry.find(BUDGET_EXCEEDED).counters());
+        overBudget.forEach(meterRegistry::remove);
+        taskViewRepository.deleteAll();
+        taskTombstoneRepository.deleteAll();
+        taskImportJobRepository.deleteAll();
+        taskArchiveSegmentRepository.deleteAll();
         taskRepository.deleteAll();
         labelRepository.deleteAll();
         statusRepository.deleteAll();
         userRepository.deleteAll();
+        // Репозитории пишут мимо сервиса задач, поэтому модели чтения в памяти строятся заново
+        taskFacetIndex.load();
+        taskCounters.reconcile();
+        taskQueryCache.clear();
+        taskArchive.load();
+        assertEquals(0, overBudget.stream().mapToDouble(Counter::count).sum(),
+                "Requests ran more statements than persistence-metrics.statement-budget: " + overBudget.stream()
+                        .map(counter -> counter.getId().getTag("handler"))
+                        .toList());
     }
 
     public User getUserByEmail(final String email) {